@@ -0,0 +1,84 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.Helper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * vector math of Helper by embedding dimension
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelperBenchmark {
+
+    @Param({"50", "100", "200", "400", "1024"})
+    int k;
+
+    Helper helper;
+    double[] head;
+    double[] label;
+    double[] tail;
+    double[] vector;
+    double[][] matrix;
+
+    @Setup
+    public void setup(){
+        helper = new Helper();
+        head = helper.norm(helper.initVector(k));
+        label = helper.norm(helper.initVector(k));
+        tail = helper.norm(helper.initVector(k));
+        vector = helper.initVector(k);
+        matrix = helper.identityMatrix(k, k);
+    }
+
+    @Benchmark
+    public double distanceL1(){
+        return helper.distanceL1(head, label, tail, k);
+    }
+
+    @Benchmark
+    public double distanceL2(){
+        return helper.distanceL2(head, label, tail, k);
+    }
+
+    @Benchmark
+    public double dotProduct(){
+        return helper.dotProduct(head, tail);
+    }
+
+    @Benchmark
+    public double[] norm(){
+        return helper.norm(vector);
+    }
+
+    @Benchmark
+    public double[] normalize(){
+        helper.normalize(vector, k);
+        return vector;
+    }
+
+    @Benchmark
+    public double euclideanDistance(){
+        return helper.euclideanDistance(head, tail);
+    }
+
+    @Benchmark
+    public double[] spaceProjection(){
+        return helper.spaceProjection(head, matrix);
+    }
+}
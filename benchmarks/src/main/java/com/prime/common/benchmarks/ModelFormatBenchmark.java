@@ -0,0 +1,117 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.io.BinaryModel;
+import com.prime.common.io.LoadModel;
+import com.prime.common.io.SerializeModelVectors;
+import com.prime.common.io.WriteModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * saving and loading an entity model, the old ObjectOutputStream format against the binary format
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelFormatBenchmark {
+
+    @Param({"100000", "1000000"})
+    int entitySize;
+
+    @Param({"100"})
+    int k;
+
+    EmbeddingTable table;
+    Map<String, Integer> entity2Id;
+    Map<String, double[]> entityMap;
+    File directory;
+    String serialized;
+    String binary;
+    String binary32;
+
+    @Setup
+    public void setup() throws IOException {
+        Helper helper = new Helper();
+        table = EmbeddingTable.create(entitySize, k);
+        entity2Id = new HashMap<String, Integer>();
+        entityMap = new HashMap<String, double[]>();
+        for (int i = 0; i < entitySize; i++){
+            table.setRow(i, helper.initVector(k));
+            entity2Id.put("entity_" + i, i);
+            entityMap.put("entity_" + i, table.row(i));
+        }
+        directory = File.createTempFile("model-format", "");
+        directory.delete();
+        directory.mkdirs();
+        serialized = new File(directory, "entity.ser").getPath();
+        binary = new File(directory, "entity.bin").getPath();
+        binary32 = new File(directory, "entity32.bin").getPath();
+        new WriteModel().write(serialized, new SerializeModelVectors(entityMap));
+        new WriteModel().writeBinary(binary, entity2Id, table);
+        new WriteModel().writeBinary(binary32, entity2Id, table, true);
+    }
+
+    @TearDown
+    public void tearDown(){
+        for (File file : directory.listFiles()){
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void writeSerialized(){
+        new WriteModel().write(serialized, new SerializeModelVectors(entityMap));
+    }
+
+    @Benchmark
+    public void writeBinary(){
+        new WriteModel().writeBinary(binary, entity2Id, table);
+    }
+
+    @Benchmark
+    public void writeBinary32(){
+        new WriteModel().writeBinary(binary32, entity2Id, table, true);
+    }
+
+    @Benchmark
+    public Map<String, double[]> loadSerialized(){
+        return new LoadModel().load(serialized);
+    }
+
+    @Benchmark
+    public BinaryModel mapBinary() throws IOException {
+        return new LoadModel().loadBinary(binary);
+    }
+
+    @Benchmark
+    public BinaryModel mapBinary32() throws IOException {
+        return new LoadModel().loadBinary(binary32);
+    }
+
+    @Benchmark
+    public Map<String, double[]> loadBinaryToMap(){
+        return new LoadModel().load(binary);
+    }
+}
@@ -0,0 +1,181 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.IndexedRelationBatchKernel;
+import com.prime.common.computinghelper.RelationBatchKernel;
+import com.prime.common.computinghelper.TripleKernel;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.embedding.TransD;
+import com.prime.common.embedding.TransE;
+import com.prime.common.embedding.TransH;
+import com.prime.common.embedding.TransSparseX;
+import com.prime.common.embedding.XTransR;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * sgd steps of every model on one thread, one benchmark operation is a mini-batch of batchSize triples. Corrupted triples are drawn in the
+ * setup so only the model's update is measured. batch runs the per triple update, byRelation the path of ParallelTrainer for a
+ * RelationBatchKernel (TransR, TransSparse, CTransR): the mini-batch sorted by relation in the setup, every relation group copied to the
+ * group arrays and handed to updateRelation, with the triple indices for CTransR. Models without relation batches run the per triple update
+ * in byRelation too. Run with -prof gc to see the allocation per step. k 1024 with 1000000 entities needs about 8 GB of heap per table,
+ * restrict the parameters with -p for smaller machines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelUpdateBenchmark {
+
+    final static int TRIPLE_SIZE = 100000;
+    final static int RELATION_SIZE = 100;
+    final static double LEARNING_RATE = 0.01;
+    final static double MARGIN = 1;
+    final static int CLUSTERS = 3;
+    final static int CLUSTER_EPOCHS = 10;
+
+    @Param({"TransE", "TransH", "TransD", "TransR", "CTransR", "TransSparseShare", "TransSparseSeparate"})
+    String model;
+
+    @Param({"50", "100", "200", "400", "1024"})
+    int k;
+
+    @Param({"100", "1000"})
+    int batchSize;
+
+    @Param({"10000", "1000000"})
+    int entitySize;
+
+    TripleStore triples;
+    int[] corrupted;
+    boolean[] corruptHead;
+    TripleKernel<double[][]> kernel;
+    double[][] scratch;
+    int position;
+    int[] order; // triple indices, every mini-batch sorted by relation
+    int[][] group; // head, tail, corrupted head, corrupted tail, triple index of a relation group
+
+    @Setup
+    public void setup(){
+        triples = RandomTriples.create(TRIPLE_SIZE, entitySize, RELATION_SIZE, 42);
+        Random random = new Random(42);
+        corrupted = new int[TRIPLE_SIZE];
+        corruptHead = new boolean[TRIPLE_SIZE];
+        for (int i = 0; i < TRIPLE_SIZE; i++){
+            corrupted[i] = random.nextInt(entitySize);
+            corruptHead[i] = random.nextBoolean();
+        }
+        order = new int[TRIPLE_SIZE];
+        for (int start = 0; start < TRIPLE_SIZE; start = start + batchSize){
+            int end = Math.min(start + batchSize, TRIPLE_SIZE);
+            long[] keys = new long[end - start];
+            for (int i = start; i < end; i++){
+                keys[i - start] = ((long) triples.relation(i) << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = start; i < end; i++){
+                order[i] = (int) keys[i - start];
+            }
+        }
+        group = new int[5][batchSize];
+        kernel = kernel();
+        scratch = kernel.newScratch();
+        position = 0;
+    }
+
+    private TripleKernel<double[][]> kernel(){
+        if (model.equals("TransE")){
+            TransE transE = new TransE();
+            transE.initialize(entitySize, RELATION_SIZE, k);
+            return transE.kernel(MARGIN, LEARNING_RATE, false, k);
+        } else if (model.equals("TransH")){
+            TransH transH = new TransH();
+            transH.initialize(entitySize, RELATION_SIZE, k);
+            return transH.kernel(MARGIN, LEARNING_RATE, 0.25, k);
+        } else if (model.equals("TransD")){
+            TransD transD = new TransD();
+            transD.initialize(entitySize, k, RELATION_SIZE, k);
+            return transD.kernel(LEARNING_RATE, MARGIN, k, k);
+        }
+        TransE transE = new TransE();
+        transE.initialize(entitySize, RELATION_SIZE, k);
+        if (model.equals("TransR")){
+            XTransR transR = new XTransR(false);
+            transR.initialize(transE.getEntityVectors(), transE.getRelationVectors(), k, k);
+            return transR.kernel(LEARNING_RATE, k, k, MARGIN, 0);
+        } else if (model.equals("CTransR")){
+            XTransR cTransR = new XTransR(true);
+            cTransR.initializeC(transE.getEntityVectors(), transE.getRelationVectors(), RELATION_SIZE, triples, CLUSTERS, CLUSTER_EPOCHS, k, k);
+            return cTransR.kernel(LEARNING_RATE, k, k, MARGIN, 0.001);
+        }
+        TransSparseX transSparse = new TransSparseX(model.equals("TransSparseSeparate"));
+        transSparse.initialize(transE.getEntityVectors(), transE.getRelationVectors(), k, triples, RELATION_SIZE, 0.5);
+        return transSparse.kernel(LEARNING_RATE, MARGIN, k, false);
+    }
+
+    @Benchmark
+    public double[][] batch(){
+        for (int b = 0; b < batchSize; b++){
+            int i = position;
+            int head = triples.head(i);
+            int tail = triples.tail(i);
+            if (corruptHead[i]){
+                kernel.update(head, triples.relation(i), tail, corrupted[i], tail, scratch);
+            } else {
+                kernel.update(head, triples.relation(i), tail, head, corrupted[i], scratch);
+            }
+            position = i + 1 == TRIPLE_SIZE ? 0 : i + 1;
+        }
+        return scratch;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public double[][] byRelation(){
+        if (!(kernel instanceof RelationBatchKernel)){
+            return batch();
+        }
+        RelationBatchKernel<double[][]> batchKernel = (RelationBatchKernel<double[][]>) kernel;
+        IndexedRelationBatchKernel<double[][]> indexedKernel = kernel instanceof IndexedRelationBatchKernel
+                ? (IndexedRelationBatchKernel<double[][]>) kernel : null;
+        int end = Math.min(position + batchSize, TRIPLE_SIZE);
+        int start = position;
+        while (start < end){
+            int relation = triples.relation(order[start]);
+            int size = 0;
+            while (start + size < end && triples.relation(order[start + size]) == relation){
+                int i = order[start + size];
+                int head = triples.head(i);
+                int tail = triples.tail(i);
+                group[0][size] = head;
+                group[1][size] = tail;
+                group[2][size] = corruptHead[i] ? corrupted[i] : head;
+                group[3][size] = corruptHead[i] ? tail : corrupted[i];
+                group[4][size] = i;
+                size ++;
+            }
+            if (indexedKernel != null){
+                indexedKernel.updateRelation(relation, group[4], group[0], group[1], group[2], group[3], size, scratch);
+            } else {
+                batchKernel.updateRelation(relation, group[0], group[1], group[2], group[3], size, scratch);
+            }
+            start = start + size;
+        }
+        position = end == TRIPLE_SIZE ? 0 : end;
+        return scratch;
+    }
+}
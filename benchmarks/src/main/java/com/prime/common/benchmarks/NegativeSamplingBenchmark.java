@@ -0,0 +1,82 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.NegativeSampling;
+import com.prime.common.computinghelper.TripleStore;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * corruption of one mini-batch: the list based generateUnif/generateBern and the TripleStore path used by ParallelTrainer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NegativeSamplingBenchmark {
+
+    final static int TRIPLE_SIZE = 100000;
+    final static int RELATION_SIZE = 100;
+
+    @Param({"100", "1000", "10000"})
+    int batchSize;
+
+    @Param({"10000", "1000000"})
+    int entitySize;
+
+    NegativeSampling sample;
+    Random random;
+    TripleStore store;
+    ArrayList<Triple<Integer, Integer, Integer>> triples;
+    ArrayList<Triple<Integer, Integer, Integer>> miniBatch;
+
+    @Setup
+    public void setup(){
+        sample = new NegativeSampling();
+        random = new Random(42);
+        store = RandomTriples.create(TRIPLE_SIZE, entitySize, RELATION_SIZE, 42);
+        triples = store.toTriples();
+        miniBatch = new ArrayList<Triple<Integer, Integer, Integer>>(triples.subList(0, batchSize));
+        sample.fitBern(triples, RELATION_SIZE);
+        sample.fitBern(store, RELATION_SIZE);
+    }
+
+    @Benchmark
+    public ArrayList<Pair<Triple<Integer, Integer, Integer>, Triple<Integer, Integer, Integer>>> generateUnif(){
+        return sample.generateUnif(miniBatch, entitySize, random);
+    }
+
+    @Benchmark
+    public ArrayList<Triple<Integer, Integer, Integer>> generateBern(){
+        return sample.generateBern(miniBatch, entitySize, triples, RELATION_SIZE, random);
+    }
+
+    @Benchmark
+    public void corruptBern(Blackhole blackhole){
+        for (int i = 0; i < batchSize; i++){
+            int relation = store.relation(i);
+            if (sample.corruptHead(relation)){
+                blackhole.consume(sample.corruptEntity(store.head(i), entitySize, random));
+            } else {
+                blackhole.consume(sample.corruptEntity(store.tail(i), entitySize, random));
+            }
+        }
+    }
+}
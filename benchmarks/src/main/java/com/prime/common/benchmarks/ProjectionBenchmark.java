@@ -0,0 +1,104 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.Gemm;
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.computinghelper.SparseMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * projection of the 4 * group vectors of a relation group (head, tail and corrupted entities), one matrix-vector product per vector against
+ * the batched products of Gemm (TransR) and SparseMatrix (TransSparse, theta 0.5). One operation is a whole group
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    @Param({"50", "100", "200"})
+    int k;
+
+    @Param({"4", "40"})
+    int group;
+
+    Helper helper;
+    double[][] matrix;
+    double[][] vectors;
+    double[] batch;
+    double[] transposedBatch;
+    double[] result;
+    double[][] work;
+    SparseMatrix sparseMatrix;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(42);
+        helper = new Helper();
+        matrix = new double[k][k];
+        for (double[] row : matrix){
+            for (int j = 0; j < k; j++){
+                row[j] = random.nextGaussian();
+            }
+        }
+        int count = 4 * group;
+        vectors = new double[count][];
+        batch = new double[count * k];
+        transposedBatch = new double[count * k];
+        for (int i = 0; i < count; i++){
+            vectors[i] = helper.initVector(k);
+            for (int j = 0; j < k; j++){
+                batch[i * k + j] = vectors[i][j];
+                transposedBatch[j * count + i] = vectors[i][j];
+            }
+        }
+        result = new double[count * k];
+        work = new double[4][k];
+        sparseMatrix = SparseMatrix.unstructured(k, k * k / 2 - k, random);
+    }
+
+    @Benchmark
+    public double denseMatrixVector(){
+        double sum = 0;
+        for (double[] vector : vectors){
+            sum = sum + helper.spaceProjection(vector, matrix)[0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double[] denseBatch(){
+        Gemm.multiply(batch, vectors.length, matrix, result, work);
+        return result;
+    }
+
+    @Benchmark
+    public double sparseMatrixVector(){
+        double sum = 0;
+        for (double[] vector : vectors){
+            sparseMatrix.multiply(vector, work[0]);
+            sum = sum + work[0][0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double[] sparseBatch(){
+        sparseMatrix.multiplyBlock(transposedBatch, vectors.length, result);
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.TripleStore;
+
+import java.util.Random;
+
+/**
+ * uniformly random triples for the micro benchmarks
+ */
+class RandomTriples {
+
+    static TripleStore create(int count, int entitySize, int relationSize, long seed){
+        Random random = new Random(seed);
+        TripleStore triples = new TripleStore(count);
+        for (int i = 0; i < count; i++){
+            triples.add(random.nextInt(entitySize), random.nextInt(relationSize), random.nextInt(entitySize));
+        }
+        return triples;
+    }
+}
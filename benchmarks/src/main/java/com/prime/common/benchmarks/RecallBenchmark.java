@@ -0,0 +1,116 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.io.BinaryModel;
+import com.prime.common.io.LoadModel;
+import com.prime.common.similarity.HnswIndex;
+import com.prime.common.similarity.Metric;
+import com.prime.common.similarity.NearestNeighbors;
+import com.prime.common.similarity.Neighbor;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * recall@k and latency of the approximate index compared to exact search, for tuning m, efConstruction and efSearch. The index saved next to
+ * the model is reused when it was built with the same m and efConstruction, otherwise it is rebuilt and overwritten
+ *
+ * usage: RecallBenchmark entityModelFile [k] [queries] [m] [efConstruction] [efSearch,efSearch,...]
+ */
+public class RecallBenchmark {
+
+    private final static Logger logger = Logger.getLogger(RecallBenchmark.class);
+
+    /**
+     * run the queries against both searches
+     * @param index
+     * @param exact
+     * @param queries entity names
+     * @param k
+     * @return recall@k, the fraction of the exact top k found by the index
+     */
+    public static double recallAtK(HnswIndex index, NearestNeighbors exact, List<String> queries, int k){
+        List<List<Neighbor>> truth = exact.searchBatch(queries, k, index.getMetric());
+        long[] latencies = new long[queries.size()];
+        long found = 0;
+        long total = 0;
+        for (int q = 0; q < queries.size(); q++){
+            long start = System.nanoTime();
+            List<Neighbor> approximate = index.search(queries.get(q), k);
+            latencies[q] = System.nanoTime() - start;
+            Set<Integer> ids = new HashSet<Integer>();
+            for (Neighbor neighbor : approximate){
+                ids.add(neighbor.getId());
+            }
+            for (Neighbor neighbor : truth.get(q)){
+                if (ids.contains(neighbor.getId())){
+                    found ++;
+                }
+            }
+            total = total + truth.get(q).size();
+        }
+        Arrays.sort(latencies);
+        double recall = total == 0 ? 1 : (double) found / total;
+        logger.info("efSearch: " + index.getEfSearch() + "; Recall@" + k + ": " + recall + "; p50 ms: " + percentile(latencies, 0.5)
+                + "; p99 ms: " + percentile(latencies, 0.99));
+        return recall;
+    }
+
+    private static double percentile(long[] sorted, double p){
+        if (sorted.length == 0){
+            return 0;
+        }
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1){
+            System.err.println("usage: RecallBenchmark entityModelFile [k] [queries] [m] [efConstruction] [efSearch,efSearch,...]");
+            return;
+        }
+        String modelFile = args[0];
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int queryNumber = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int m = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int efConstruction = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+        String efSearches = args.length > 5 ? args[5] : "50,100,200,400";
+
+        BinaryModel model = new LoadModel().loadBinary(modelFile);
+        String indexFile = HnswIndex.indexFile(modelFile);
+        HnswIndex index = null;
+        if (new File(indexFile).exists()){
+            index = HnswIndex.load(indexFile, model);
+            if (index.getMetric() != Metric.COSINE || index.getM() != m || index.getEfConstruction() != efConstruction){
+                logger.info(indexFile + " was built with m " + index.getM() + ", efConstruction " + index.getEfConstruction() + ", rebuilding with m "
+                        + m + ", efConstruction " + efConstruction);
+                index = null;
+            }
+        }
+        if (index == null){
+            long start = System.nanoTime();
+            index = HnswIndex.build(model, Metric.COSINE, m, efConstruction);
+            logger.info("Built index in " + (System.nanoTime() - start) / 1000000 + " ms");
+            index.save(indexFile);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        NearestNeighbors exact = NearestNeighbors.fromModel(model, threads);
+        Random random = new Random(42);
+        List<String> queries = new ArrayList<String>(queryNumber);
+        for (int q = 0; q < queryNumber; q++){
+            queries.add(model.name(random.nextInt(model.rows())));
+        }
+        for (String ef : efSearches.split(",")){
+            index.setEfSearch(Integer.parseInt(ef.trim()));
+            recallAtK(index, exact, queries, k);
+        }
+        exact.shutdown();
+    }
+}
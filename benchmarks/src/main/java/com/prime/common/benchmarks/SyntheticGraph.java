@@ -0,0 +1,153 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.TripleStore;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * synthetic knowledge graph for reproducible benchmarks. Entity degrees follow a power law and relation frequencies a zipf distribution, like
+ * real knowledge graphs where a few hub entities and relations dominate. Popularity ranks are shuffled over the ids so hubs are not all stored
+ * next to each other. The same parameters and seed always give the same graph.
+ */
+public class SyntheticGraph {
+
+    final int entitySize;
+    final int relationSize;
+    final TripleStore triples;
+
+    /**
+     * @param entitySize
+     * @param relationSize
+     * @param tripleSize
+     * @param degreeExponent exponent of the entity degree distribution P(degree) ~ degree^-exponent, > 1, real graphs are around 2 to 3
+     * @param relationSkew zipf exponent of the relation frequencies, 0 for uniform relations
+     * @param seed
+     */
+    public SyntheticGraph(int entitySize, int relationSize, int tripleSize, double degreeExponent, double relationSkew, long seed){
+        if (degreeExponent <= 1){
+            throw new IllegalArgumentException("degreeExponent must be > 1");
+        }
+        this.entitySize = entitySize;
+        this.relationSize = relationSize;
+        Random random = new Random(seed);
+        double[] entityCdf = zipfCdf(entitySize, 1 / (degreeExponent - 1)); // a zipf rank exponent s gives degree exponent 1 + 1/s
+        double[] relationCdf = zipfCdf(relationSize, relationSkew);
+        int[] entityIds = permutation(entitySize, random);
+        int[] relationIds = permutation(relationSize, random);
+        this.triples = new TripleStore(tripleSize);
+        for (int i = 0; i < tripleSize; i++){
+            int head = entityIds[draw(entityCdf, random)];
+            int tail = entityIds[draw(entityCdf, random)];
+            while (tail == head && entitySize > 1){
+                tail = entityIds[draw(entityCdf, random)];
+            }
+            triples.add(head, relationIds[draw(relationCdf, random)], tail);
+        }
+    }
+
+    private static double[] zipfCdf(int size, double exponent){
+        double[] cdf = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++){
+            sum = sum + Math.pow(i + 1, -exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < size; i++){
+            cdf[i] = cdf[i] / sum;
+        }
+        return cdf;
+    }
+
+    private static int draw(double[] cdf, Random random){
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (cdf[middle] < u){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int[] permutation(int size, Random random){
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++){
+            ids[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int temp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = temp;
+        }
+        return ids;
+    }
+
+    public TripleStore getTriples() {
+        return triples;
+    }
+
+    public int getEntitySize() {
+        return entitySize;
+    }
+
+    public int getRelationSize() {
+        return relationSize;
+    }
+
+    public String entityName(int id){
+        return "entity_" + id;
+    }
+
+    public String relationName(int id){
+        return "relation_" + id;
+    }
+
+    public Map<String, Integer> entity2Id(){
+        Map<String, Integer> map = new HashMap<String, Integer>(entitySize * 2);
+        for (int i = 0; i < entitySize; i++){
+            map.put(entityName(i), i);
+        }
+        return map;
+    }
+
+    public Map<String, Integer> relation2Id(){
+        Map<String, Integer> map = new HashMap<String, Integer>(relationSize * 2);
+        for (int i = 0; i < relationSize; i++){
+            map.put(relationName(i), i);
+        }
+        return map;
+    }
+
+    /**
+     * write the triples as a tab separated file, e.g. to benchmark loading
+     * @param outputFile
+     * @throws IOException
+     */
+    public void writeTsv(String outputFile) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8), 1 << 16);
+        try {
+            for (int i = 0; i < triples.size(); i++){
+                writer.write(entityName(triples.head(i)));
+                writer.write('\t');
+                writer.write(relationName(triples.relation(i)));
+                writer.write('\t');
+                writer.write(entityName(triples.tail(i)));
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.MatrixConstraint;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.embedding.TransD;
+import com.prime.common.embedding.TransE;
+import com.prime.common.embedding.TransH;
+import com.prime.common.embedding.TransSparseX;
+import com.prime.common.embedding.XTransR;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * end-to-end training throughput of every model on a synthetic graph. Each model runs its full learn() (initialization, training, saving) and
+ * the report has wall time, triples/sec, peak heap and gc time per model, written as csv and json.
+ *
+ * usage: TrainingBenchmark [key=value ...], keys and defaults:
+ * entities=100000 relations=1000 triples=1000000 degreeExponent=2.1 relationSkew=1.0 seed=42 k=50 epochs=3 batch=1000 threads=all cores
+ * precision=FLOAT64 (or FLOAT32) constraint=SPECTRAL (TransR matrices: SVD, SPECTRAL or ROW_NORM)
+ * models=TransE,TransH,TransD,TransR,CTransR,TransSparseShare,TransSparseSeparate output=training-report
+ */
+public class TrainingBenchmark {
+
+    private final static Logger logger = Logger.getLogger(TrainingBenchmark.class);
+    final static double LEARNING_RATE = 0.01;
+    final static double MARGIN = 1;
+
+    final Map<String, String> options;
+    final SyntheticGraph graph;
+    final Map<String, Integer> entity2Id;
+    final Map<String, Integer> relation2Id;
+    final int k;
+    final int epochs;
+    final int batchSize;
+    final int threads;
+    final Precision precision;
+    final MatrixConstraint constraint;
+    final File outputDirectory;
+    EmbeddingTable transEEntityVectors;
+    EmbeddingTable transERelationVectors;
+
+    public TrainingBenchmark(Map<String, String> options) throws IOException {
+        this.options = options;
+        this.graph = new SyntheticGraph(intOption("entities", 100000), intOption("relations", 1000), intOption("triples", 1000000),
+                doubleOption("degreeExponent", 2.1), doubleOption("relationSkew", 1.0), intOption("seed", 42));
+        this.entity2Id = graph.entity2Id();
+        this.relation2Id = graph.relation2Id();
+        this.k = intOption("k", 50);
+        this.epochs = intOption("epochs", 3);
+        this.batchSize = intOption("batch", 1000);
+        this.threads = intOption("threads", Runtime.getRuntime().availableProcessors());
+        this.precision = Precision.valueOf(options.containsKey("precision") ? options.get("precision") : "FLOAT64");
+        this.constraint = MatrixConstraint.valueOf(options.containsKey("constraint") ? options.get("constraint") : "SPECTRAL");
+        this.outputDirectory = File.createTempFile("training-benchmark", "");
+        outputDirectory.delete();
+        outputDirectory.mkdirs();
+    }
+
+    private int intOption(String key, int defaultValue){
+        return options.containsKey(key) ? Integer.parseInt(options.get(key)) : defaultValue;
+    }
+
+    private double doubleOption(String key, double defaultValue){
+        return options.containsKey(key) ? Double.parseDouble(options.get(key)) : defaultValue;
+    }
+
+    private String output(String name){
+        return new File(outputDirectory, name).getPath();
+    }
+
+    /**
+     * XTransR and TransSparseX start from TransE vectors, train them once and give every model its own copy
+     */
+    private void pretrainTransE() throws IOException {
+        if (transEEntityVectors == null){
+            TransE transE = new TransE(threads, precision);
+            transE.learn(graph.getTriples(), null, graph.getEntitySize(), graph.getRelationSize(), entity2Id, relation2Id, LEARNING_RATE, MARGIN,
+                    k, false, batchSize, 1, output("pretrain_entity"), output("pretrain_relation"));
+            transEEntityVectors = transE.getEntityVectors();
+            transERelationVectors = transE.getRelationVectors();
+        }
+    }
+
+    private void learn(String model) throws IOException {
+        TripleStore triples = graph.getTriples();
+        int entitySize = graph.getEntitySize();
+        int relationSize = graph.getRelationSize();
+        if (model.equals("TransE")){
+            new TransE(threads, precision).learn(triples, null, entitySize, relationSize, entity2Id, relation2Id, LEARNING_RATE, MARGIN, k, false,
+                    batchSize, epochs, output("entity"), output("relation"));
+        } else if (model.equals("TransH")){
+            new TransH(threads, precision).learn(triples, null, entitySize, relationSize, entity2Id, relation2Id, MARGIN, LEARNING_RATE, 0.25, k,
+                    batchSize, epochs, output("entity"), output("relation"));
+        } else if (model.equals("TransD")){
+            new TransD(threads, precision).learn(triples, null, entitySize, relationSize, entity2Id, relation2Id, MARGIN, LEARNING_RATE, k, k,
+                    batchSize, epochs, output("entity"), output("relation"));
+        } else if (model.equals("TransR") || model.equals("CTransR")){
+            new XTransR(model.equals("CTransR"), threads, constraint).learn(triples, null, transEEntityVectors.copy(), transERelationVectors.copy(),
+                    relationSize, entitySize, LEARNING_RATE, MARGIN, k, k, 0.1, 4, 5, epochs, batchSize, output("entity"), output("relation"),
+                    output("relationC"), entity2Id, relation2Id);
+        } else if (model.equals("TransSparseShare") || model.equals("TransSparseSeparate")){
+            new TransSparseX(model.equals("TransSparseSeparate"), threads).learn(triples, null, entitySize, relationSize,
+                    transEEntityVectors.copy(), transERelationVectors.copy(), entity2Id, relation2Id, MARGIN, LEARNING_RATE, 0.5, k, batchSize,
+                    epochs, false, output("entity"), output("relation"));
+        } else {
+            throw new IllegalArgumentException("unknown model " + model);
+        }
+    }
+
+    /**
+     * train one model and measure it
+     * @param model
+     * @return report row
+     */
+    public Map<String, Object> run(String model){
+        Map<String, Object> row = new LinkedHashMap<String, Object>();
+        row.put("model", model);
+        row.put("entities", graph.getEntitySize());
+        row.put("relations", graph.getRelationSize());
+        row.put("triples", graph.getTriples().size());
+        row.put("k", k);
+        row.put("epochs", epochs);
+        row.put("batch", batchSize);
+        row.put("threads", threads);
+        row.put("precision", precision);
+        row.put("constraint", constraint);
+        try {
+            if (model.equals("TransR") || model.equals("CTransR") || model.startsWith("TransSparse")){
+                pretrainTransE(); // not part of the measurement
+            }
+            System.gc();
+            List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+                if (pool.getType() == MemoryType.HEAP){
+                    pool.resetPeakUsage();
+                    pools.add(pool);
+                }
+            }
+            long gcTime = gcTime();
+            long gcCount = gcCount();
+            long start = System.nanoTime();
+            learn(model);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long peakHeap = 0;
+            for (MemoryPoolMXBean pool : pools){
+                peakHeap = peakHeap + pool.getPeakUsage().getUsed();
+            }
+            row.put("wallSeconds", seconds);
+            row.put("triplesPerSecond", (double) graph.getTriples().size() * epochs / seconds);
+            row.put("peakHeapMB", peakHeap / (1024d * 1024d));
+            row.put("gcSeconds", (gcTime() - gcTime) / 1000d);
+            row.put("gcCount", gcCount() - gcCount);
+            row.put("status", "ok");
+        } catch (Exception | Error e) {
+            logger.error(model + ": " + e);
+            row.put("status", "failed: " + e);
+        }
+        logger.info(row);
+        return row;
+    }
+
+    private static long gcTime(){
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            time = time + Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static long gcCount(){
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            count = count + Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    public void cleanUp(){
+        File[] files = outputDirectory.listFiles();
+        if (files != null){
+            for (File file : files){
+                file.delete();
+            }
+        }
+        outputDirectory.delete();
+    }
+
+    static void writeCsv(List<Map<String, Object>> rows, String outputFile) throws IOException {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8));
+        try {
+            List<String> columns = columns(rows);
+            writer.println(String.join(",", columns));
+            for (Map<String, Object> row : rows){
+                List<String> values = new ArrayList<String>();
+                for (String column : columns){
+                    Object value = row.get(column);
+                    String text = value == null ? "" : format(value);
+                    values.add(text.contains(",") || text.contains("\"") ? "\"" + text.replace("\"", "\"\"") + "\"" : text);
+                }
+                writer.println(String.join(",", values));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    static void writeJson(List<Map<String, Object>> rows, String outputFile) throws IOException {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8));
+        try {
+            writer.println("[");
+            for (int r = 0; r < rows.size(); r++){
+                StringBuilder line = new StringBuilder("  {");
+                int c = 0;
+                for (Map.Entry<String, Object> entry : rows.get(r).entrySet()){
+                    if (c ++ > 0){
+                        line.append(", ");
+                    }
+                    line.append('"').append(entry.getKey()).append("\": ");
+                    Object value = entry.getValue();
+                    if (value instanceof Number){
+                        line.append(format(value));
+                    } else {
+                        line.append('"').append(value.toString().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+                    }
+                }
+                line.append(r + 1 < rows.size() ? "}," : "}");
+                writer.println(line);
+            }
+            writer.println("]");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static List<String> columns(List<Map<String, Object>> rows){
+        List<String> columns = new ArrayList<String>();
+        for (Map<String, Object> row : rows){
+            for (String key : row.keySet()){
+                if (!columns.contains(key)){
+                    columns.add(key);
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static String format(Object value){
+        if (value instanceof Double){
+            return String.format(Locale.ROOT, "%.3f", (Double) value);
+        }
+        return value.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for (String arg : args){
+            int split = arg.indexOf('=');
+            if (split < 0){
+                throw new IllegalArgumentException("expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, split), arg.substring(split + 1));
+        }
+        String models = options.containsKey("models") ? options.get("models") : "TransE,TransH,TransD,TransR,CTransR,TransSparseShare,TransSparseSeparate";
+        String output = options.containsKey("output") ? options.get("output") : "training-report";
+
+        TrainingBenchmark benchmark = new TrainingBenchmark(options);
+        List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+        try {
+            for (String model : models.split(",")){
+                rows.add(benchmark.run(model.trim()));
+            }
+        } finally {
+            benchmark.cleanUp();
+        }
+        writeCsv(rows, output + ".csv");
+        writeJson(rows, output + ".json");
+    }
+}
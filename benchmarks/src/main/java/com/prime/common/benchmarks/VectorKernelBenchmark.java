@@ -0,0 +1,74 @@
+package com.prime.common.benchmarks;
+
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.computinghelper.VectorKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * scalar against vector api kernels by embedding dimension, needs jdk 17+ (the fork adds the jdk.incubator.vector module)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorKernelBenchmark {
+
+    @Param({"scalar", "simd"})
+    String kernels;
+
+    @Param({"100", "200", "400"})
+    int k;
+
+    VectorKernels vectorKernels;
+    double[] head;
+    double[] label;
+    double[] tail;
+
+    @Setup
+    public void setup(){
+        vectorKernels = kernels.equals("simd") ? VectorKernels.simd() : VectorKernels.scalar();
+        Helper helper = new Helper();
+        head = helper.initVector(k);
+        label = helper.initVector(k);
+        tail = helper.initVector(k);
+    }
+
+    @Benchmark
+    public double dot(){
+        return vectorKernels.dot(head, 0, tail, 0, k);
+    }
+
+    @Benchmark
+    public double squaredNorm(){
+        return vectorKernels.squaredNorm(head, 0, k);
+    }
+
+    @Benchmark
+    public double squaredDistance(){
+        return vectorKernels.squaredDistance(head, tail, k);
+    }
+
+    @Benchmark
+    public double distanceL1(){
+        return vectorKernels.distanceL1(head, label, tail, k);
+    }
+
+    @Benchmark
+    public double distanceL2(){
+        return vectorKernels.distanceL2(head, label, tail, k);
+    }
+}
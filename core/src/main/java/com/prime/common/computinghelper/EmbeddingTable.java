@@ -0,0 +1,269 @@
+package com.prime.common.computinghelper;
+
+import java.util.List;
+
+/**
+ * flat row-major storage for entity and relation embeddings. Rows are packed contiguously into large primitive pages instead of one double[] per row,
+ * so there is no object header or pointer chase per row. A page holds a power of two number of rows, which keeps the row lookup a shift and a mask
+ * and still allows tables bigger than a single java array. A FLOAT32 table keeps float pages instead of double pages, half the memory; rows are
+ * still read and written as double[], so the models do not care which one they get.
+ */
+public class EmbeddingTable {
+
+    final static int MAX_PAGE_SIZE = 1 << 24; // number of values per page (128MB of doubles)
+    final int rows;
+    final int dim;
+    final Precision precision;
+    final int pageShift;
+    final int pageMask;
+    final double[][] pages;
+    final float[][] floatPages;
+
+    private EmbeddingTable(int rows, int dim, Precision precision){
+        if (precision == Precision.BFLOAT16){
+            throw new IllegalArgumentException("bfloat16 is a storage precision, tables are float32 or float64");
+        }
+        this.rows = rows;
+        this.dim = dim;
+        this.precision = precision;
+        int shift = 0;
+        while (shift < 30 && ((long) dim << (shift + 1)) <= MAX_PAGE_SIZE){
+            shift ++;
+        }
+        this.pageShift = shift;
+        this.pageMask = (1 << shift) - 1;
+        int rowsPerPage = 1 << shift;
+        int pageNumber = (rows + rowsPerPage - 1) / rowsPerPage;
+        this.pages = precision == Precision.FLOAT64 ? new double[pageNumber][] : null;
+        this.floatPages = precision == Precision.FLOAT32 ? new float[pageNumber][] : null;
+        for (int i = 0; i < pageNumber; i++){
+            int pageRows = Math.min(rowsPerPage, rows - i * rowsPerPage);
+            if (pages != null){
+                pages[i] = new double[pageRows * dim];
+            } else {
+                floatPages[i] = new float[pageRows * dim];
+            }
+        }
+    }
+
+    /**
+     * create an empty float64 table
+     * @param rows number of entities or relations
+     * @param dim embedding dimension
+     * @return table filled with zeros
+     */
+    public static EmbeddingTable create(int rows, int dim){
+        return new EmbeddingTable(rows, dim, Precision.FLOAT64);
+    }
+
+    /**
+     * create an empty table
+     * @param rows number of entities or relations
+     * @param dim embedding dimension
+     * @param precision FLOAT64 or FLOAT32
+     * @return table filled with zeros
+     */
+    public static EmbeddingTable create(int rows, int dim, Precision precision){
+        return new EmbeddingTable(rows, dim, precision);
+    }
+
+    /**
+     * create a table from a list of vectors, e.g. vectors loaded from an older model
+     * @param vectors
+     * @return table holding a copy of the vectors
+     */
+    public static EmbeddingTable fromRows(List<double[]> vectors){
+        int dim = vectors.isEmpty() ? 0 : vectors.get(0).length;
+        EmbeddingTable table = new EmbeddingTable(vectors.size(), dim, Precision.FLOAT64);
+        for (int i = 0; i < vectors.size(); i++){
+            table.setRow(i, vectors.get(i));
+        }
+        return table;
+    }
+
+    public int rows(){
+        return rows;
+    }
+
+    public int dim(){
+        return dim;
+    }
+
+    public Precision precision(){
+        return precision;
+    }
+
+    /**
+     * the page holding a row, use together with offset(row) for direct access
+     * @param row
+     * @return backing array of the row
+     * @throws UnsupportedOperationException for a float32 table, use floatPage(row)
+     */
+    public double[] page(int row){
+        return doublePages()[row >>> pageShift];
+    }
+
+    /**
+     * the page holding a row of a float32 table
+     * @param row
+     * @return backing array of the row
+     * @throws UnsupportedOperationException for a float64 table, use page(row)
+     */
+    public float[] floatPage(int row){
+        return floatPages()[row >>> pageShift];
+    }
+
+    /**
+     * offset of the first element of a row inside its page
+     * @param row
+     * @return offset
+     */
+    public int offset(int row){
+        return (row & pageMask) * dim;
+    }
+
+    public int pageCount(){
+        return pages != null ? pages.length : floatPages.length;
+    }
+
+    public double[] pageAt(int index){
+        return doublePages()[index];
+    }
+
+    public float[] floatPageAt(int index){
+        return floatPages()[index];
+    }
+
+    private double[][] doublePages(){
+        if (pages == null){
+            throw new UnsupportedOperationException("float32 table has float pages");
+        }
+        return pages;
+    }
+
+    private float[][] floatPages(){
+        if (floatPages == null){
+            throw new UnsupportedOperationException("float64 table has double pages");
+        }
+        return floatPages;
+    }
+
+    /**
+     * number of rows stored per page, every page except the last is full
+     * @return rows per page
+     */
+    public int rowsPerPage(){
+        return 1 << pageShift;
+    }
+
+    public double get(int row, int i){
+        if (pages != null){
+            return pages[row >>> pageShift][(row & pageMask) * dim + i];
+        }
+        return floatPages[row >>> pageShift][(row & pageMask) * dim + i];
+    }
+
+    public void set(int row, int i, double value){
+        if (pages != null){
+            pages[row >>> pageShift][(row & pageMask) * dim + i] = value;
+        } else {
+            floatPages[row >>> pageShift][(row & pageMask) * dim + i] = (float) value;
+        }
+    }
+
+    /**
+     * copy a row into a new vector
+     * @param row
+     * @return copy of the row
+     */
+    public double[] row(int row){
+        double[] vector = new double[dim];
+        copyRow(row, vector);
+        return vector;
+    }
+
+    /**
+     * copy a row into an existing buffer of length >= dim, float32 values are widened
+     * @param row
+     * @param destination
+     */
+    public void copyRow(int row, double[] destination){
+        if (pages != null){
+            System.arraycopy(pages[row >>> pageShift], (row & pageMask) * dim, destination, 0, dim);
+            return;
+        }
+        float[] page = floatPages[row >>> pageShift];
+        int offset = (row & pageMask) * dim;
+        for (int i = 0; i < dim; i++){
+            destination[i] = page[offset + i];
+        }
+    }
+
+    /**
+     * copy a row into a buffer starting at offset, e.g. to gather a batch of rows into one array
+     * @param row
+     * @param destination
+     * @param offset
+     */
+    public void copyRow(int row, double[] destination, int offset){
+        if (pages != null){
+            System.arraycopy(pages[row >>> pageShift], (row & pageMask) * dim, destination, offset, dim);
+            return;
+        }
+        float[] page = floatPages[row >>> pageShift];
+        int start = (row & pageMask) * dim;
+        for (int i = 0; i < dim; i++){
+            destination[offset + i] = page[start + i];
+        }
+    }
+
+    /**
+     * overwrite a row, values are rounded to float for a float32 table
+     * @param row
+     * @param source
+     */
+    public void setRow(int row, double[] source){
+        if (pages != null){
+            System.arraycopy(source, 0, pages[row >>> pageShift], (row & pageMask) * dim, dim);
+            return;
+        }
+        float[] page = floatPages[row >>> pageShift];
+        int offset = (row & pageMask) * dim;
+        for (int i = 0; i < dim; i++){
+            page[offset + i] = (float) source[i];
+        }
+    }
+
+    /**
+     * deep copy of the table
+     * @return copy
+     */
+    public EmbeddingTable copy(){
+        return copy(precision);
+    }
+
+    /**
+     * copy of the table in another precision
+     * @param precision FLOAT64 or FLOAT32
+     * @return copy
+     */
+    public EmbeddingTable copy(Precision precision){
+        EmbeddingTable table = new EmbeddingTable(rows, dim, precision);
+        if (precision == this.precision){
+            for (int i = 0; i < pageCount(); i++){
+                if (pages != null){
+                    System.arraycopy(pages[i], 0, table.pages[i], 0, pages[i].length);
+                } else {
+                    System.arraycopy(floatPages[i], 0, table.floatPages[i], 0, floatPages[i].length);
+                }
+            }
+            return table;
+        }
+        double[] vector = new double[dim];
+        for (int row = 0; row < rows; row++){
+            copyRow(row, vector);
+            table.setRow(row, vector);
+        }
+        return table;
+    }
+}
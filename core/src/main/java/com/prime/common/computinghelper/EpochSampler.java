@@ -0,0 +1,75 @@
+package com.prime.common.computinghelper;
+
+import java.util.Random;
+
+/**
+ * mini-batch sampling without replacement. The training set is shuffled once per epoch as a primitive permutation and every mini-batch is a
+ * slice of it, so sampling a batch costs nothing and every triple is visited exactly once per epoch.
+ */
+public class EpochSampler {
+
+    final int[] permutation;
+    final int batchSize;
+    final int batchNumber;
+
+    /**
+     * @param tripleSize number of training triples
+     * @param batchSize
+     */
+    public EpochSampler(int tripleSize, int batchSize){
+        this.permutation = new int[tripleSize];
+        for (int i = 0; i < tripleSize; i++){
+            permutation[i] = i;
+        }
+        this.batchSize = batchSize;
+        this.batchNumber = (tripleSize + batchSize - 1) / batchSize;
+    }
+
+    /**
+     * shuffle the permutation for a new epoch (Fisher-Yates)
+     * @param random
+     */
+    public void shuffle(Random random){
+        for (int i = permutation.length - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int temp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = temp;
+        }
+    }
+
+    public int getBatchNumber() {
+        return batchNumber;
+    }
+
+    public int getTripleSize() {
+        return permutation.length;
+    }
+
+    /**
+     * first position of a batch in the permutation
+     * @param batch
+     * @return start position, inclusive
+     */
+    public int batchStart(int batch){
+        return batch * batchSize;
+    }
+
+    /**
+     * last position of a batch in the permutation
+     * @param batch
+     * @return end position, exclusive
+     */
+    public int batchEnd(int batch){
+        return Math.min(permutation.length, (batch + 1) * batchSize);
+    }
+
+    /**
+     * triple index at a position of the permutation
+     * @param position
+     * @return triple index
+     */
+    public int tripleAt(int position){
+        return permutation[position];
+    }
+}
@@ -0,0 +1,161 @@
+package com.prime.common.computinghelper;
+
+import java.util.Arrays;
+
+/**
+ * dense matrix products for projecting a batch of vectors with one relation matrix. Batches are flat row-major arrays (vector i at offset
+ * i * length), matrices are double[][] rows. The products work on four vectors at a time, so every matrix row is loaded once per four vectors
+ * instead of once per vector. The four partial results are accumulated in separate work rows indexed from 0, the form the jit vectorizes
+ * (it does not vectorize loops over an array at a variable offset).
+ */
+public final class Gemm {
+
+    private Gemm(){
+    }
+
+    /**
+     * result = batch * matrix, every vector of the batch multiplied from the left with the matrix
+     * @param batch count x matrix.length
+     * @param count number of vectors
+     * @param matrix inner x columns
+     * @param result count x columns
+     * @param work at least four buffers of length >= columns, overwritten
+     */
+    public static void multiply(double[] batch, int count, double[][] matrix, double[] result, double[][] work){
+        int inner = matrix.length;
+        int columns = matrix[0].length;
+        double[] sum0 = work[0];
+        double[] sum1 = work[1];
+        double[] sum2 = work[2];
+        double[] sum3 = work[3];
+        int i = 0;
+        for (; i + 4 <= count; i += 4){
+            Arrays.fill(sum0, 0, columns, 0d);
+            Arrays.fill(sum1, 0, columns, 0d);
+            Arrays.fill(sum2, 0, columns, 0d);
+            Arrays.fill(sum3, 0, columns, 0d);
+            for (int p = 0; p < inner; p++){
+                double value0 = batch[i * inner + p];
+                double value1 = batch[(i + 1) * inner + p];
+                double value2 = batch[(i + 2) * inner + p];
+                double value3 = batch[(i + 3) * inner + p];
+                double[] row = matrix[p];
+                for (int j = 0; j < columns; j++){
+                    double value = row[j];
+                    sum0[j] += value0 * value;
+                    sum1[j] += value1 * value;
+                    sum2[j] += value2 * value;
+                    sum3[j] += value3 * value;
+                }
+            }
+            System.arraycopy(sum0, 0, result, i * columns, columns);
+            System.arraycopy(sum1, 0, result, (i + 1) * columns, columns);
+            System.arraycopy(sum2, 0, result, (i + 2) * columns, columns);
+            System.arraycopy(sum3, 0, result, (i + 3) * columns, columns);
+        }
+        for (; i < count; i++){
+            Arrays.fill(sum0, 0, columns, 0d);
+            for (int p = 0; p < inner; p++){
+                double value0 = batch[i * inner + p];
+                double[] row = matrix[p];
+                for (int j = 0; j < columns; j++){
+                    sum0[j] += value0 * row[j];
+                }
+            }
+            System.arraycopy(sum0, 0, result, i * columns, columns);
+        }
+    }
+
+    /**
+     * result = batch * transpose(matrix), every vector of the batch multiplied with the matrix from the right. Four dot products per matrix
+     * row run with independent sums
+     * @param batch count x matrix[0].length
+     * @param count number of vectors
+     * @param matrix rows x inner
+     * @param result count x rows
+     */
+    public static void multiplyTransposed(double[] batch, int count, double[][] matrix, double[] result){
+        int rows = matrix.length;
+        int inner = matrix[0].length;
+        int i = 0;
+        for (; i + 4 <= count; i += 4){
+            int offset0 = i * inner;
+            int offset1 = offset0 + inner;
+            int offset2 = offset1 + inner;
+            int offset3 = offset2 + inner;
+            for (int p = 0; p < rows; p++){
+                double[] row = matrix[p];
+                double sum0 = 0;
+                double sum1 = 0;
+                double sum2 = 0;
+                double sum3 = 0;
+                for (int j = 0; j < inner; j++){
+                    double value = row[j];
+                    sum0 += batch[offset0 + j] * value;
+                    sum1 += batch[offset1 + j] * value;
+                    sum2 += batch[offset2 + j] * value;
+                    sum3 += batch[offset3 + j] * value;
+                }
+                result[i * rows + p] = sum0;
+                result[(i + 1) * rows + p] = sum1;
+                result[(i + 2) * rows + p] = sum2;
+                result[(i + 3) * rows + p] = sum3;
+            }
+        }
+        for (; i < count; i++){
+            for (int p = 0; p < rows; p++){
+                double[] row = matrix[p];
+                double sum = 0;
+                for (int j = 0; j < inner; j++){
+                    sum += batch[i * inner + j] * row[j];
+                }
+                result[i * rows + p] = sum;
+            }
+        }
+    }
+
+    /**
+     * matrix += scale * transpose(left) * right, the sum of the outer products left_i * transpose(right_i) of the batch
+     * @param matrix rows x columns
+     * @param scale
+     * @param left count x rows
+     * @param right count x columns
+     * @param count number of vectors
+     * @param work at least four buffers of length >= columns, overwritten
+     */
+    public static void addTransposedProduct(double[][] matrix, double scale, double[] left, double[] right, int count, double[][] work){
+        int rows = matrix.length;
+        int columns = matrix[0].length;
+        double[] right0 = work[0];
+        double[] right1 = work[1];
+        double[] right2 = work[2];
+        double[] right3 = work[3];
+        int i = 0;
+        for (; i + 4 <= count; i += 4){
+            System.arraycopy(right, i * columns, right0, 0, columns);
+            System.arraycopy(right, (i + 1) * columns, right1, 0, columns);
+            System.arraycopy(right, (i + 2) * columns, right2, 0, columns);
+            System.arraycopy(right, (i + 3) * columns, right3, 0, columns);
+            for (int p = 0; p < rows; p++){
+                double value0 = scale * left[i * rows + p];
+                double value1 = scale * left[(i + 1) * rows + p];
+                double value2 = scale * left[(i + 2) * rows + p];
+                double value3 = scale * left[(i + 3) * rows + p];
+                double[] row = matrix[p];
+                for (int j = 0; j < columns; j++){
+                    row[j] += value0 * right0[j] + value1 * right1[j] + value2 * right2[j] + value3 * right3[j];
+                }
+            }
+        }
+        for (; i < count; i++){
+            System.arraycopy(right, i * columns, right0, 0, columns);
+            for (int p = 0; p < rows; p++){
+                double value0 = scale * left[i * rows + p];
+                double[] row = matrix[p];
+                for (int j = 0; j < columns; j++){
+                    row[j] += value0 * right0[j];
+                }
+            }
+        }
+    }
+}
@@ -7,11 +7,14 @@ import org.apache.commons.math3.linear.SingularValueDecomposition;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Random;
 
 public class Helper {
 
     final double epsilon = 1e-12;
+    final static VectorKernels kernels = VectorKernels.get();
    /**
      * initialize vectors from (-6/sqr k, 6/sqr k) within uniform distribution
      * @param k for com.prime.common.embedding dimensions
@@ -43,11 +46,7 @@ public class Helper {
      */
     public double[] norm(double[] vector){
         double[] result = new double[vector.length];
-        double sum = 0;
-        for (double number: vector){
-            sum = sum + Math.pow(number, 2d);
-        }
-
+        double sum = kernels.squaredNorm(vector, 0, vector.length);
         double denominator = Math.sqrt(sum);
 
         for (int i = 0; i < vector.length; i++){
@@ -57,6 +56,33 @@ public class Helper {
         return result;
     }
 
+    /**
+     * normalize the first k elements of a vector in place, no allocation
+     * @param vector
+     * @param k
+     */
+    public void normalize(double[] vector, int k){
+        double sum = kernels.squaredNorm(vector, 0, k);
+        double scale = 1 / Math.sqrt(sum);
+        for (int i = 0; i < k; i++){
+            vector[i] = vector[i] * scale;
+        }
+    }
+
+    /**
+     * normalize k elements of a vector in place, starting at offset
+     * @param vector
+     * @param offset
+     * @param k
+     */
+    public void normalize(double[] vector, int offset, int k){
+        double sum = kernels.squaredNorm(vector, offset, k);
+        double scale = 1 / Math.sqrt(sum);
+        for (int i = offset; i < offset + k; i++){
+            vector[i] = vector[i] * scale;
+        }
+    }
+
     /**
      * compute distance with L1 regulation
      * @param head
@@ -67,12 +93,7 @@ public class Helper {
      */
 
     public double distanceL1(double[] head, double[] label, double[] tail, int k){
-        double sum = 0;
-        for (int i = 0; i<k; i++){
-            double calNumber = tail[i] - head[i] - label[i];
-            sum = sum + Math.abs(calNumber);
-        }
-        return sum;
+        return kernels.distanceL1(head, label, tail, k);
     }
 
     /**
@@ -85,12 +106,7 @@ public class Helper {
      */
 
     public double distanceL2(double[] head, double[] label, double[] tail, int k){
-        double sum = 0;
-        for (int i = 0; i < k; i++){
-            double calNumber = tail[i] - head[i] - label[i];
-            sum = sum + calNumber * calNumber;
-        }
-        return sum;
+        return kernels.distanceL2(head, label, tail, k);
     }
 
     /**
@@ -101,19 +117,31 @@ public class Helper {
      */
 
     public ArrayList<Triple<Integer, Integer, Integer>> sample(ArrayList<Triple<Integer, Integer, Integer>> triples, int size){
-        ArrayList<Triple<Integer, Integer, Integer>> sBatch = new ArrayList<Triple<Integer, Integer, Integer>>();
-        ArrayList<Integer> randomIndex = new ArrayList<Integer>();
-        Random random = new Random();
+        return sample(triples, size, new Random());
+    }
+
+    /**
+     * sample a minibatch of size size with the given random generator, e.g. one per training thread
+     * @param triples
+     * @param size
+     * @param random
+     * @return minibatch for sgd
+     */
+
+    public ArrayList<Triple<Integer, Integer, Integer>> sample(ArrayList<Triple<Integer, Integer, Integer>> triples, int size, Random random){
+        ArrayList<Triple<Integer, Integer, Integer>> sBatch = new ArrayList<Triple<Integer, Integer, Integer>>(size);
         int tripleSize = triples.size();
+        int[] randomIndex = new int[size];
         for (int i = 0; i < size; i++){
-            int index = random.nextInt(tripleSize);
-            while (! randomIndex.contains(index)){
-                randomIndex.add(index);
-            }
+            randomIndex[i] = random.nextInt(tripleSize);
         }
-        for (int idx: randomIndex){
-            sBatch.add(triples.get(idx));
+        Arrays.sort(randomIndex); // duplicates are next to each other after sorting, O(size log size) instead of a list lookup per index
+        for (int i = 0; i < size; i++){
+            if (i == 0 || randomIndex[i] != randomIndex[i - 1]){
+                sBatch.add(triples.get(randomIndex[i]));
+            }
         }
+        Collections.shuffle(sBatch, random);
         return sBatch;
     }
 
@@ -125,12 +153,7 @@ public class Helper {
      */
 
     public Double dotProduct(double[] vector1, double[] vector2){
-        double sum =0;
-        for (int i=0; i<vector1.length; i++){
-            double temp = vector1[i] * vector2[i];
-            sum = sum + temp;
-        }
-        return sum;
+        return kernels.dot(vector1, 0, vector2, 0, vector1.length);
     }
 
     /**
@@ -167,23 +190,33 @@ public class Helper {
     }
 
     /**
-     * project a vector to a space
+     * project a vector to a space, vector * matrix for a k x d matrix
      * @param vector
      * @param matrix
      * @return project vector
      */
 
     public double[] spaceProjection(double[] vector, double[][] matrix){
-        double[] projectedVector = new double[vector.length];
-        for (int i =0; i < vector.length; i ++){
+        return spaceProjection(vector, matrix, new double[matrix[0].length]);
+    }
+
+    /**
+     * vector * matrix for a k x d matrix into a buffer, no allocation
+     * @param vector
+     * @param matrix
+     * @param result length >= d, the first d elements are overwritten
+     * @return result
+     */
+    public double[] spaceProjection(double[] vector, double[][] matrix, double[] result){
+        Arrays.fill(result, 0, matrix[0].length, 0d);
+        for (int i =0; i < matrix.length; i ++){
             double number = vector[i];
-            double sum = 0;
-            for (int j =0; j<matrix[0].length; j++){
-                sum = sum + number * matrix[i][j];
+            double[] row = matrix[i];
+            for (int j =0; j < row.length; j++){
+                result[j] = result[j] + number * row[j];
             }
-            projectedVector[i] = sum;
         }
-        return projectedVector;
+        return result;
     }
 
     /**
@@ -217,13 +250,73 @@ public class Helper {
         SingularValueDecomposition svd = new SingularValueDecomposition(MatrixUtils.createRealMatrix(matrix));
         double norm = svd.getNorm();
         for (int i = 0; i < matrix.length; i ++){
-            for (int j = 0; i < matrix[0].length; j++){
+            for (int j = 0; j < matrix[0].length; j++){
                 normedMatrix[i][j] = matrix[i][j] / norm;
             }
         }
         return normedMatrix;
     }
 
+    /**
+     * largest singular value of a dense matrix by power iteration on transpose(matrix) * matrix, the norm normMatrix gets from a full svd. The
+     * iteration starts from singularVector and leaves the new singular vector there, so a matrix changed by one sgd step converges in a couple
+     * of iterations
+     * @param matrix rows x columns
+     * @param singularVector length columns, start and result of the iteration
+     * @param columnBuffer buffer of length >= columns
+     * @param rowBuffer buffer of length >= rows
+     * @return spectral norm
+     */
+    public double spectralNorm(double[][] matrix, double[] singularVector, double[] columnBuffer, double[] rowBuffer){
+        int columns = matrix[0].length;
+        System.arraycopy(singularVector, 0, columnBuffer, 0, columns);
+        double norm = 0;
+        for (int iteration = 0; iteration < 100; iteration++){
+            for (int i = 0; i < matrix.length; i++){
+                rowBuffer[i] = kernels.dot(matrix[i], 0, columnBuffer, 0, columns);
+            }
+            Arrays.fill(columnBuffer, 0, columns, 0d);
+            for (int i = 0; i < matrix.length; i++){
+                double value = rowBuffer[i];
+                for (int j = 0; j < columns; j++){
+                    columnBuffer[j] = columnBuffer[j] + value * matrix[i][j];
+                }
+            }
+            double length = Math.sqrt(kernels.squaredNorm(columnBuffer, 0, columns));
+            if (length == 0){
+                if (iteration > 0){
+                    return 0;
+                }
+                Arrays.fill(columnBuffer, 0, columns, 1 / Math.sqrt(columns)); // start vector orthogonal to the row space
+                continue;
+            }
+            for (int j = 0; j < columns; j++){
+                columnBuffer[j] = columnBuffer[j] / length;
+            }
+            double estimate = Math.sqrt(length);
+            if (Math.abs(estimate - norm) <= 1e-5 * estimate){
+                norm = estimate;
+                break;
+            }
+            norm = estimate;
+        }
+        System.arraycopy(columnBuffer, 0, singularVector, 0, columns); // races between training threads only change the starting point
+        return norm;
+    }
+
+    /**
+     * scale a row down to l2 norm 1 if it is longer
+     * @param row
+     */
+    public void clipRow(double[] row){
+        double norm = Math.sqrt(kernels.squaredNorm(row, 0, row.length));
+        if (norm > 1){
+            for (int i = 0; i < row.length; i++){
+                row[i] = row[i] / norm;
+            }
+        }
+    }
+
     /**
      * euclidean distance between two vectors
      * @param vector1
@@ -231,12 +324,20 @@ public class Helper {
      * @return euclidean distance
      */
     public double euclideanDistance (double[] vector1, double[] vector2){
-        double sum = 0d;
-        for (int i = 0; i < vector1.length; i++){
-            sum = sum + Math.pow(vector1[i]-vector2[i], 2);
-        }
-        double distance = Math.sqrt(sum);
-        return distance;
+        return Math.sqrt(kernels.squaredDistance(vector1, vector2, vector1.length));
+    }
+
+    /**
+     * squared euclidean distance between k elements of two vectors starting at the given offsets, e.g. rows of an EmbeddingTable page
+     * @param vector1
+     * @param offset1
+     * @param vector2
+     * @param offset2
+     * @param k
+     * @return squared distance
+     */
+    public double squaredDistance(double[] vector1, int offset1, double[] vector2, int offset2, int k){
+        return kernels.squaredDistance(vector1, offset1, vector2, offset2, k);
     }
 
     /**
@@ -278,11 +379,7 @@ public class Helper {
      * @return distance
      */
     public double relationDistanceL2(double[] relationC, double[] relation){
-        double sum = 0d;
-        for (int i = 0; i< relation.length; i++){
-            sum = sum + Math.pow((relationC[i] - relation[i]), 2);
-        }
-        return sum;
+        return kernels.squaredDistance(relationC, relation, relation.length);
     }
 
 }
@@ -0,0 +1,23 @@
+package com.prime.common.computinghelper;
+
+/**
+ * RelationBatchKernel that also gets the index of every triple of the group in the training set, for models with per triple state (the
+ * cluster of a CTransR triple) that still want to finish a relation group at once, e.g. constrain the touched matrices once per group
+ * instead of once per triple. ParallelTrainer calls the indexed updateRelation for the training set, the plain one is for triples outside of it.
+ * @param <S> per-thread scratch buffers
+ */
+public interface IndexedRelationBatchKernel<S> extends RelationBatchKernel<S> {
+
+    /**
+     * sgd steps for the triples of one relation in a mini-batch
+     * @param relation
+     * @param triples index of every triple in the training set
+     * @param heads
+     * @param tails
+     * @param headsC corrupted heads, the head itself if the tail is corrupted
+     * @param tailsC corrupted tails, the tail itself if the head is corrupted
+     * @param size number of triples, the first size elements of the arrays are valid
+     * @param scratch
+     */
+    void updateRelation(int relation, int[] triples, int[] heads, int[] tails, int[] headsC, int[] tailsC, int size, S scratch);
+}
@@ -0,0 +1,22 @@
+package com.prime.common.computinghelper;
+
+/**
+ * TripleKernel that also gets the index of the triple in the training set, for models that keep per triple state in arrays indexed by the
+ * triple (e.g. the cluster of a CTransR triple). ParallelTrainer calls the indexed update for every training triple, the plain update is for
+ * triples outside of the training set.
+ * @param <S> per-thread scratch buffers
+ */
+public interface IndexedTripleKernel<S> extends TripleKernel<S> {
+
+    /**
+     * one sgd step for a training triple and its corrupted triple
+     * @param triple index of the triple in the training set
+     * @param head
+     * @param relation
+     * @param tail
+     * @param headC
+     * @param tailC
+     * @param scratch
+     */
+    void update(int triple, int head, int relation, int tail, int headC, int tailC, S scratch);
+}
@@ -0,0 +1,290 @@
+package com.prime.common.computinghelper;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * k-means over the points of a flat row-major matrix, point i at offset i * dim. Points are assigned with the squared distance kernel of
+ * VectorKernels, no square roots. Centroids are seeded with k-means++.
+ * fit runs Lloyd iterations: every cluster keeps the sum of its points, a point that changes cluster is subtracted from the old sum and added to
+ * the new one, so the centroids are recomputed from the changed points only.
+ * fitMiniBatch is for point sets too large to hold or iterate over (mini-batch k-means, Sculley 2010): points are read from a Points source on
+ * demand, every iteration moves the centroids towards a random sample of batchSize points with a per centroid learning rate 1 / (points seen),
+ * and one final pass assigns all points.
+ * Both stop when no centroid moves more than the tolerance in an iteration. Not thread safe, one instance per relation.
+ */
+public class KMeans {
+
+    /**
+     * points that are computed when they are read instead of being stored, e.g. the offsets of a relation
+     */
+    public interface Points {
+
+        int count();
+
+        /**
+         * write point i into destination starting at offset
+         * @param i
+         * @param destination
+         * @param offset
+         */
+        void copy(int i, double[] destination, int offset);
+    }
+
+    final static VectorKernels kernels = VectorKernels.get();
+    /** a centroid that moves less than this (euclidean) counts as converged */
+    public final static double TOLERANCE = 1e-6;
+
+    final int dim;
+    int clusters;
+    double[] centroids;
+    double[] sums;
+    int[] counts;
+    int[] assignments;
+    int iterations;
+
+    /**
+     * @param clusters number of clusters, at most the number of points is used
+     * @param dim dimension of the points
+     */
+    public KMeans(int clusters, int dim){
+        this.clusters = clusters;
+        this.dim = dim;
+    }
+
+    /**
+     * cluster the points with lloyd iterations, seeded with k-means++
+     * @param points count x dim
+     * @param count number of points
+     * @param epochs maximum number of iterations
+     * @param random
+     * @return this
+     */
+    public KMeans fit(double[] points, int count, int epochs, Random random){
+        clusters = Math.min(clusters, count);
+        centroids = new double[clusters * dim];
+        sums = new double[clusters * dim];
+        counts = new int[clusters];
+        assignments = new int[count];
+        if (clusters == 0){
+            return this;
+        }
+        seedPlusPlus(points, count, random);
+        Arrays.fill(assignments, -1);
+        lloyd(points, count, epochs);
+        return this;
+    }
+
+    /**
+     * cluster the points with mini-batch k-means, seeded with k-means++ on a sample of batchSize points. Memory is one batch and the
+     * assignments, whatever the number of points
+     * @param points
+     * @param batchSize points per iteration
+     * @param epochs maximum number of iterations
+     * @param random
+     * @return this
+     */
+    public KMeans fitMiniBatch(Points points, int batchSize, int epochs, Random random){
+        int count = points.count();
+        clusters = Math.min(clusters, count);
+        centroids = new double[clusters * dim];
+        counts = new int[clusters];
+        assignments = new int[count];
+        if (clusters == 0){
+            return this;
+        }
+        batchSize = Math.max(clusters, Math.min(batchSize, count));
+        double[] batch = new double[batchSize * dim];
+        for (int b = 0; b < batchSize; b++){
+            points.copy(random.nextInt(count), batch, b * dim);
+        }
+        seedPlusPlus(batch, batchSize, random);
+
+        double tolerance = TOLERANCE * TOLERANCE;
+        double[] previous = new double[clusters * dim];
+        int[] nearest = new int[batchSize];
+        iterations = 0;
+        while (iterations < Math.max(1, epochs)){
+            if (iterations > 0){
+                for (int b = 0; b < batchSize; b++){
+                    points.copy(random.nextInt(count), batch, b * dim);
+                }
+            }
+            for (int b = 0; b < batchSize; b++){
+                nearest[b] = nearest(batch, b * dim);
+            }
+            System.arraycopy(centroids, 0, previous, 0, centroids.length);
+            for (int b = 0; b < batchSize; b++){
+                int cluster = nearest[b];
+                counts[cluster]++;
+                double rate = 1d / counts[cluster];
+                int start = cluster * dim;
+                int offset = b * dim;
+                for (int j = 0; j < dim; j++){
+                    centroids[start + j] = centroids[start + j] + rate * (batch[offset + j] - centroids[start + j]);
+                }
+            }
+            iterations++;
+            double movement = 0;
+            for (int c = 0; c < clusters; c++){
+                movement = Math.max(movement, kernels.squaredDistance(centroids, c * dim, previous, c * dim, dim));
+            }
+            if (movement <= tolerance){
+                break;
+            }
+        }
+        for (int i = 0; i < count; i++){
+            points.copy(i, batch, 0);
+            assignments[i] = nearest(batch, 0);
+        }
+        return this;
+    }
+
+    /**
+     * k-means++ seeding: the first centroid is a random point, every next one a point drawn with probability proportional to its squared
+     * distance to the nearest centroid so far
+     */
+    void seedPlusPlus(double[] points, int count, Random random){
+        int first = random.nextInt(count);
+        System.arraycopy(points, first * dim, centroids, 0, dim);
+        double[] minDistances = new double[count];
+        double total = 0;
+        for (int i = 0; i < count; i++){
+            minDistances[i] = kernels.squaredDistance(points, i * dim, centroids, 0, dim);
+            total = total + minDistances[i];
+        }
+        for (int c = 1; c < clusters; c++){
+            int chosen = count - 1;
+            if (total > 0){
+                double target = random.nextDouble() * total;
+                for (int i = 0; i < count; i++){
+                    target = target - minDistances[i];
+                    if (target < 0){
+                        chosen = i;
+                        break;
+                    }
+                }
+            } else {
+                chosen = random.nextInt(count); // all points on the centroids already
+            }
+            int start = c * dim;
+            System.arraycopy(points, chosen * dim, centroids, start, dim);
+            total = 0;
+            for (int i = 0; i < count; i++){
+                double distance = kernels.squaredDistance(points, i * dim, centroids, start, dim);
+                if (distance < minDistances[i]){
+                    minDistances[i] = distance;
+                }
+                total = total + minDistances[i];
+            }
+        }
+    }
+
+    /**
+     * lloyd iterations from the current centroids
+     */
+    void lloyd(double[] points, int count, int epochs){
+        double tolerance = TOLERANCE * TOLERANCE;
+        iterations = 0;
+        while (iterations < Math.max(1, epochs)){
+            for (int i = 0; i < count; i++){
+                int offset = i * dim;
+                int nearest = nearest(points, offset);
+                int previous = assignments[i];
+                if (nearest != previous){
+                    if (previous >= 0){
+                        move(points, offset, previous, -1);
+                    }
+                    move(points, offset, nearest, 1);
+                    assignments[i] = nearest;
+                }
+            }
+            iterations++;
+            if (updateCentroids() <= tolerance){
+                break;
+            }
+        }
+    }
+
+    /**
+     * nearest centroid of the point at offset
+     */
+    int nearest(double[] points, int offset){
+        int nearest = 0;
+        double minDistance = kernels.squaredDistance(points, offset, centroids, 0, dim);
+        for (int c = 1; c < clusters; c++){
+            double distance = kernels.squaredDistance(points, offset, centroids, c * dim, dim);
+            if (distance < minDistance){
+                minDistance = distance;
+                nearest = c;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * add (sign 1) or remove (sign -1) a point from the sum of a cluster
+     */
+    void move(double[] points, int offset, int cluster, int sign){
+        int start = cluster * dim;
+        for (int j = 0; j < dim; j++){
+            sums[start + j] = sums[start + j] + sign * points[offset + j];
+        }
+        counts[cluster] = counts[cluster] + sign;
+    }
+
+    /**
+     * centroids = sums / counts, an empty cluster keeps its centroid
+     * @return largest squared movement of a centroid
+     */
+    double updateCentroids(){
+        double movement = 0;
+        for (int c = 0; c < clusters; c++){
+            if (counts[c] == 0){
+                continue;
+            }
+            int start = c * dim;
+            double scale = 1d / counts[c];
+            double shift = 0;
+            for (int j = start; j < start + dim; j++){
+                double value = sums[j] * scale;
+                double difference = value - centroids[j];
+                shift = shift + difference * difference;
+                centroids[j] = value;
+            }
+            movement = Math.max(movement, shift);
+        }
+        return movement;
+    }
+
+    public int getClusters() {
+        return clusters;
+    }
+
+    /**
+     * @return clusters x dim
+     */
+    public double[] getCentroids() {
+        return centroids;
+    }
+
+    /**
+     * copy of one centroid
+     * @param cluster
+     * @return centroid
+     */
+    public double[] centroid(int cluster){
+        return Arrays.copyOfRange(centroids, cluster * dim, (cluster + 1) * dim);
+    }
+
+    /**
+     * @return cluster of every point
+     */
+    public int[] getAssignments() {
+        return assignments;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+}
@@ -0,0 +1,13 @@
+package com.prime.common.computinghelper;
+
+/**
+ * how TransR keeps its projection matrices bounded after an sgd step.
+ */
+public enum MatrixConstraint {
+    /** divide the matrix by its largest singular value from a full svd (Helper.normMatrix), O(k * d * min(k, d)) per step */
+    SVD,
+    /** same norm as SVD by power iteration started from the singular vector of the previous step of the relation, a few O(k * d) iterations */
+    SPECTRAL,
+    /** clip every row of the matrix to l2 norm <= 1, one O(k*d) pass: the outer product update of a step touches every row */
+    ROW_NORM
+}
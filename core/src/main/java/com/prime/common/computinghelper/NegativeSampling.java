@@ -0,0 +1,166 @@
+package com.prime.common.computinghelper;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+
+import java.util.*;
+
+public class NegativeSampling {
+
+    Object bernTriples; // training set of the cached table
+    volatile double[] headProb;
+
+    /**
+     * generate Tbatch which contains pair triple and its corrupted triple
+     * @param triples
+     * @return Tbatch
+     */
+
+    public ArrayList<Pair<Triple<Integer, Integer, Integer>, Triple<Integer, Integer, Integer>>> generateUnif(ArrayList<Triple<Integer, Integer, Integer>> triples, int entitySize){
+        return generateUnif(triples, entitySize, new Random());
+    }
+
+    /**
+     * generate Tbatch with the given random generator, e.g. one per training thread
+     * @param triples
+     * @param entitySize
+     * @param random
+     * @return Tbatch
+     */
+
+    public ArrayList<Pair<Triple<Integer, Integer, Integer>, Triple<Integer, Integer, Integer>>> generateUnif(ArrayList<Triple<Integer, Integer, Integer>> triples, int entitySize, Random random){
+        ArrayList<Pair<Triple<Integer, Integer, Integer>, Triple<Integer, Integer, Integer>>> tBatch = new ArrayList<Pair<Triple<Integer, Integer, Integer>, Triple<Integer, Integer, Integer>>>();
+        for (int i = 0; i < triples.size(); i++){
+            Triple<Integer, Integer, Integer> triple = triples.get(i);
+            Boolean flag = random.nextBoolean();
+            if(flag == true){
+                int head = triple.getLeft();
+                int randEntity = random.nextInt(entitySize);
+                while (randEntity == head){
+                    randEntity = random.nextInt(entitySize);
+                }
+                Triple<Integer, Integer, Integer> corruptedTriple = Triple.of(randEntity, triple.getMiddle(), triple.getRight());
+                Pair<Triple<Integer, Integer, Integer>, Triple<Integer, Integer, Integer>> pair = Pair.of(triple, corruptedTriple);
+                tBatch.add(pair);
+            }
+            if(flag == false){
+                int tail = triple.getRight();
+                int randEntity = random.nextInt(entitySize);
+                while (randEntity == tail){
+                    randEntity = random.nextInt(entitySize);
+                }
+                Triple<Integer, Integer, Integer> corruptedTriple = Triple.of(triple.getLeft(), triple.getMiddle(), randEntity);
+                Pair<Triple<Integer, Integer, Integer>, Triple<Integer, Integer, Integer>> pair = Pair.of(triple, corruptedTriple);
+                tBatch.add(pair);
+            }
+        }
+        return tBatch;
+    }
+    /**
+     * get proportion of relations with statistic heads per tail or tails per head. For each relation, tph = triples / distinct heads and
+     * hpt = triples / distinct tails, and the probability to corrupt the head is tph / (tph + hpt). The counts come from the RelationStatistics
+     * cached on the training set, so they are shared with the other models trained on it.
+     * @param tripleList
+     * @param relationSize
+     * @return probability to corrupt the head, indexed by relation
+     */
+
+    private double[] headTailProportion(TripleStore tripleList, int relationSize){
+        RelationStatistics statistics = RelationStatistics.of(tripleList, relationSize);
+        double[] headProb = new double[relationSize];
+        for (int i = 0; i < relationSize; i ++){
+            headProb[i] = statistics.headProbability(i);
+        }
+        return headProb;
+    }
+
+    /**
+     * compute and cache the bernoulli corruption table of a training set, needs to be called again only if the training set changes
+     * @param tripleList
+     * @param relationSize
+     */
+
+    public synchronized void fitBern(TripleStore tripleList, int relationSize){
+        if (bernTriples != tripleList || headProb == null || headProb.length != relationSize){
+            headProb = headTailProportion(tripleList, relationSize);
+            bernTriples = tripleList;
+        }
+    }
+
+    /**
+     * compute and cache the bernoulli corruption table of a training set given as list
+     * @param tripleList
+     * @param relationSize
+     */
+
+    public synchronized void fitBern(ArrayList<Triple<Integer, Integer, Integer>> tripleList, int relationSize){
+        if (bernTriples != tripleList || headProb == null || headProb.length != relationSize){
+            headProb = headTailProportion(TripleStore.fromTriples(tripleList), relationSize);
+            bernTriples = tripleList;
+        }
+    }
+
+    /**
+     * whether to corrupt the head or the tail of a triple with a relation, a table lookup after fitBern
+     * @param relation
+     * @return true to corrupt the head
+     */
+
+    public boolean corruptHead(int relation){
+        return headProb[relation] >= 0.5d; // the paper uses Bernoulli distribution with parameters of tphProb. I just compare the two probabilities
+    }
+
+    /**
+     * draw a random entity different from the given one
+     * @param entity
+     * @param entitySize
+     * @param random
+     * @return corrupted entity
+     */
+
+    public int corruptEntity(int entity, int entitySize, Random random){
+        int randEntity = random.nextInt(entitySize);
+        while (randEntity == entity){
+            randEntity = random.nextInt(entitySize);
+        }
+        return randEntity;
+    }
+
+    /**
+     * generate corrupted triples based on bernoulli distribution with parameters head-tail propoertion
+     * @param miniBatch
+     * @return a list of corruptedTriples
+     */
+    public ArrayList<Triple<Integer, Integer, Integer>> generateBern(ArrayList<Triple<Integer, Integer, Integer>> miniBatch, int entitySize,
+                                                                                 ArrayList<Triple<Integer, Integer, Integer>> tripleList, int relationSize){
+        return generateBern(miniBatch, entitySize, tripleList, relationSize, new Random());
+    }
+
+    /**
+     * generate corrupted triples based on bernoulli distribution with the given random generator, e.g. one per training thread
+     * @param miniBatch
+     * @param random
+     * @return a list of corruptedTriples
+     */
+    public ArrayList<Triple<Integer, Integer, Integer>> generateBern(ArrayList<Triple<Integer, Integer, Integer>> miniBatch, int entitySize,
+                                                                     ArrayList<Triple<Integer, Integer, Integer>> tripleList, int relationSize, Random random){
+        fitBern(tripleList, relationSize); // no-op if the table of this training set is cached
+        ArrayList<Triple<Integer, Integer, Integer>> corruptedTriples = new ArrayList<Triple<Integer, Integer, Integer>>();
+        for (Triple<Integer, Integer, Integer> triple: miniBatch){
+            int head = triple.getLeft();
+            int relation = triple.getMiddle();
+            int tail = triple.getRight();
+            if(corruptHead(relation)){
+                int corruptedHead = corruptEntity(head, entitySize, random);
+                Triple<Integer, Integer, Integer> corruptedTriple = Triple.of(corruptedHead, relation, tail);
+                corruptedTriples.add(corruptedTriple);
+            }
+            else {
+                int corruptedTail = corruptEntity(tail, entitySize, random);
+                Triple<Integer, Integer, Integer> corruptedTriple = Triple.of(head, relation, corruptedTail);
+                corruptedTriples.add(corruptedTriple);
+            }
+        }
+        return corruptedTriples;
+    }
+}
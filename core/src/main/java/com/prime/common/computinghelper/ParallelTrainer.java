@@ -0,0 +1,252 @@
+package com.prime.common.computinghelper;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * training engine shared by all models. The training set is shuffled once per epoch, worker threads pull mini-batches (slices of the shuffled
+ * set) from a shared counter, corrupt every triple with their own random generator and run the model's TripleKernel on every triple. Parameters are
+ * updated in place without locks (hogwild), which is fine for sgd because each update only touches a few rows. A RelationBatchKernel gets every
+ * mini-batch sorted by relation, one updateRelation call per relation. An IndexedTripleKernel (IndexedRelationBatchKernel) also gets the index of
+ * the triple (of every triple of the group) in the training set.
+ * The worker threads are started with the first epoch and live until close, every thread keeps its scratch buffers from epoch to epoch.
+ */
+public class ParallelTrainer implements AutoCloseable {
+
+    final static Logger logger = Logger.getLogger(ParallelTrainer.class);
+    NegativeSampling sample;
+    int threads;
+    Boolean bern;
+    Random random;
+    EpochSampler sampler;
+    ExecutorService executor;
+    final ThreadLocal<Worker> workers = new ThreadLocal<Worker>();
+
+    /**
+     * buffers of one thread, the scratch belongs to the kernel it was allocated by
+     */
+    static class Worker {
+        TripleKernel<?> kernel;
+        Object scratch;
+        long[] keys = new long[0];
+        int[][] batch = new int[5][0];
+        int[][] group = new int[5][0];
+    }
+
+    /**
+     * @param threads number of worker threads, 1 trains on the calling thread
+     * @param bern true to corrupt triples with the bernoulli strategy, false for uniform corruption
+     */
+    public ParallelTrainer(int threads, Boolean bern){
+        this.sample = new NegativeSampling();
+        this.threads = Math.max(1, threads);
+        this.bern = bern;
+        this.random = new Random();
+    }
+
+    /**
+     * one pass over the training set
+     * @param trainTriples
+     * @param entitySize
+     * @param relationSize
+     * @param batchSize
+     * @param kernel
+     * @return number of trained triples
+     */
+    public <S> long trainEpoch(final TripleStore trainTriples, final int entitySize, final int relationSize, final int batchSize,
+                               final TripleKernel<S> kernel){
+        if (sampler == null || sampler.getTripleSize() != trainTriples.size() || sampler.batchSize != batchSize){
+            sampler = new EpochSampler(trainTriples.size(), batchSize);
+        }
+        sampler.shuffle(random);
+        if (bern == true){
+            sample.fitBern(trainTriples, relationSize); // computed once per training set, a table lookup per triple afterwards
+        }
+        final AtomicInteger nextBatch = new AtomicInteger();
+        if (threads == 1){
+            return work(trainTriples, entitySize, relationSize, batchSize, nextBatch, kernel, random);
+        }
+        if (executor == null){
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "trainer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>();
+        for (int t = 0; t < threads; t++){
+            final Random threadRandom = new Random(random.nextLong());
+            futures.add(executor.submit(() -> work(trainTriples, entitySize, relationSize, batchSize, nextBatch, kernel, threadRandom)));
+        }
+        long count = 0;
+        try {
+            for (Future<Long> future : futures){
+                count = count + future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            close();
+            throw new IllegalStateException(e.getCause());
+        }
+        return count;
+    }
+
+    /**
+     * stop the worker threads, a later epoch starts new ones
+     */
+    @Override
+    public void close(){
+        if (executor != null){
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * buffers of the calling thread, the scratch is allocated again when the kernel changes
+     */
+    @SuppressWarnings("unchecked")
+    private <S> Worker worker(TripleKernel<S> kernel){
+        Worker worker = workers.get();
+        if (worker == null){
+            worker = new Worker();
+            workers.set(worker);
+        }
+        if (worker.kernel != kernel){
+            worker.kernel = kernel;
+            worker.scratch = kernel.newScratch();
+        }
+        return worker;
+    }
+
+    /**
+     * one pass over the training set which logs the throughput
+     * @param epoch
+     * @param trainTriples
+     * @param entitySize
+     * @param relationSize
+     * @param batchSize
+     * @param kernel
+     * @return triples per second
+     */
+    public <S> double trainEpochTimed(int epoch, TripleStore trainTriples, int entitySize, int relationSize, int batchSize,
+                                      TripleKernel<S> kernel){
+        long start = System.nanoTime();
+        long count = trainEpoch(trainTriples, entitySize, relationSize, batchSize, kernel);
+        double throughput = count / ((System.nanoTime() - start) / 1e9);
+        logger.info("Epoch: " + epoch + "; Threads: " + threads + "; Triples/sec: " + throughput);
+        return throughput;
+    }
+
+    /**
+     * training loop of a single thread
+     */
+    @SuppressWarnings("unchecked")
+    private <S> long work(TripleStore trainTriples, int entitySize, int relationSize, int batchSize,
+                          AtomicInteger nextBatch, TripleKernel<S> kernel, Random random){
+        if (kernel instanceof RelationBatchKernel){
+            return workByRelation(trainTriples, entitySize, batchSize, nextBatch, (RelationBatchKernel<S>) kernel, random);
+        }
+        IndexedTripleKernel<S> indexedKernel = kernel instanceof IndexedTripleKernel ? (IndexedTripleKernel<S>) kernel : null;
+        S scratch = (S) worker(kernel).scratch;
+        long count = 0;
+        int batch;
+        while ((batch = nextBatch.getAndIncrement()) < sampler.getBatchNumber()){
+            for (int position = sampler.batchStart(batch); position < sampler.batchEnd(batch); position++){
+                int index = sampler.tripleAt(position);
+                int head = trainTriples.head(index);
+                int relation = trainTriples.relation(index);
+                int tail = trainTriples.tail(index);
+                boolean corruptHead = bern ? sample.corruptHead(relation) : random.nextBoolean();
+                int headC = corruptHead ? sample.corruptEntity(head, entitySize, random) : head;
+                int tailC = corruptHead ? tail : sample.corruptEntity(tail, entitySize, random);
+                if (indexedKernel != null){
+                    indexedKernel.update(index, head, relation, tail, headC, tailC, scratch);
+                } else {
+                    kernel.update(head, relation, tail, headC, tailC, scratch);
+                }
+                count ++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * training loop of a single thread for a RelationBatchKernel: corrupt the triples of a mini-batch in the same order as work, sort them by
+     * relation and hand every relation group to the kernel, with the triple indices for an IndexedRelationBatchKernel
+     */
+    @SuppressWarnings("unchecked")
+    private <S> long workByRelation(TripleStore trainTriples, int entitySize, int batchSize, AtomicInteger nextBatch,
+                                    RelationBatchKernel<S> kernel, Random random){
+        IndexedRelationBatchKernel<S> indexedKernel = kernel instanceof IndexedRelationBatchKernel ? (IndexedRelationBatchKernel<S>) kernel : null;
+        Worker worker = worker(kernel);
+        S scratch = (S) worker.scratch;
+        if (worker.keys.length < batchSize){
+            worker.keys = new long[batchSize];
+            worker.batch = new int[5][batchSize]; // head, tail, corrupted head, corrupted tail, triple index by position in the mini-batch
+            worker.group = new int[5][batchSize];
+        }
+        long[] keys = worker.keys;
+        int[][] batch = worker.batch;
+        int[][] group = worker.group;
+        long count = 0;
+        int b;
+        while ((b = nextBatch.getAndIncrement()) < sampler.getBatchNumber()){
+            int size = sampler.batchEnd(b) - sampler.batchStart(b);
+            if (size > keys.length){
+                keys = worker.keys = new long[size];
+                batch = worker.batch = new int[5][size];
+                group = worker.group = new int[5][size];
+            }
+            for (int i = 0; i < size; i++){
+                int index = sampler.tripleAt(sampler.batchStart(b) + i);
+                int head = trainTriples.head(index);
+                int relation = trainTriples.relation(index);
+                int tail = trainTriples.tail(index);
+                boolean corruptHead = bern ? sample.corruptHead(relation) : random.nextBoolean();
+                batch[0][i] = head;
+                batch[1][i] = tail;
+                batch[2][i] = corruptHead ? sample.corruptEntity(head, entitySize, random) : head;
+                batch[3][i] = corruptHead ? tail : sample.corruptEntity(tail, entitySize, random);
+                batch[4][i] = index;
+                keys[i] = ((long) relation << 32) | i;
+            }
+            Arrays.sort(keys, 0, size);
+            int start = 0;
+            while (start < size){
+                int relation = (int) (keys[start] >>> 32);
+                int end = start;
+                while (end < size && (int) (keys[end] >>> 32) == relation){
+                    int i = (int) keys[end];
+                    for (int column = 0; column < 5; column++){
+                        group[column][end - start] = batch[column][i];
+                    }
+                    end ++;
+                }
+                if (indexedKernel != null){
+                    indexedKernel.updateRelation(relation, group[4], group[0], group[1], group[2], group[3], end - start, scratch);
+                } else {
+                    kernel.updateRelation(relation, group[0], group[1], group[2], group[3], end - start, scratch);
+                }
+                start = end;
+            }
+            count = count + size;
+        }
+        return count;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+}
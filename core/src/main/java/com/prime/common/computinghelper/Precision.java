@@ -0,0 +1,63 @@
+package com.prime.common.computinghelper;
+
+/**
+ * precision of embedding values. Tables train in FLOAT64 or FLOAT32, the arithmetic of an sgd step is done in double on scratch rows either way.
+ * BFLOAT16 is only a storage format for model files.
+ */
+public enum Precision {
+    /** 64 bit double */
+    FLOAT64(8),
+    /** 32 bit float, half the memory and file size of FLOAT64 */
+    FLOAT32(4),
+    /** bfloat16, the upper half of a float32: same range, 8 bit mantissa (about 3 significant digits), model files only */
+    BFLOAT16(2);
+
+    final int bytes;
+
+    Precision(int bytes){
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return bytes per value
+     */
+    public int bytes(){
+        return bytes;
+    }
+
+    /**
+     * precision from the bytes per value
+     * @param bytes
+     * @return precision
+     * @throws IllegalArgumentException for an unknown size
+     */
+    public static Precision ofBytes(int bytes){
+        for (Precision precision : values()){
+            if (precision.bytes == bytes){
+                return precision;
+            }
+        }
+        throw new IllegalArgumentException("no precision with " + bytes + " bytes per value");
+    }
+
+    /**
+     * round a float to bfloat16, round to nearest even
+     * @param value
+     * @return bfloat16 bits
+     */
+    public static short toBFloat16(float value){
+        int bits = Float.floatToRawIntBits(value);
+        if (Float.isNaN(value)){
+            return (short) ((bits >>> 16) | 0x40); // keep it a nan
+        }
+        return (short) ((bits + 0x7FFF + ((bits >>> 16) & 1)) >>> 16);
+    }
+
+    /**
+     * @param bits bfloat16 bits
+     * @return float value
+     */
+    public static float fromBFloat16(short bits){
+        return Float.intBitsToFloat(bits << 16);
+    }
+}
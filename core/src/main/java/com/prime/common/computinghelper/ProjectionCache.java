@@ -0,0 +1,178 @@
+package com.prime.common.computinghelper;
+
+import java.util.Arrays;
+
+/**
+ * bounded cache of relation specific projections of entity vectors (TransH plane projection, TransD projected vector), keyed by
+ * (relation, entity). Entries are added lazily by the caller on a miss. Once capacity entries are held a new entry replaces one that was not
+ * used recently, chosen by the clock algorithm (an approximation of LRU where a hit only sets a flag instead of relinking a list). Keys live in
+ * an open addressing table of primitive longs, so a lookup does not allocate. The projections depend on the model parameters, so the model
+ * calls invalidate after every change of its tables. All methods are synchronized; the projection itself is computed outside the lock.
+ */
+public class ProjectionCache {
+
+    /** default number of cached projections, 32768 vectors are 25 MB at dimension 100 */
+    public final static int DEFAULT_CAPACITY = 1 << 15;
+
+    final int capacity;
+    final int mask;
+    final int[] table; // slot of the key hashed to this position, -1 if empty
+    final long[] keys; // key of every slot
+    final double[][] values;
+    final boolean[] referenced;
+    int count;
+    int hand;
+    long generation;
+    long hits;
+    long misses;
+
+    /**
+     * @param capacity maximum number of cached projections, 0 disables the cache
+     */
+    public ProjectionCache(int capacity){
+        this.capacity = Math.max(0, capacity);
+        int tableSize = Integer.highestOneBit(Math.max(1, this.capacity) * 2 - 1) << 1; // load factor <= 0.5
+        this.mask = tableSize - 1;
+        this.table = new int[tableSize];
+        Arrays.fill(table, -1);
+        this.keys = new long[this.capacity];
+        this.values = new double[this.capacity][];
+        this.referenced = new boolean[this.capacity];
+    }
+
+    static long key(int relation, int entity){
+        return (long) relation << 32 | (entity & 0xffffffffL);
+    }
+
+    int position(long key){
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    /**
+     * position of the key in the table, or of the empty position where it would go
+     */
+    int find(long key){
+        int position = position(key);
+        while (table[position] >= 0 && keys[table[position]] != key){
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    /**
+     * cached projection of an entity for a relation, the returned array is shared and must not be modified
+     * @param relation
+     * @param entity
+     * @return projection or null if it is not cached
+     */
+    public synchronized double[] get(int relation, int entity){
+        int slot = table[find(key(relation, entity))];
+        if (slot < 0){
+            misses++;
+            return null;
+        }
+        hits++;
+        referenced[slot] = true;
+        return values[slot];
+    }
+
+    /**
+     * generation of the parameters the cache holds projections for, read it before computing a projection and pass it to put
+     * @return generation
+     */
+    public synchronized long generation(){
+        return generation;
+    }
+
+    /**
+     * add a projection computed from the parameters of the given generation. It is dropped if the cache was invalidated in the meantime, so a
+     * projection of the old parameters never outlives an update
+     * @param relation
+     * @param entity
+     * @param projection
+     * @param generation
+     */
+    public synchronized void put(int relation, int entity, double[] projection, long generation){
+        if (capacity == 0 || generation != this.generation){
+            return;
+        }
+        long key = key(relation, entity);
+        int position = find(key);
+        int slot = table[position];
+        if (slot < 0){
+            if (count < capacity){
+                slot = count++;
+            } else {
+                slot = evict();
+                position = find(key); // the removal may have moved the empty position
+            }
+            table[position] = slot;
+            keys[slot] = key;
+        }
+        values[slot] = projection;
+        referenced[slot] = false;
+    }
+
+    /**
+     * free the first slot after the clock hand that was not used since the hand passed it last
+     * @return free slot
+     */
+    int evict(){
+        while (referenced[hand]){
+            referenced[hand] = false;
+            hand = (hand + 1) % capacity;
+        }
+        int slot = hand;
+        hand = (hand + 1) % capacity;
+        remove(find(keys[slot]));
+        values[slot] = null;
+        return slot;
+    }
+
+    /**
+     * remove a table position and shift the following keys of the probe sequence back, so lookups need no tombstones
+     */
+    void remove(int position){
+        int empty = position;
+        int next = (empty + 1) & mask;
+        while (table[next] >= 0){
+            int home = position(keys[table[next]]);
+            // move the key back unless its home position lies cyclically in (empty, next]
+            if (((next - home) & mask) >= ((next - empty) & mask)){
+                table[empty] = table[next];
+                empty = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[empty] = -1;
+    }
+
+    /**
+     * drop all projections, call after the parameters changed
+     */
+    public synchronized void invalidate(){
+        Arrays.fill(table, -1);
+        Arrays.fill(values, null);
+        Arrays.fill(referenced, false);
+        count = 0;
+        hand = 0;
+        generation++;
+    }
+
+    public synchronized int size(){
+        return count;
+    }
+
+    public int capacity(){
+        return capacity;
+    }
+
+    public synchronized long hits(){
+        return hits;
+    }
+
+    public synchronized long misses(){
+        return misses;
+    }
+}
@@ -0,0 +1,22 @@
+package com.prime.common.computinghelper;
+
+/**
+ * TripleKernel that can train a mini-batch relation by relation. ParallelTrainer sorts every mini-batch by relation and calls updateRelation
+ * once per relation, so a model with relation specific matrices can project all entities of the group with one matrix-matrix product instead
+ * of a matrix-vector product per entity.
+ * @param <S> per-thread scratch buffers
+ */
+public interface RelationBatchKernel<S> extends TripleKernel<S> {
+
+    /**
+     * sgd steps for the triples of one relation in a mini-batch, as a mini-batch gradient on the parameters at the start of the group
+     * @param relation
+     * @param heads
+     * @param tails
+     * @param headsC corrupted heads, the head itself if the tail is corrupted
+     * @param tailsC corrupted tails, the tail itself if the head is corrupted
+     * @param size number of triples, the first size elements of the arrays are valid
+     * @param scratch
+     */
+    void updateRelation(int relation, int[] heads, int[] tails, int[] headsC, int[] tailsC, int size, S scratch);
+}
@@ -0,0 +1,273 @@
+package com.prime.common.computinghelper;
+
+import org.apache.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *  this clustering uses k-means to cluster relations which has many pattens. For example, citing the paper "the head-tail entities of the relation "location_location_contains" have many patterns such as country-city, country-university, continent-country and
+ *  so on"
+ */
+
+public class RelationCluster {
+
+    final static Logger logger = Logger.getLogger(RelationCluster.class);
+    /** relations with more triples than this are clustered with mini-batch k-means, smaller ones with exact lloyd iterations */
+    public final static int MINI_BATCH_THRESHOLD = 50000;
+    /** offsets per mini-batch iteration */
+    public final static int BATCH_SIZE = 2048;
+    Helper helper;
+    EmbeddingTable entityVectors;
+    TripleStore triples;
+    int relationSize;
+    int threads;
+    int miniBatchThreshold;
+    int batchSize;
+    int[][] relationTriples;
+    int[] tripleClusters;
+    int[] clusterStarts;
+    EmbeddingTable clusterVectors;
+    double[][][] matrices;
+
+
+    public RelationCluster(EmbeddingTable entityVectors, int relationSize, TripleStore triples, int k, int epochs, int rows, int columns){
+        this(entityVectors, relationSize, triples, k, epochs, rows, columns, 1);
+    }
+
+    /**
+     * @param entityVectors
+     * @param relationSize
+     * @param triples
+     * @param k number of clusters per relation
+     * @param epochs maximum number of k-means iterations
+     * @param rows
+     * @param columns
+     * @param threads relations are clustered concurrently on a work stealing pool of this many threads
+     */
+    public RelationCluster(EmbeddingTable entityVectors, int relationSize, TripleStore triples, int k, int epochs, int rows, int columns, int threads){
+        this(entityVectors, relationSize, triples, k, epochs, rows, columns, threads, MINI_BATCH_THRESHOLD, BATCH_SIZE);
+    }
+
+    /**
+     * @param entityVectors
+     * @param relationSize
+     * @param triples
+     * @param k number of clusters per relation
+     * @param epochs maximum number of k-means iterations
+     * @param rows
+     * @param columns
+     * @param threads relations are clustered concurrently on a work stealing pool of this many threads
+     * @param miniBatchThreshold relations with more triples are clustered with mini-batch k-means on offsets computed on demand
+     * @param batchSize offsets per mini-batch iteration
+     */
+    public RelationCluster(EmbeddingTable entityVectors, int relationSize, TripleStore triples, int k, int epochs, int rows, int columns, int threads,
+                           int miniBatchThreshold, int batchSize){
+        this.helper = new Helper();
+        this.entityVectors = entityVectors;
+        this.triples = triples;
+        this.relationSize = relationSize;
+        this.threads = Math.max(1, threads);
+        this.miniBatchThreshold = miniBatchThreshold;
+        this.batchSize = Math.max(1, batchSize);
+        this.relationTriples = groupTriples();
+        fit(k, epochs, rows, columns);
+
+    }
+
+    /**
+     * group the triple indices by relation (counting sort with the triple counts of the shared RelationStatistics)
+     * @return indices of the triples of every relation
+     */
+
+    private int[][] groupTriples(){
+        RelationStatistics statistics = RelationStatistics.of(triples, relationSize);
+        int[][] groups = new int[relationSize][];
+        for (int i = 0; i < relationSize; i++){
+            groups[i] = new int[statistics.tripleCount(i)];
+        }
+        int[] sizes = new int[relationSize];
+        for (int i = 0; i < triples.size(); i++){
+            int relation = triples.relation(i);
+            groups[relation][sizes[relation]++] = i;
+        }
+        return groups;
+    }
+
+    /**
+     * offsets (head - tail) of the triples of a relation as a flat matrix, offset i at i * dim
+     * @param group triple indices
+     * @return group.length x dim
+     */
+    private double[] offsets(int[] group){
+        int dim = entityVectors.dim();
+        double[] offsets = new double[group.length * dim];
+        double[] tailVector = new double[dim];
+        for (int i = 0; i < group.length; i++){
+            int offset = i * dim;
+            entityVectors.copyRow(triples.head(group[i]), offsets, offset);
+            entityVectors.copyRow(triples.tail(group[i]), tailVector);
+            for (int j = 0; j < dim; j++){
+                offsets[offset + j] = offsets[offset + j] - tailVector[j];
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * offsets of the triples of a relation computed from the entity table when they are read, for mini-batch k-means on large relations
+     */
+    private class OffsetPoints implements KMeans.Points {
+
+        final int[] group;
+        final double[] tailVector = new double[entityVectors.dim()];
+
+        OffsetPoints(int[] group){
+            this.group = group;
+        }
+
+        @Override
+        public int count() {
+            return group.length;
+        }
+
+        @Override
+        public void copy(int i, double[] destination, int offset) {
+            entityVectors.copyRow(triples.head(group[i]), destination, offset);
+            entityVectors.copyRow(triples.tail(group[i]), tailVector);
+            for (int j = 0; j < tailVector.length; j++){
+                destination[offset + j] = destination[offset + j] - tailVector[j];
+            }
+        }
+    }
+
+    /**
+     * k-mean clustering of one relation using the squared euclidean distance between center and offset(head-tail). Lloyd on the stored offsets
+     * for small relations, mini-batch k-means for relations above the threshold
+     * @param relation
+     * @param k
+     * @param epochs
+     * @param random
+     * @return clustering of the offsets of the relation
+     */
+    private KMeans clustering (int relation, int k, int epochs, Random random){
+        int[] group = relationTriples[relation];
+        KMeans kMeans = new KMeans(k, entityVectors.dim());
+        boolean miniBatch = group.length > miniBatchThreshold;
+        if (miniBatch){
+            kMeans.fitMiniBatch(new OffsetPoints(group), batchSize, epochs, random);
+        } else {
+            kMeans.fit(offsets(group), group.length, epochs, random);
+        }
+        if (logger.isDebugEnabled()){
+            logger.debug("Relation " + relation + ": " + group.length + " offsets, " + kMeans.getClusters() + " clusters, " + kMeans.getIterations()
+                    + (miniBatch ? " mini-batch" : "") + " iterations");
+        }
+        return kMeans;
+    }
+
+    /**
+     * number the clusters relation by relation (the clusters of relation r are clusterStarts[r] .. clusterStarts[r + 1] - 1). Every cluster
+     * becomes a normalized relation vector (a row of clusterVectors) shared by the triples of the cluster, with an identity matrix as projection
+     * @param results clustering of every relation
+     * @param rows
+     * @param columns
+     */
+    private void collect(KMeans[] results, int rows, int columns){
+        clusterStarts = new int[relationSize + 1];
+        for (int i = 0; i < relationSize; i++){
+            clusterStarts[i + 1] = clusterStarts[i] + results[i].getClusters();
+        }
+        int clusterSize = clusterStarts[relationSize];
+        clusterVectors = EmbeddingTable.create(clusterSize, entityVectors.dim(), entityVectors.precision());
+        matrices = new double[clusterSize][][];
+        tripleClusters = new int[triples.size()];
+        for (int i = 0; i < relationSize; i++){
+            KMeans kMeans = results[i];
+            for (int c = 0; c < kMeans.getClusters(); c++){
+                clusterVectors.setRow(clusterStarts[i] + c, helper.norm(kMeans.centroid(c)));
+                matrices[clusterStarts[i] + c] = helper.identityMatrix(rows, columns);
+            }
+            int[] group = relationTriples[i];
+            int[] assignments = kMeans.getAssignments();
+            for (int j = 0; j < group.length; j++){
+                tripleClusters[group[j]] = clusterStarts[i] + assignments[j];
+            }
+        }
+    }
+
+    /**
+     * learning for the whole dataset, the largest relations are submitted first so they do not end up last on one thread
+     * @param k
+     * @param epochs
+     * @param rows
+     * @param columns
+     */
+
+    private void fit (final int k, final int epochs, int rows, int columns){
+        long start = System.nanoTime();
+        Integer[] order = new Integer[relationSize];
+        for (int i = 0; i < relationSize; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(relationTriples[b].length, relationTriples[a].length));
+        final long seed = new Random().nextLong();
+        KMeans[] results = new KMeans[relationSize];
+        if (threads == 1){
+            for (int relation : order){
+                results[relation] = clustering(relation, k, epochs, new Random(seed + relation));
+            }
+        } else {
+            ExecutorService executor = Executors.newWorkStealingPool(threads);
+            try {
+                List<Future<KMeans>> futures = new ArrayList<Future<KMeans>>(relationSize);
+                for (final int relation : order){
+                    futures.add(executor.submit(() -> clustering(relation, k, epochs, new Random(seed + relation))));
+                }
+                for (int i = 0; i < relationSize; i++){
+                    results[order[i]] = futures.get(i).get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        collect(results, rows, columns);
+        logger.info("Clustered " + relationSize + " relations (" + triples.size() + " offsets): " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * @return cluster id of every training triple, by triple index
+     */
+    public int[] getTripleClusters() {
+        return tripleClusters;
+    }
+
+    /**
+     * @return first cluster id of every relation, relationSize + 1 entries
+     */
+    public int[] getClusterStarts() {
+        return clusterStarts;
+    }
+
+    /**
+     * @return normalized cluster-specific relation vector of every cluster id
+     */
+    public EmbeddingTable getClusterVectors() {
+        return clusterVectors;
+    }
+
+    /**
+     * @return projection matrix of every cluster id
+     */
+    public double[][][] getMatrices() {
+        return matrices;
+    }
+}
@@ -0,0 +1,309 @@
+package com.prime.common.computinghelper;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * per relation statistics of a training set: number of triples and number of distinct heads and tails. They are computed in one parallel pass
+ * and cached on the TripleStore (see of), so bernoulli negative sampling, the TransSparse sparse degrees and the CTransR clustering share them.
+ *
+ * the head (then tail) column is grouped by relation with a parallel counting sort into one int array, then the relation segments are handed
+ * out to the threads, so every relation is counted by exactly one thread. Exact counting sorts a segment and counts distinct ids. For huge
+ * graphs hyperLogLog estimates them in linear time instead (about 2% error), with 2^HLL_PRECISION one byte registers per thread that are
+ * reset for every relation; segments of at most 2^HLL_PRECISION ids are still counted exactly.
+ */
+public class RelationStatistics {
+
+    final static Logger logger = Logger.getLogger(RelationStatistics.class);
+    final static int HLL_PRECISION = 11;
+    final int relationSize;
+    final int tripleSize;
+    final Boolean hyperLogLog;
+    final int[] tripleCounts;
+    final int[] distinctHeads;
+    final int[] distinctTails;
+
+    /**
+     * @param triples
+     * @param relationSize
+     * @param threads number of counting threads
+     * @param hyperLogLog true to estimate distinct heads and tails with hyperLogLog, false to count them exactly
+     */
+    public RelationStatistics(TripleStore triples, int relationSize, int threads, Boolean hyperLogLog){
+        long start = System.nanoTime();
+        this.relationSize = relationSize;
+        this.tripleSize = triples.size();
+        this.hyperLogLog = hyperLogLog;
+        this.tripleCounts = new int[relationSize];
+        this.distinctHeads = new int[relationSize];
+        this.distinctTails = new int[relationSize];
+        int chunks = Math.max(1, Math.min(threads, tripleSize / 100000 + 1));
+        ExecutorService executor = chunks == 1 ? null : Executors.newFixedThreadPool(chunks);
+        try {
+            count(triples, chunks, executor);
+        } finally {
+            if (executor != null){
+                executor.shutdownNow();
+            }
+        }
+        logger.info("Relation statistics of " + tripleSize + " triples" + (hyperLogLog == true ? " (hyperLogLog)" : "") + ": "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * statistics of a training set, computed exactly on all cores the first time and cached on the store until triples are added
+     * @param triples
+     * @param relationSize
+     * @return statistics
+     */
+    public static RelationStatistics of(TripleStore triples, int relationSize){
+        synchronized (triples){
+            RelationStatistics statistics = triples.statistics;
+            if (statistics != null && statistics.relationSize == relationSize && statistics.tripleSize == triples.size()){
+                return statistics;
+            }
+        }
+        return of(triples, relationSize, false);
+    }
+
+    /**
+     * like of(triples, relationSize) but computed with or without hyperLogLog if the cached statistics were not. Call it before training to
+     * make every model use hyperLogLog statistics of a huge training set
+     * @param triples
+     * @param relationSize
+     * @param hyperLogLog
+     * @return statistics
+     */
+    public static RelationStatistics of(TripleStore triples, int relationSize, Boolean hyperLogLog){
+        synchronized (triples){
+            RelationStatistics statistics = triples.statistics;
+            if (statistics == null || statistics.relationSize != relationSize || statistics.tripleSize != triples.size()
+                    || !statistics.hyperLogLog.equals(hyperLogLog)){
+                statistics = new RelationStatistics(triples, relationSize, Runtime.getRuntime().availableProcessors(), hyperLogLog);
+                triples.statistics = statistics;
+            }
+            return statistics;
+        }
+    }
+
+    private void count(final TripleStore triples, int chunks, ExecutorService executor){
+        final int[] relations = triples.getRelations();
+        final int[][] chunkCounts = new int[chunks][relationSize];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int c = 0; c < chunks; c++){
+            final int chunk = c;
+            final int start = chunkStart(c, chunks);
+            final int end = chunkStart(c + 1, chunks);
+            tasks.add(() -> {
+                int[] counts = chunkCounts[chunk];
+                for (int j = start; j < end; j++){
+                    counts[relations[j]] ++;
+                }
+                return null;
+            });
+        }
+        run(tasks, executor);
+
+        // start of every (chunk, relation) block in the grouped array: relations in order, chunks in order inside a relation
+        final int[] offsets = new int[relationSize + 1];
+        final int[][] chunkStarts = new int[chunks][relationSize];
+        for (int r = 0; r < relationSize; r++){
+            int position = offsets[r];
+            for (int c = 0; c < chunks; c++){
+                chunkStarts[c][r] = position;
+                position = position + chunkCounts[c][r];
+            }
+            tripleCounts[r] = position - offsets[r];
+            offsets[r + 1] = position;
+        }
+        int[] grouped = new int[tripleSize];
+        distinct(triples.getHeads(), relations, grouped, offsets, chunkStarts, distinctHeads, executor);
+        distinct(triples.getTails(), relations, grouped, offsets, chunkStarts, distinctTails, executor);
+    }
+
+    /**
+     * group an entity column by relation and count (or estimate) the distinct entities of every relation
+     */
+    private void distinct(final int[] entities, final int[] relations, final int[] grouped, final int[] offsets, int[][] chunkStarts,
+                          final int[] result, ExecutorService executor){
+        int chunks = chunkStarts.length;
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int c = 0; c < chunks; c++){
+            final int[] positions = chunkStarts[c].clone();
+            final int start = chunkStart(c, chunks);
+            final int end = chunkStart(c + 1, chunks);
+            tasks.add(() -> {
+                for (int j = start; j < end; j++){
+                    grouped[positions[relations[j]] ++] = entities[j];
+                }
+                return null;
+            });
+        }
+        run(tasks, executor);
+
+        final AtomicInteger nextRelation = new AtomicInteger();
+        tasks.clear();
+        for (int c = 0; c < chunks; c++){
+            tasks.add(() -> {
+                byte[] registers = hyperLogLog == true ? new byte[1 << HLL_PRECISION] : null;
+                for (int r = nextRelation.getAndIncrement(); r < relationSize; r = nextRelation.getAndIncrement()){
+                    int from = offsets[r];
+                    int to = offsets[r + 1];
+                    if (registers != null && to - from > registers.length){
+                        result[r] = estimate(grouped, from, to, registers);
+                        continue;
+                    }
+                    Arrays.sort(grouped, from, to);
+                    int count = 0;
+                    for (int j = from; j < to; j++){
+                        if (j == from || grouped[j] != grouped[j - 1]){
+                            count ++;
+                        }
+                    }
+                    result[r] = count;
+                }
+                return null;
+            });
+        }
+        run(tasks, executor);
+    }
+
+    /**
+     * hyperLogLog estimate of the distinct ids of a segment
+     * @param registers scratch registers of the calling thread
+     */
+    private static int estimate(int[] ids, int from, int to, byte[] registers){
+        Arrays.fill(registers, (byte) 0);
+        for (int j = from; j < to; j++){
+            long hash = mix(ids[j]);
+            int index = (int) (hash >>> (64 - HLL_PRECISION));
+            byte rank = (byte) (Long.numberOfLeadingZeros((hash << HLL_PRECISION) | (1L << (HLL_PRECISION - 1))) + 1);
+            if (rank > registers[index]){
+                registers[index] = rank;
+            }
+        }
+        return cardinality(registers, to - from);
+    }
+
+    /**
+     * splitmix64 finalizer, spreads consecutive ids over all 64 bits
+     */
+    private static long mix(long value){
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * hyperLogLog estimate with the small range correction, at most the number of triples of the relation
+     */
+    private static int cardinality(byte[] registers, int tripleCount){
+        if (tripleCount == 0){
+            return 0;
+        }
+        int m = 1 << HLL_PRECISION;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++){
+            sum = sum + 1d / (1L << registers[i]);
+            if (registers[i] == 0){
+                zeros ++;
+            }
+        }
+        double estimate = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0){
+            estimate = m * Math.log((double) m / zeros); // linear counting for small sets
+        }
+        return (int) Math.max(1, Math.min(tripleCount, Math.round(estimate)));
+    }
+
+    private int chunkStart(int chunk, int chunks){
+        return (int) ((long) tripleSize * chunk / chunks);
+    }
+
+    private static void run(List<Callable<Void>> tasks, ExecutorService executor){
+        try {
+            if (executor == null){
+                for (Callable<Void> task : tasks){
+                    task.call();
+                }
+                return;
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)){
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getRelationSize() {
+        return relationSize;
+    }
+
+    public Boolean isHyperLogLog() {
+        return hyperLogLog;
+    }
+
+    public int tripleCount(int relation){
+        return tripleCounts[relation];
+    }
+
+    public int distinctHeads(int relation){
+        return distinctHeads[relation];
+    }
+
+    public int distinctTails(int relation){
+        return distinctTails[relation];
+    }
+
+    public int maxTripleCount(){
+        return max(tripleCounts);
+    }
+
+    public int maxDistinctHeads(){
+        return max(distinctHeads);
+    }
+
+    public int maxDistinctTails(){
+        return max(distinctTails);
+    }
+
+    private static int max(int[] values){
+        int max = 0;
+        for (int value : values){
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * probability to corrupt the head for bernoulli sampling, tph / (tph + hpt) with tph = triples / distinct heads and
+     * hpt = triples / distinct tails, 0.5 for a relation without triples
+     * @param relation
+     * @return probability
+     */
+    public double headProbability(int relation){
+        if (tripleCounts[relation] == 0){
+            return 0.5d;
+        }
+        double tph = (double) tripleCounts[relation] / distinctHeads[relation];
+        double hpt = (double) tripleCounts[relation] / distinctTails[relation];
+        return tph / (tph + hpt);
+    }
+}
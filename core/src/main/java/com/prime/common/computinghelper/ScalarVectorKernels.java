@@ -0,0 +1,88 @@
+package com.prime.common.computinghelper;
+
+/**
+ * plain loops, used on jdk 8 or when the vector api is not enabled
+ */
+final class ScalarVectorKernels extends VectorKernels {
+
+    public String name(){
+        return "scalar";
+    }
+
+    public double dot(double[] vector1, int offset1, double[] vector2, int offset2, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            sum = sum + vector1[offset1 + i] * vector2[offset2 + i];
+        }
+        return sum;
+    }
+
+    public double squaredNorm(double[] vector, int offset, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            double value = vector[offset + i];
+            sum = sum + value * value;
+        }
+        return sum;
+    }
+
+    public double dot(float[] vector1, int offset1, float[] vector2, int offset2, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            sum = sum + vector1[offset1 + i] * vector2[offset2 + i];
+        }
+        return sum;
+    }
+
+    public double squaredNorm(float[] vector, int offset, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            double value = vector[offset + i];
+            sum = sum + value * value;
+        }
+        return sum;
+    }
+
+    public double squaredDistance(double[] vector1, double[] vector2, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            double difference = vector1[i] - vector2[i];
+            sum = sum + difference * difference;
+        }
+        return sum;
+    }
+
+    public double squaredDistance(double[] vector1, int offset1, double[] vector2, int offset2, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            double difference = vector1[offset1 + i] - vector2[offset2 + i];
+            sum = sum + difference * difference;
+        }
+        return sum;
+    }
+
+    public double distanceL1(double[] vector1, int offset1, double[] vector2, int offset2, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            sum = sum + Math.abs(vector1[offset1 + i] - vector2[offset2 + i]);
+        }
+        return sum;
+    }
+
+    public double distanceL1(double[] head, double[] label, double[] tail, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            sum = sum + Math.abs(tail[i] - head[i] - label[i]);
+        }
+        return sum;
+    }
+
+    public double distanceL2(double[] head, double[] label, double[] tail, int k){
+        double sum = 0;
+        for (int i = 0; i < k; i++){
+            double difference = tail[i] - head[i] - label[i];
+            sum = sum + difference * difference;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,174 @@
+package com.prime.common.computinghelper;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * vector api loops over the preferred lane count of the cpu (4 doubles with avx2, 8 with avx-512), the remainder is done with scalar code.
+ * The jit does not vectorize floating point sums by itself because it must keep the order of additions, the lanes here add in a different order
+ * so results can differ from the scalar kernels in the last bits. Loaded by VectorKernels via reflection, needs jdk 17+ and
+ * --add-modules jdk.incubator.vector.
+ */
+final class SimdVectorKernels extends VectorKernels {
+
+    final static VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    final static VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    SimdVectorKernels(){
+        if (SPECIES.length() < 2){
+            throw new UnsupportedOperationException("no double vector support");
+        }
+    }
+
+    public String name(){
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+
+    public double dot(double[] vector1, int offset1, double[] vector2, int offset2, int k){
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()){
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, vector1, offset1 + i);
+            DoubleVector v2 = DoubleVector.fromArray(SPECIES, vector2, offset2 + i);
+            sum = sum.add(v1.mul(v2));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            result = result + vector1[offset1 + i] * vector2[offset2 + i];
+        }
+        return result;
+    }
+
+    public double squaredNorm(double[] vector, int offset, int k){
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()){
+            DoubleVector v = DoubleVector.fromArray(SPECIES, vector, offset + i);
+            sum = sum.add(v.mul(v));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            double value = vector[offset + i];
+            result = result + value * value;
+        }
+        return result;
+    }
+
+    public double dot(float[] vector1, int offset1, float[] vector2, int offset2, int k){
+        FloatVector sum = FloatVector.zero(FLOAT_SPECIES);
+        int bound = FLOAT_SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()){
+            FloatVector v1 = FloatVector.fromArray(FLOAT_SPECIES, vector1, offset1 + i);
+            FloatVector v2 = FloatVector.fromArray(FLOAT_SPECIES, vector2, offset2 + i);
+            sum = sum.add(v1.mul(v2));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            result = result + vector1[offset1 + i] * vector2[offset2 + i];
+        }
+        return result;
+    }
+
+    public double squaredNorm(float[] vector, int offset, int k){
+        FloatVector sum = FloatVector.zero(FLOAT_SPECIES);
+        int bound = FLOAT_SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()){
+            FloatVector v = FloatVector.fromArray(FLOAT_SPECIES, vector, offset + i);
+            sum = sum.add(v.mul(v));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            double value = vector[offset + i];
+            result = result + value * value;
+        }
+        return result;
+    }
+
+    public double squaredDistance(double[] vector1, double[] vector2, int k){
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()){
+            DoubleVector difference = DoubleVector.fromArray(SPECIES, vector1, i).sub(DoubleVector.fromArray(SPECIES, vector2, i));
+            sum = sum.add(difference.mul(difference));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            double difference = vector1[i] - vector2[i];
+            result = result + difference * difference;
+        }
+        return result;
+    }
+
+    public double squaredDistance(double[] vector1, int offset1, double[] vector2, int offset2, int k){
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()){
+            DoubleVector difference = DoubleVector.fromArray(SPECIES, vector1, offset1 + i).sub(DoubleVector.fromArray(SPECIES, vector2, offset2 + i));
+            sum = sum.add(difference.mul(difference));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            double difference = vector1[offset1 + i] - vector2[offset2 + i];
+            result = result + difference * difference;
+        }
+        return result;
+    }
+
+    public double distanceL1(double[] vector1, int offset1, double[] vector2, int offset2, int k){
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()){
+            DoubleVector difference = DoubleVector.fromArray(SPECIES, vector1, offset1 + i).sub(DoubleVector.fromArray(SPECIES, vector2, offset2 + i));
+            sum = sum.add(difference.abs());
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            result = result + Math.abs(vector1[offset1 + i] - vector2[offset2 + i]);
+        }
+        return result;
+    }
+
+    public double distanceL1(double[] head, double[] label, double[] tail, int k){
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()){
+            DoubleVector difference = DoubleVector.fromArray(SPECIES, tail, i)
+                    .sub(DoubleVector.fromArray(SPECIES, head, i))
+                    .sub(DoubleVector.fromArray(SPECIES, label, i));
+            sum = sum.add(difference.abs());
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            result = result + Math.abs(tail[i] - head[i] - label[i]);
+        }
+        return result;
+    }
+
+    public double distanceL2(double[] head, double[] label, double[] tail, int k){
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()){
+            DoubleVector difference = DoubleVector.fromArray(SPECIES, tail, i)
+                    .sub(DoubleVector.fromArray(SPECIES, head, i))
+                    .sub(DoubleVector.fromArray(SPECIES, label, i));
+            sum = sum.add(difference.mul(difference));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < k; i++){
+            double difference = tail[i] - head[i] - label[i];
+            result = result + difference * difference;
+        }
+        return result;
+    }
+}
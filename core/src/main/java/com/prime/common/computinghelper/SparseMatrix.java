@@ -0,0 +1,307 @@
+package com.prime.common.computinghelper;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * sparse matrix in compressed sparse row (CSR) form: the non zeros of row i are values[rowPointers[i] .. rowPointers[i + 1]) at
+ * columnIndices of the same range, sorted by column. The sparsity pattern is fixed after construction, products and gradient updates only touch
+ * the stored non zeros, so memory and flops scale with the number of non zeros instead of rows * columns.
+ */
+public class SparseMatrix {
+
+    final static int MAX_POWER_ITERATIONS = 100;
+    final static VectorKernels kernels = VectorKernels.get();
+    final static double POWER_ITERATION_TOLERANCE = 1e-5;
+    final int rows;
+    final int columns;
+    final int[] rowPointers;
+    final int[] columnIndices;
+    final double[] values;
+    final double[] singularVector; // right singular vector of the last spectralNorm, starting point of the next one
+
+    /**
+     * @param rows
+     * @param columns
+     * @param rowPointers length rows + 1
+     * @param columnIndices column of every non zero, sorted within a row
+     * @param values value of every non zero
+     */
+    public SparseMatrix(int rows, int columns, int[] rowPointers, int[] columnIndices, double[] values){
+        if (rowPointers.length != rows + 1 || columnIndices.length != values.length || rowPointers[rows] != values.length){
+            throw new IllegalArgumentException("inconsistent csr arrays");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+        this.singularVector = new double[columns];
+        Arrays.fill(singularVector, 1 / Math.sqrt(columns));
+    }
+
+    /**
+     * unstructured sparse matrix of TransSparse: the identity plus nonZerosLeft off-diagonal entries at random positions, initialized uniformly
+     * in (-6/sqrt n, 6/sqrt n)
+     * @param n
+     * @param nonZerosLeft number of off-diagonal non zeros, at most n * (n - 1)
+     * @param random
+     * @return matrix
+     */
+    public static SparseMatrix unstructured(int n, int nonZerosLeft, Random random){
+        long offDiagonal = (long) n * (n - 1);
+        int count = (int) Math.min(Math.max(0, nonZerosLeft), offDiagonal);
+        long[] positions = samplePositions(offDiagonal, count, random);
+        int[] rowPointers = new int[n + 1];
+        int[] columnIndices = new int[n + count];
+        double[] values = new double[n + count];
+        double bound = 6 / Math.sqrt(n);
+        int index = 0;
+        int p = 0;
+        for (int row = 0; row < n; row++){
+            rowPointers[row] = index;
+            boolean diagonal = false;
+            while (p < count && positions[p] / (n - 1) == row){
+                int column = (int) (positions[p] % (n - 1));
+                column = column >= row ? column + 1 : column; // skip the diagonal
+                if (!diagonal && column > row){
+                    columnIndices[index] = row;
+                    values[index ++] = 1d;
+                    diagonal = true;
+                }
+                columnIndices[index] = column;
+                values[index ++] = -bound + 2 * bound * random.nextDouble();
+                p ++;
+            }
+            if (!diagonal){
+                columnIndices[index] = row;
+                values[index ++] = 1d;
+            }
+        }
+        rowPointers[n] = index;
+        return new SparseMatrix(n, n, rowPointers, columnIndices, values);
+    }
+
+    /**
+     * count distinct random values of [0, range), sorted
+     */
+    private static long[] samplePositions(long range, int count, Random random){
+        if (count > range / 2){ // dense, sample the positions to leave out instead
+            long[] excluded = samplePositions(range, (int) (range - count), random);
+            long[] positions = new long[count];
+            int e = 0;
+            int index = 0;
+            for (long position = 0; position < range; position++){
+                if (e < excluded.length && excluded[e] == position){
+                    e ++;
+                } else {
+                    positions[index ++] = position;
+                }
+            }
+            return positions;
+        }
+        long[] positions = new long[count];
+        int size = 0;
+        while (size < count){
+            for (int i = size; i < count; i++){
+                positions[i] = (long) (random.nextDouble() * range);
+            }
+            Arrays.sort(positions, 0, count);
+            size = 0;
+            for (int i = 0; i < count; i++){
+                if (size == 0 || positions[i] != positions[size - 1]){
+                    positions[size ++] = positions[i];
+                }
+            }
+        }
+        return positions;
+    }
+
+    public int rows(){
+        return rows;
+    }
+
+    public int columns(){
+        return columns;
+    }
+
+    public int nonZeros(){
+        return values.length;
+    }
+
+    /**
+     * copy with its own values, the sparsity pattern is shared since it never changes
+     * @return copy
+     */
+    public SparseMatrix copy(){
+        return new SparseMatrix(rows, columns, rowPointers, columnIndices, values.clone());
+    }
+
+    /**
+     * result = matrix * vector
+     * @param vector length columns
+     * @param result length rows
+     */
+    public void multiply(double[] vector, double[] result){
+        for (int row = 0; row < rows; row++){
+            double sum = 0;
+            for (int index = rowPointers[row]; index < rowPointers[row + 1]; index++){
+                sum = sum + values[index] * vector[columnIndices[index]];
+            }
+            result[row] = sum;
+        }
+    }
+
+    /**
+     * result = transpose(matrix) * vector
+     * @param vector length rows
+     * @param result length columns
+     */
+    public void multiplyTransposed(double[] vector, double[] result){
+        Arrays.fill(result, 0, columns, 0d);
+        for (int row = 0; row < rows; row++){
+            double value = vector[row];
+            if (value == 0){
+                continue;
+            }
+            for (int index = rowPointers[row]; index < rowPointers[row + 1]; index++){
+                result[columnIndices[index]] += values[index] * value;
+            }
+        }
+    }
+
+    /**
+     * rank one update restricted to the non zeros, matrix[i][j] += scale * left[i] * right[j]. This is the sgd step for a gradient of the
+     * form left * transpose(right) without leaving the sparsity pattern
+     * @param scale
+     * @param left length rows
+     * @param right length columns
+     */
+    public void addOuter(double scale, double[] left, double[] right){
+        for (int row = 0; row < rows; row++){
+            double factor = scale * left[row];
+            if (factor == 0){
+                continue;
+            }
+            for (int index = rowPointers[row]; index < rowPointers[row + 1]; index++){
+                values[index] += factor * right[columnIndices[index]];
+            }
+        }
+    }
+
+    /**
+     * multiply a batch of vectors, result_i = matrix * vector_i. Batches are stored transposed (element j of vector i at j * count + i), so
+     * every non zero is applied to the whole batch with one contiguous loop
+     * @param batch columns x count
+     * @param count number of vectors
+     * @param result rows x count
+     */
+    public void multiplyBlock(double[] batch, int count, double[] result){
+        Arrays.fill(result, 0, rows * count, 0d);
+        for (int row = 0; row < rows; row++){
+            int out = row * count;
+            for (int index = rowPointers[row]; index < rowPointers[row + 1]; index++){
+                double value = values[index];
+                int in = columnIndices[index] * count;
+                for (int i = 0; i < count; i++){
+                    result[out + i] += value * batch[in + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * multiply a batch of vectors with the transpose, result_i = transpose(matrix) * vector_i, batches stored transposed as in multiplyBlock
+     * @param batch rows x count
+     * @param count number of vectors
+     * @param result columns x count
+     */
+    public void multiplyTransposedBlock(double[] batch, int count, double[] result){
+        Arrays.fill(result, 0, columns * count, 0d);
+        for (int row = 0; row < rows; row++){
+            int in = row * count;
+            for (int index = rowPointers[row]; index < rowPointers[row + 1]; index++){
+                double value = values[index];
+                int out = columnIndices[index] * count;
+                for (int i = 0; i < count; i++){
+                    result[out + i] += value * batch[in + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * sum of rank one updates restricted to the non zeros, matrix[r][c] += scale * sum_i left_i[r] * right_i[c], batches stored transposed as
+     * in multiplyBlock
+     * @param scale
+     * @param left rows x count
+     * @param right columns x count
+     * @param count number of vectors
+     */
+    public void addOuterBlock(double scale, double[] left, double[] right, int count){
+        for (int row = 0; row < rows; row++){
+            for (int index = rowPointers[row]; index < rowPointers[row + 1]; index++){
+                values[index] += scale * kernels.dot(left, row * count, right, columnIndices[index] * count, count);
+            }
+        }
+    }
+
+    public void scale(double factor){
+        for (int index = 0; index < values.length; index++){
+            values[index] = values[index] * factor;
+        }
+    }
+
+    /**
+     * largest singular value by power iteration on transpose(matrix) * matrix, the same norm Helper.normMatrix gets from a full svd. The
+     * iteration starts from the singular vector of the previous call, a matrix changed by a few sgd steps converges in a couple of iterations
+     * @param columnBuffer buffer of length >= columns
+     * @param rowBuffer buffer of length >= rows
+     * @return spectral norm
+     */
+    public double spectralNorm(double[] columnBuffer, double[] rowBuffer){
+        System.arraycopy(singularVector, 0, columnBuffer, 0, columns);
+        double norm = 0;
+        for (int iteration = 0; iteration < MAX_POWER_ITERATIONS; iteration++){
+            multiply(columnBuffer, rowBuffer);
+            multiplyTransposed(rowBuffer, columnBuffer);
+            double sum = 0;
+            for (int i = 0; i < columns; i++){
+                sum = sum + columnBuffer[i] * columnBuffer[i];
+            }
+            double length = Math.sqrt(sum);
+            if (length == 0){
+                if (iteration > 0){
+                    return 0;
+                }
+                Arrays.fill(columnBuffer, 0, columns, 1 / Math.sqrt(columns)); // start vector orthogonal to the row space
+                continue;
+            }
+            for (int i = 0; i < columns; i++){
+                columnBuffer[i] = columnBuffer[i] / length;
+            }
+            double estimate = Math.sqrt(length);
+            if (Math.abs(estimate - norm) <= POWER_ITERATION_TOLERANCE * estimate){
+                norm = estimate;
+                break;
+            }
+            norm = estimate;
+        }
+        System.arraycopy(columnBuffer, 0, singularVector, 0, columns); // races between training threads only change the starting point
+        return norm;
+    }
+
+    /**
+     * dense copy, for inspection and tests
+     * @return rows x columns array
+     */
+    public double[][] toDense(){
+        double[][] dense = new double[rows][columns];
+        for (int row = 0; row < rows; row++){
+            for (int index = rowPointers[row]; index < rowPointers[row + 1]; index++){
+                dense[row][columnIndices[index]] = values[index];
+            }
+        }
+        return dense;
+    }
+}
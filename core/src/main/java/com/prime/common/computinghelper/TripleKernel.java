@@ -0,0 +1,26 @@
+package com.prime.common.computinghelper;
+
+/**
+ * per-triple sgd step of a model, driven by ParallelTrainer. Implementations update the shared model parameters in place and must not keep state
+ * between calls outside of the scratch object, which belongs to a single training thread.
+ * @param <S> per-thread scratch buffers
+ */
+public interface TripleKernel<S> {
+
+    /**
+     * allocate the scratch buffers of one training thread
+     * @return scratch buffers
+     */
+    S newScratch();
+
+    /**
+     * one sgd step for a triple and its corrupted triple, the corrupted triple keeps the relation of the triple
+     * @param head
+     * @param relation
+     * @param tail
+     * @param headC
+     * @param tailC
+     * @param scratch
+     */
+    void update(int head, int relation, int tail, int headC, int tailC, S scratch);
+}
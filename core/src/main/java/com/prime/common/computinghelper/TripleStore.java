@@ -0,0 +1,145 @@
+package com.prime.common.computinghelper;
+
+import org.apache.commons.lang3.tuple.Triple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * int-encoded triples stored as three parallel primitive columns (head, relation, tail). A triple costs 12 bytes instead of a Triple object
+ * with three boxed Integers.
+ */
+public class TripleStore {
+
+    int[] heads;
+    int[] relations;
+    int[] tails;
+    int size;
+    RelationStatistics statistics; // cached by RelationStatistics.of, dropped when triples are added
+
+    public TripleStore(){
+        this(16);
+    }
+
+    /**
+     * @param capacity initial number of triples, the store grows when needed
+     */
+    public TripleStore(int capacity){
+        capacity = Math.max(1, capacity);
+        this.heads = new int[capacity];
+        this.relations = new int[capacity];
+        this.tails = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * convert a list of id triples
+     * @param triples
+     * @return store with the same triples in the same order
+     */
+    public static TripleStore fromTriples(List<Triple<Integer, Integer, Integer>> triples){
+        TripleStore store = new TripleStore(triples.size());
+        for (Triple<Integer, Integer, Integer> triple : triples){
+            store.add(triple.getLeft(), triple.getMiddle(), triple.getRight());
+        }
+        return store;
+    }
+
+    /**
+     * concatenate several stores in order, e.g. the chunks of a parallel loader
+     * @param stores
+     * @return store with all triples
+     */
+    public static TripleStore concat(List<TripleStore> stores){
+        int total = 0;
+        for (TripleStore store : stores){
+            total = total + store.size;
+        }
+        TripleStore result = new TripleStore(total);
+        for (TripleStore store : stores){
+            System.arraycopy(store.heads, 0, result.heads, result.size, store.size);
+            System.arraycopy(store.relations, 0, result.relations, result.size, store.size);
+            System.arraycopy(store.tails, 0, result.tails, result.size, store.size);
+            result.size = result.size + store.size;
+        }
+        return result;
+    }
+
+    public void add(int head, int relation, int tail){
+        if (size == heads.length){
+            int capacity = heads.length + (heads.length >> 1) + 1;
+            heads = Arrays.copyOf(heads, capacity);
+            relations = Arrays.copyOf(relations, capacity);
+            tails = Arrays.copyOf(tails, capacity);
+        }
+        heads[size] = head;
+        relations[size] = relation;
+        tails[size] = tail;
+        size ++;
+        statistics = null;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int head(int index){
+        return heads[index];
+    }
+
+    public int relation(int index){
+        return relations[index];
+    }
+
+    public int tail(int index){
+        return tails[index];
+    }
+
+    /**
+     * head column, only the first size() elements are valid
+     * @return heads
+     */
+    public int[] getHeads() {
+        return heads;
+    }
+
+    /**
+     * relation column, only the first size() elements are valid
+     * @return relations
+     */
+    public int[] getRelations() {
+        return relations;
+    }
+
+    /**
+     * tail column, only the first size() elements are valid
+     * @return tails
+     */
+    public int[] getTails() {
+        return tails;
+    }
+
+    /**
+     * release unused capacity after loading
+     */
+    public void trim(){
+        if (size < heads.length){
+            heads = Arrays.copyOf(heads, size);
+            relations = Arrays.copyOf(relations, size);
+            tails = Arrays.copyOf(tails, size);
+        }
+    }
+
+    /**
+     * convert back to a list of id triples, for code that still works on lists
+     * @return list of triples
+     */
+    public ArrayList<Triple<Integer, Integer, Integer>> toTriples(){
+        ArrayList<Triple<Integer, Integer, Integer>> triples = new ArrayList<Triple<Integer, Integer, Integer>>(size);
+        for (int i = 0; i < size; i++){
+            triples.add(Triple.of(heads[i], relations[i], tails[i]));
+        }
+        return triples;
+    }
+}
@@ -0,0 +1,161 @@
+package com.prime.common.computinghelper;
+
+import org.apache.log4j.Logger;
+
+/**
+ * the distance, norm and dot product loops every model and the similarity search spend their time in. There is a scalar implementation and
+ * one on the jdk vector api (SimdVectorKernels), which is only compiled and used on jdk 17+ with --add-modules jdk.incubator.vector.
+ * The implementation is chosen once at startup, -Dgraph.embeddings.kernels=scalar forces the scalar loops.
+ */
+public abstract class VectorKernels {
+
+    final static Logger logger = Logger.getLogger(VectorKernels.class);
+    final static String SIMD_CLASS = "com.prime.common.computinghelper.SimdVectorKernels";
+
+    private final static VectorKernels SCALAR = new ScalarVectorKernels();
+    private final static VectorKernels SIMD = loadSimd();
+    private final static VectorKernels SELECTED = select();
+
+    /**
+     * @return the implementation used by Helper and the similarity search
+     */
+    public static VectorKernels get(){
+        return SELECTED;
+    }
+
+    /**
+     * @return the scalar implementation
+     */
+    public static VectorKernels scalar(){
+        return SCALAR;
+    }
+
+    /**
+     * @return the vector api implementation
+     * @throws UnsupportedOperationException when the jdk vector api is not available
+     */
+    public static VectorKernels simd(){
+        if (SIMD == null){
+            throw new UnsupportedOperationException("jdk vector api is not available, run on jdk 17+ with --add-modules jdk.incubator.vector");
+        }
+        return SIMD;
+    }
+
+    public static boolean isSimdAvailable(){
+        return SIMD == null ? false : true;
+    }
+
+    private static VectorKernels loadSimd(){
+        try {
+            return (VectorKernels) Class.forName(SIMD_CLASS).getDeclaredConstructor().newInstance();
+        } catch (Exception | LinkageError e) {
+            return null; // class not compiled (jdk 8) or jdk.incubator.vector not added
+        }
+    }
+
+    private static VectorKernels select(){
+        String kernels = System.getProperty("graph.embeddings.kernels", "auto");
+        VectorKernels selected = SIMD != null && !kernels.equals("scalar") ? SIMD : SCALAR;
+        if (kernels.equals("simd") && SIMD == null){
+            logger.warn("vector api is not available, falling back to scalar kernels");
+        }
+        logger.info("Vector kernels: " + selected.name());
+        return selected;
+    }
+
+    /**
+     * @return name of the implementation
+     */
+    public abstract String name();
+
+    /**
+     * dot product of k elements of two arrays, each starting at an offset
+     * @param vector1
+     * @param offset1
+     * @param vector2
+     * @param offset2
+     * @param k
+     * @return dot product
+     */
+    public abstract double dot(double[] vector1, int offset1, double[] vector2, int offset2, int k);
+
+    /**
+     * squared euclidean norm of k elements starting at an offset
+     * @param vector
+     * @param offset
+     * @param k
+     * @return sum of squares
+     */
+    public abstract double squaredNorm(double[] vector, int offset, int k);
+
+    /**
+     * dot product of k elements of two float arrays, each starting at an offset. Used to scan float32 tables, twice as many lanes as double
+     * @param vector1
+     * @param offset1
+     * @param vector2
+     * @param offset2
+     * @param k
+     * @return dot product
+     */
+    public abstract double dot(float[] vector1, int offset1, float[] vector2, int offset2, int k);
+
+    /**
+     * squared euclidean norm of k float elements starting at an offset
+     * @param vector
+     * @param offset
+     * @param k
+     * @return sum of squares
+     */
+    public abstract double squaredNorm(float[] vector, int offset, int k);
+
+    /**
+     * squared euclidean distance between the first k elements of two vectors
+     * @param vector1
+     * @param vector2
+     * @param k
+     * @return sum of squared differences
+     */
+    public abstract double squaredDistance(double[] vector1, double[] vector2, int k);
+
+    /**
+     * squared euclidean distance between k elements of two vectors starting at the given offsets, e.g. rows of flat matrices
+     * @param vector1
+     * @param offset1
+     * @param vector2
+     * @param offset2
+     * @param k
+     * @return sum of squared differences
+     */
+    public abstract double squaredDistance(double[] vector1, int offset1, double[] vector2, int offset2, int k);
+
+    /**
+     * L1 distance between k elements of two vectors starting at the given offsets, sum |vector1 - vector2|
+     * @param vector1
+     * @param offset1
+     * @param vector2
+     * @param offset2
+     * @param k
+     * @return sum of absolute differences
+     */
+    public abstract double distanceL1(double[] vector1, int offset1, double[] vector2, int offset2, int k);
+
+    /**
+     * L1 distance of a triple, sum |tail - head - label|
+     * @param head
+     * @param label
+     * @param tail
+     * @param k
+     * @return distance
+     */
+    public abstract double distanceL1(double[] head, double[] label, double[] tail, int k);
+
+    /**
+     * squared L2 distance of a triple, sum (tail - head - label)^2
+     * @param head
+     * @param label
+     * @param tail
+     * @param k
+     * @return distance
+     */
+    public abstract double distanceL2(double[] head, double[] label, double[] tail, int k);
+}
@@ -1,6 +1,8 @@
 package com.prime.common.embedding;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Random;
 
 import org.apache.commons.lang3.tuple.Triple;
@@ -94,19 +96,20 @@ public class ComputeHelper {
      */
 
     public ArrayList<Triple<Integer, Integer, Integer>> sample( ArrayList<Triple<Integer, Integer, Integer>> triples, int size){
-        ArrayList<Triple<Integer, Integer, Integer>> sBatch = new ArrayList<Triple<Integer, Integer, Integer>>();
-        ArrayList<Integer> randomIndex = new ArrayList<Integer>();
+        ArrayList<Triple<Integer, Integer, Integer>> sBatch = new ArrayList<Triple<Integer, Integer, Integer>>(size);
         Random random = new Random();
         int tripleSize = triples.size();
+        int[] randomIndex = new int[size];
         for (int i = 0; i < size; i++){
-            int index = random.nextInt(tripleSize);
-            while (! randomIndex.contains(index)){
-                randomIndex.add(index);
-            }
+            randomIndex[i] = random.nextInt(tripleSize);
         }
-        for (int idx: randomIndex){
-            sBatch.add(triples.get(idx));
+        Arrays.sort(randomIndex); // duplicates are next to each other after sorting, O(size log size) instead of a list lookup per index
+        for (int i = 0; i < size; i++){
+            if (i == 0 || randomIndex[i] != randomIndex[i - 1]){
+                sBatch.add(triples.get(randomIndex[i]));
+            }
         }
+        Collections.shuffle(sBatch, random);
         return sBatch;
     }
 
@@ -0,0 +1,408 @@
+package com.prime.common.embedding;
+
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.computinghelper.ParallelTrainer;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.ProjectionCache;
+import com.prime.common.computinghelper.TripleKernel;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.evaluation.AsyncValidator;
+import com.prime.common.evaluation.TripleScorer;
+import com.prime.common.io.Node2Id;
+import com.prime.common.io.ReadText;
+import com.prime.common.io.WriteModel;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * TransD algorithm -- project vectors to another space where relation are using vector computing (actually easy computing from identity matrix) instead of matrix. Each entity pair (head, tail) has its specific mapping matrix
+ * TransD's computing is easier compared to transR and, citing the paper, "can be applied to large scale graphs".
+ */
+public class TransD {
+
+    final static Logger logger = Logger.getLogger(TransD.class);
+    Helper helper;
+    EmbeddingTable entityVectors;
+    EmbeddingTable entityProjectionVectors;
+    EmbeddingTable relationVectors;
+    EmbeddingTable relationProjectVectors;
+    int threads;
+    AsyncValidator validator;
+    Precision precision;
+    ProjectionCache projectionCache = new ProjectionCache(ProjectionCache.DEFAULT_CAPACITY);
+
+    public TransD(){
+        this(1);
+    }
+
+    /**
+     * @param threads number of training threads
+     */
+    public TransD(int threads){
+        this(threads, Precision.FLOAT64);
+    }
+
+    /**
+     * @param threads number of training threads
+     * @param precision FLOAT64, or FLOAT32 to keep the vectors in float (half the memory), the sgd arithmetic is done in double either way
+     */
+    public TransD(int threads, Precision precision){
+        this.helper = new Helper();
+        this.threads = Math.max(1, threads);
+        this.precision = precision;
+    }
+
+    /**
+     * initialize entity vectors, relation vectors and their projection vectors. The paper assume m >= n.
+     * @param entitySize
+     * @param n this is dimension of entity vector
+     * @param relationSize
+     * @param m this is dimension of relation vector
+     */
+
+    public void initialize(int entitySize, int n, int relationSize, int m){
+        entityVectors = EmbeddingTable.create(entitySize, n, precision);
+        entityProjectionVectors = EmbeddingTable.create(entitySize, n, precision);
+        relationVectors = EmbeddingTable.create(relationSize, m, precision);
+        relationProjectVectors = EmbeddingTable.create(relationSize, m, precision);
+        projectionCache.invalidate();
+        for (int i = 0; i<entitySize; i++){
+            double[] eVector= helper.initVector(n);
+            double[] normedEVector = helper.norm(eVector);
+            entityVectors.setRow(i, normedEVector);
+            entityProjectionVectors.setRow(i, normedEVector);
+        }
+        for (int j =0; j<relationSize; j++){
+            double[] rVector= helper.initVector(m);
+            double[] normedRVector = helper.norm(rVector);
+            relationVectors.setRow(j, normedRVector);
+            relationProjectVectors.setRow(j, normedRVector);
+        }
+    }
+
+    /**
+     * project vector to another space by vector computing. The original equation is using identity matrix which can instead compute as a vector.
+     * @param entityVector
+     * @param entityProjectionVector
+     * @param relationProjectionVector
+     * @return projected vector with dimension of m (relation vector dimension)
+     */
+
+    private double[] entityProjectedVector(double[] entityVector, double[] entityProjectionVector, double[] relationProjectionVector){
+        double[] eProjectedVector = new double[entityVector.length];
+        double dotProduct = helper.dotProduct(entityVector, entityProjectionVector);
+        for (int i =0; i<relationProjectionVector.length; i++){
+            double number;
+            if(entityVector.length < i){
+                number = dotProduct * relationProjectionVector[i]; // in case m > n.
+            } else{
+                number = dotProduct*relationProjectionVector[i] + entityVector[i];
+            }
+            eProjectedVector[i] = number;
+        }
+        double[] normedVector = helper.norm(eProjectedVector);
+        return normedVector;
+    }
+
+    /**
+     * sgd  note that m and n may not be equal.
+     * @param head
+     * @param relation
+     * @param tail
+     * @param headC
+     * @param tailC
+     * @param rows scratch buffers of the calling thread, eight of dimension n for the entities followed by two of dimension m for the relation
+     * @param learningRate
+     * @param margin
+     * @param n
+     * @param m
+     */
+
+    private void update (int head, int relation, int tail, int headC, int tailC, double[][] rows, double learningRate, double margin, int n, int m){
+        double[] headVector = rows[0];
+        double[] headProjectionVector = rows[1];
+        double[] tailVector= rows[2];
+        double[] tailProjectionVector = rows[3];
+        double[] headCVector = rows[4];
+        double[] headCProjectionVector = rows[5];
+        double[] tailCVector = rows[6];
+        double[] tailCProjectionVector = rows[7];
+        double[] relationVector = rows[8];
+        double[] relationProjectionVector = rows[9];
+        entityVectors.copyRow(head, headVector);
+        entityProjectionVectors.copyRow(head, headProjectionVector);
+        entityVectors.copyRow(tail, tailVector);
+        entityProjectionVectors.copyRow(tail, tailProjectionVector);
+        entityVectors.copyRow(headC, headCVector);
+        entityProjectionVectors.copyRow(headC, headCProjectionVector);
+        entityVectors.copyRow(tailC, tailCVector);
+        entityProjectionVectors.copyRow(tailC, tailCProjectionVector);
+        relationVectors.copyRow(relation, relationVector);
+        relationProjectVectors.copyRow(relation, relationProjectionVector);
+        double[] headProjectedVector = entityProjectedVector(headVector, headProjectionVector, relationProjectionVector);
+        double[] tailProjectedVector = entityProjectedVector(tailVector, tailProjectionVector, relationProjectionVector);
+        double[] headCProjectedVector = entityProjectedVector(headCVector, headCProjectionVector, relationProjectionVector);
+        double[] tailCProjectedVector = entityProjectedVector(tailCVector, tailCProjectionVector, relationProjectionVector);
+        double distanceL2 = helper.distanceL2(headProjectedVector, relationVector, tailProjectedVector, n);
+        double distanceCL2 = helper.distanceL2(headCProjectedVector, relationVector, tailCProjectedVector, n);
+        double loss = margin + distanceL2 - distanceCL2 ;
+        if (loss > 0){
+            double[] newHead = new double[n];
+            double[] newProjectionHead = new double[n];
+            double[] newTail = new double[n];
+            double[] newProjectionTail = new double[n];
+            double[] newRelation = new double[m];
+            double[] newProjectionRelation = new double[m];
+            for (int j =0; j<n;j++){ // update entity vectors
+                double delta = 2*(tailProjectedVector[j] - headProjectedVector[j] - relationVector[j]); // first step chain rule
+                newHead[j] = headVector[j] + learningRate * delta * (headProjectionVector[j] * relationProjectionVector[j]); // the partial derivative includes projection, second step chain rule
+                newProjectionHead[j] = headProjectionVector[j] + learningRate * delta * (headVector[j] * relationProjectionVector[j]); // the partial derivative includes projection, second step chain rule
+                newTail[j] = tailVector[j] - learningRate * delta * (tailProjectedVector[j] * relationProjectionVector[j]); // the partial derivative includes projection, second step chain rule
+                newProjectionTail[j] = tailProjectedVector[j] - learningRate * delta * (tailVector[j] * relationProjectionVector[j]); // the partial derivative includes projection, second step chain rule
+            }
+            for (int s = 0; s<m; s++){ // update relation vectors
+                double delta = 2*(tailProjectedVector[s] - headProjectedVector[s] - relationVector[s]); // first step chain rule
+                double deltaC = 2*(tailCProjectedVector[s] - headCProjectedVector[s] - relationVector[s]); // first step chain rule
+                newRelation[s] = relationVector[s] + learningRate * (delta - deltaC); // relation vector is not affected by projection
+                double dotProductH = helper.dotProduct(headVector, headProjectionVector);
+                double dotProductT = helper.dotProduct(tailVector, tailProjectionVector);
+                newProjectionRelation[s] = relationProjectionVector[s] + learningRate * (delta - deltaC) * (dotProductH - dotProductT); // the partial derivative includes projection, second step chain rule
+            }
+            double[] normedNewHead = helper.norm(newHead);
+            double[] normedNewProjectionHead = helper.norm(newProjectionHead);
+            double[] normedNewTail = helper.norm(newTail);
+            double[] normedNewProjectionTail = helper.norm(newProjectionTail);
+            double[] normedNewRelation = helper.norm(newRelation);
+            double[] normedNewProjectionRelation = helper.norm(newProjectionRelation);
+            entityVectors.setRow(head, normedNewHead);
+            entityProjectionVectors.setRow(head, normedNewProjectionHead);
+            entityVectors.setRow(tail, normedNewTail);
+            entityProjectionVectors.setRow(tail, normedNewProjectionTail);
+            relationVectors.setRow(relation, normedNewRelation);
+            relationProjectVectors.setRow(relation, normedNewProjectionRelation);
+        }
+    }
+
+    /**
+     * sgd kernel run by the training threads
+     * @param learningRate
+     * @param margin
+     * @param n
+     * @param m
+     * @return kernel
+     */
+
+    public TripleKernel<double[][]> kernel(final double learningRate, final double margin, final int n, final int m){
+        return new TripleKernel<double[][]>() {
+            @Override
+            public double[][] newScratch() {
+                double[][] rows = new double[10][];
+                for (int i = 0; i < rows.length; i++){
+                    rows[i] = new double[i < 8 ? n : m];
+                }
+                return rows;
+            }
+
+            @Override
+            public void update(int head, int relation, int tail, int headC, int tailC, double[][] scratch) {
+                TransD.this.update(head, relation, tail, headC, tailC, scratch, learningRate, margin, n, m);
+            }
+        };
+    }
+
+    /**
+     * projection of an entity to the space of a relation, cached until the parameters change. The returned array is shared, do not modify it.
+     * Call invalidateProjections after changing the vectors outside of learn
+     * @param entity
+     * @param relation
+     * @return projected entity vector
+     */
+
+    public double[] projection(int entity, int relation){
+        double[] projected = projectionCache.get(relation, entity);
+        if (projected == null){
+            long generation = projectionCache.generation();
+            projected = entityProjectedVector(entityVectors.row(entity), entityProjectionVectors.row(entity), relationProjectVectors.row(relation));
+            projectionCache.put(relation, entity, projected, generation);
+        }
+        return projected;
+    }
+
+    /**
+     * drop the cached projections, e.g. after sgd steps run through the kernel
+     */
+    public void invalidateProjections(){
+        projectionCache.invalidate();
+    }
+
+    /**
+     * @param capacity maximum number of cached projections, 0 disables the cache
+     */
+    public void setProjectionCacheSize(int capacity){
+        projectionCache = new ProjectionCache(capacity);
+    }
+
+    public ProjectionCache getProjectionCache(){
+        return projectionCache;
+    }
+
+    /**
+     * validation on dev set for transD
+     * @param devTriples
+     * @param margin
+     * @param m
+     * @return
+     */
+
+    private double validation(TripleStore devTriples, double margin, int m){
+        int count = 0;
+        for (int i = 0; i < devTriples.size(); i++){
+            int head = devTriples.head(i);
+            int relation = devTriples.relation(i);
+            int tail = devTriples.tail(i);
+            double[] relationVector = relationVectors.row(relation);
+            double[] projectedHead = projection(head, relation);
+            double[] projectedTail = projection(tail, relation);
+            double distanceL2 = helper.distanceL2(projectedHead, relationVector, projectedTail, m);
+            if (distanceL2 < margin){
+                count ++;
+            }
+        }
+        double accuracy = (double) count / devTriples.size();
+        return accuracy;
+    }
+
+    /**
+     * save trained model in local disk
+     * @param entityOutput
+     * @param relationOutput
+     * @param entity2Id
+     * @param relation2Id
+     */
+    private void saveModel(String entityOutput, String relationOutput, Map<String, Integer> entity2Id, Map<String, Integer> relation2Id){
+        WriteModel writer = new WriteModel();
+        writer.writeBinary(entityOutput, entity2Id, entityVectors);
+        writer.writeBinary(relationOutput, relation2Id, relationVectors);
+    }
+
+    /**
+     * learning phase and cross validation on dev set
+     * @param trainTriples
+     * @param devTriples
+     * @param entitySize
+     * @param relationSize
+     * @param entity2Id
+     * @param relation2Id
+     * @param margin
+     * @param learningRate
+     * @param n
+     * @param m
+     * @param size
+     * @param epochs
+     * @param entityOutput
+     * @param relationOutput
+     */
+    public void learn(TripleStore trainTriples, TripleStore devTriples, int entitySize, int relationSize, Map<String, Integer> entity2Id,
+                      Map<String, Integer> relation2Id, double margin, double learningRate, int n, int m, int size, int epochs, String entityOutput, String relationOutput){
+        initialize(entitySize, n,relationSize, m);
+        ParallelTrainer trainer = new ParallelTrainer(threads, true);
+        TripleKernel<double[][]> kernel = kernel(learningRate, margin, n, m);
+        for(int i = 0; i < epochs; i++){
+            trainer.trainEpochTimed(i, trainTriples, entitySize, relationSize, size, kernel);
+            projectionCache.invalidate();
+
+            if (validator != null && devTriples != null){
+                validator.submit(i, this::snapshotScorer, devTriples);
+                if (validator.shouldStop()){
+                    logger.info("Validation MRR stopped improving, stopping after epoch " + i);
+                    break;
+                }
+            } else if (devTriples != null){
+                double accuracy = validation(devTriples, margin, n);
+                logger.info("Validation Accuracy: " + accuracy + "; Epoch: " + i);
+            }
+
+        }
+        trainer.close();
+        if (validator != null){
+            validator.finish();
+        }
+        saveModel(entityOutput, relationOutput, entity2Id, relation2Id);
+
+    }
+
+    /**
+     * validate the dev set in the background after every epoch (filtered MRR of a sample, with early stopping) instead of the margin accuracy
+     * @param validator null for the synchronous validation
+     */
+    public void setValidator(AsyncValidator validator){
+        this.validator = validator;
+    }
+
+    /**
+     * scoring for link prediction (LinkPredictionEvaluator), entities are projected to the space of the relation and normalized as in
+     * entityProjectedVector
+     * @return scorer
+     */
+    public TripleScorer<double[][]> scorer(){
+        return scorer(entityVectors, entityProjectionVectors, relationVectors, relationProjectVectors);
+    }
+
+    /**
+     * scorer on a copy of the current parameters, it keeps ranking the same model while training goes on (AsyncValidator)
+     * @return scorer
+     */
+    public TripleScorer<double[][]> snapshotScorer(){
+        return scorer(entityVectors.copy(), entityProjectionVectors.copy(), relationVectors.copy(), relationProjectVectors.copy());
+    }
+
+    private TripleScorer<double[][]> scorer(final EmbeddingTable entityVectors, final EmbeddingTable entityProjectionVectors,
+                                            final EmbeddingTable relationVectors, final EmbeddingTable relationProjectVectors){
+        return new TripleScorer<double[][]>() {
+            @Override
+            public int entitySize() {
+                return entityVectors.rows();
+            }
+
+            @Override
+            public int dimension() {
+                return relationVectors.dim();
+            }
+
+            @Override
+            public double[][] newScratch() {
+                return new double[][]{new double[entityVectors.dim()], new double[entityVectors.dim()], new double[relationVectors.dim()]};
+            }
+
+            @Override
+            public void project(int relation, boolean head, int from, int to, double[] block, double[][] scratch) {
+                int n = entityVectors.dim();
+                int m = relationVectors.dim();
+                double[] entityVector = scratch[0];
+                double[] entityProjectionVector = scratch[1];
+                double[] relationProjectionVector = scratch[2];
+                relationProjectVectors.copyRow(relation, relationProjectionVector);
+                for (int entity = from; entity < to; entity++){
+                    entityVectors.copyRow(entity, entityVector);
+                    entityProjectionVectors.copyRow(entity, entityProjectionVector);
+                    double dotProduct = helper.dotProduct(entityVector, entityProjectionVector);
+                    int offset = (entity - from) * m;
+                    for (int i = 0; i < m; i++){
+                        block[offset + i] = dotProduct * relationProjectionVector[i] + (i < n ? entityVector[i] : 0); // in case m > n
+                    }
+                    helper.normalize(block, offset, m);
+                }
+            }
+
+            @Override
+            public void relationVector(int relation, double[] destination) {
+                relationVectors.copyRow(relation, destination);
+            }
+        };
+    }
+}
@@ -0,0 +1,338 @@
+package com.prime.common.embedding;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.computinghelper.ParallelTrainer;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.TripleKernel;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.evaluation.AsyncValidator;
+import com.prime.common.evaluation.TripleScorer;
+import com.prime.common.io.*;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * TransE algorithm -- basic graph embedding
+ *
+ */
+
+public class TransE {
+
+    final static Logger logger = Logger.getLogger(TransE.class);
+    Helper helper;
+    EmbeddingTable relationVectors;
+    EmbeddingTable entityVectors;
+    int threads;
+    AsyncValidator validator;
+    Precision precision;
+
+    public TransE(){
+        this(1);
+    }
+
+    /**
+     * @param threads number of training threads, 1 trains on the calling thread
+     */
+    public TransE(int threads){
+        this(threads, Precision.FLOAT64);
+    }
+
+    /**
+     * @param threads number of training threads, 1 trains on the calling thread
+     * @param precision FLOAT64, or FLOAT32 to keep the vectors in float (half the memory), the sgd arithmetic is done in double either way
+     */
+    public TransE(int threads, Precision precision){
+        this.helper = new Helper();
+        this.threads = Math.max(1, threads);
+        this.precision = precision;
+    }
+
+    /**
+     * initialize relationVectors and entityVectors
+     * @param k
+     */
+
+    public void initialize(int entitySize, int relationSize, int k){
+        relationVectors = EmbeddingTable.create(relationSize, k, precision);
+        entityVectors = EmbeddingTable.create(entitySize, k, precision);
+        for (int i = 0; i < relationSize; i ++){
+            double[] lVector = helper.initVector(k);
+            double[] normedlVector = helper.norm(lVector);
+            relationVectors.setRow(i, normedlVector);
+        }
+
+        for (int j = 0; j < entitySize; j++){
+            double[] eVector = helper.initVector(k);
+            double[] normedeVector = helper.norm(eVector);
+            entityVectors.setRow(j, normedeVector);
+        }
+    }
+
+
+    /**
+     * sgd step for one triple and its corrupted triple, rows are copied into the scratch buffers of the calling thread. Gradients are applied
+     * element by element and the rows are renormalized in place, so a step does not allocate.
+     * @param head
+     * @param label
+     * @param tail
+     * @param headC
+     * @param tailC
+     * @param rows scratch buffers for head, label, tail, corrupted head and corrupted tail
+     * @param margin
+     * @param learningRate
+     * @param L1
+     * @param k
+     */
+
+    private void update(int head, int label, int tail, int headC, int tailC, double[][] rows, double margin, double learningRate, boolean L1, int k){
+        double[] headVector = rows[0];
+        double[] labelVector = rows[1];
+        double[] tailVector = rows[2];
+        double[] headCVector = rows[3];
+        double[] tailCVector = rows[4];
+        entityVectors.copyRow(head, headVector);
+        relationVectors.copyRow(label, labelVector);
+        entityVectors.copyRow(tail, tailVector);
+        entityVectors.copyRow(headC, headCVector);
+        entityVectors.copyRow(tailC, tailCVector);
+        double[] labelCVector = labelVector; // corrupted triples keep the relation
+        double loss;
+        if (L1){
+            loss = margin + helper.distanceL1(headVector, labelVector, tailVector, k) - helper.distanceL1(headCVector, labelCVector, tailCVector, k);
+        } else {
+            loss = margin + helper.distanceL2(headVector, labelVector, tailVector, k) - helper.distanceL2(headCVector, labelCVector, tailCVector, k);
+        }
+        if (loss <= 0){
+            return;
+        }
+        for (int n = 0; n < k; n++){
+            double temp = tailVector[n] - headVector[n] - labelVector[n];
+            double tempC = tailCVector[n] - headCVector[n] - labelCVector[n];
+            double delta; // first step chain rule
+            double deltaC;
+            if (L1){
+                delta = temp >= 0 ? 1d : -1d;
+                deltaC = tempC >= 0 ? 1d : -1d;
+            } else {
+                delta = 2 * temp;
+                deltaC = 2 * tempC;
+            }
+            headVector[n] = headVector[n] + learningRate * delta;
+            labelVector[n] = labelVector[n] + learningRate * (delta - deltaC);
+            tailVector[n] = tailVector[n] - learningRate * delta;
+        }
+        helper.normalize(headVector, k);
+        helper.normalize(labelVector, k);
+        helper.normalize(tailVector, k);
+        entityVectors.setRow(head, headVector);
+        relationVectors.setRow(label, labelVector);
+        entityVectors.setRow(tail, tailVector);
+    }
+
+    /**
+     * sgd kernel run by the training threads
+     * @param margin
+     * @param learningRate
+     * @param L1
+     * @param k
+     * @return kernel
+     */
+
+    public TripleKernel<double[][]> kernel(final double margin, final double learningRate, final Boolean L1, final int k){
+        return new TripleKernel<double[][]>() {
+            @Override
+            public double[][] newScratch() {
+                return new double[5][k];
+            }
+
+            @Override
+            public void update(int head, int relation, int tail, int headC, int tailC, double[][] scratch) {
+                TransE.this.update(head, relation, tail, headC, tailC, scratch, margin, learningRate, L1, k);
+            }
+        };
+    }
+
+    /**
+     * measure training throughput for 1, 2, 4, ... up to maxThreads worker threads, one epoch each on freshly initialized vectors
+     * @param trainTriple
+     * @param entitySize
+     * @param relationSize
+     * @param learningRate
+     * @param margin
+     * @param k
+     * @param L1
+     * @param batchSize
+     * @param maxThreads
+     * @return Map with key thread number and value triples per second
+     */
+
+    public Map<Integer, Double> throughputScaling(TripleStore trainTriple, int entitySize, int relationSize, double learningRate, double margin, int k,
+                                                  Boolean L1, int batchSize, int maxThreads){
+        Map<Integer, Double> scaling = new TreeMap<Integer, Double>();
+        int threadNumber = 1;
+        while (true){
+            initialize(entitySize, relationSize, k);
+            ParallelTrainer trainer = new ParallelTrainer(threadNumber, false);
+            long start = System.nanoTime();
+            long count = trainer.trainEpoch(trainTriple, entitySize, relationSize, batchSize, kernel(margin, learningRate, L1, k));
+            trainer.close();
+            double throughput = count / ((System.nanoTime() - start) / 1e9);
+            scaling.put(threadNumber, throughput);
+            logger.info("Threads: " + threadNumber + "; Triples/sec: " + throughput + "; Speedup: " + throughput / scaling.get(1));
+            if (threadNumber == maxThreads){
+                break;
+            }
+            threadNumber = Math.min(threadNumber * 2, maxThreads);
+        }
+        return scaling;
+    }
+
+    /**
+     * validate the result on dev set after each epoch
+     * @param devTriple
+     * @return accuracy
+     */
+
+    private double validation(TripleStore devTriple, Boolean L1, int k, double margin){
+        int count = 0;
+        for (int i = 0; i < devTriple.size(); i++){
+            int headId = devTriple.head(i);
+            int labelId = devTriple.relation(i);
+            int tailId = devTriple.tail(i);
+            double[] headVector = entityVectors.row(headId);
+            double[] labelVector = relationVectors.row(labelId);
+            double[] tailVector = entityVectors.row(tailId);
+            double distance;
+            if (L1 == true){
+                distance = helper.distanceL1(headVector, labelVector, tailVector, k);
+            } else {
+                distance = helper.distanceL2(headVector, labelVector, tailVector, k);
+            }
+            if (distance < margin){
+                count ++;
+            }
+        }
+        double accuracy = (double) count / devTriple.size() * 100;
+        return accuracy;
+    }
+
+    /**
+     * save trained model in local disk after learning, in the binary model format
+     * @param entityOutput
+     * @throws IOException
+     */
+
+    private void saveModel(String entityOutput, String relationOutput, Map<String, Integer> entity2Id, Map<String, Integer> relation2Id){
+        WriteModel writer = new WriteModel();
+        writer.writeBinary(entityOutput, entity2Id, entityVectors);
+        writer.writeBinary(relationOutput, relation2Id, relationVectors);
+    }
+
+    /**
+     * learning phase and cross validation
+     * @param trainTriple
+     * @param devTriple
+     * @param learningRate
+     * @param margin
+     * @param k
+     * @param L1
+     * @param batchSize
+     * @param epochs
+     * @param entityOutput
+     * @param relationOutput
+     * @throws IOException
+     */
+    public void learn(TripleStore trainTriple, TripleStore devTriple, int entitySize, int relationSize, Map<String, Integer> entity2Id,
+                      Map<String, Integer> relation2Id, double learningRate, double margin, int k, Boolean L1, int batchSize, int epochs, String entityOutput, String relationOutput) throws IOException{
+        initialize(entitySize, relationSize, k);
+        ParallelTrainer trainer = new ParallelTrainer(threads, false);
+        TripleKernel<double[][]> kernel = kernel(margin, learningRate, L1, k);
+        for (int epoch =0; epoch < epochs; epoch ++){
+            trainer.trainEpochTimed(epoch, trainTriple, entitySize, relationSize, batchSize, kernel);
+
+            if (validator != null && devTriple != null){
+                validator.submit(epoch, this::snapshotScorer, devTriple, L1);
+                if (validator.shouldStop()){
+                    logger.info("Validation MRR stopped improving, stopping after epoch " + epoch);
+                    break;
+                }
+            } else if(devTriple != null){
+                double accuracy = validation(devTriple, L1, k, margin);
+                logger.info("Validation Accuracy: " + accuracy + "; Epoch: " + epoch);
+            }
+        }
+        trainer.close();
+        if (validator != null){
+            validator.finish();
+        }
+        saveModel(entityOutput, relationOutput, entity2Id, relation2Id);
+
+    }
+
+    public EmbeddingTable getEntityVectors() {
+        return entityVectors;
+    }
+
+    public EmbeddingTable getRelationVectors() {
+        return relationVectors;
+    }
+
+    /**
+     * validate the dev set in the background after every epoch (filtered MRR of a sample, with early stopping) instead of the margin accuracy
+     * @param validator null for the synchronous validation
+     */
+    public void setValidator(AsyncValidator validator){
+        this.validator = validator;
+    }
+
+    /**
+     * scoring for link prediction (LinkPredictionEvaluator), entities are not projected
+     * @return scorer
+     */
+    public TripleScorer<double[][]> scorer(){
+        return scorer(entityVectors, relationVectors);
+    }
+
+    /**
+     * scorer on a copy of the current parameters, it keeps ranking the same model while training goes on (AsyncValidator)
+     * @return scorer
+     */
+    public TripleScorer<double[][]> snapshotScorer(){
+        return scorer(entityVectors.copy(), relationVectors.copy());
+    }
+
+    private TripleScorer<double[][]> scorer(final EmbeddingTable entityVectors, final EmbeddingTable relationVectors){
+        return new TripleScorer<double[][]>() {
+            @Override
+            public int entitySize() {
+                return entityVectors.rows();
+            }
+
+            @Override
+            public int dimension() {
+                return entityVectors.dim();
+            }
+
+            @Override
+            public double[][] newScratch() {
+                return new double[0][];
+            }
+
+            @Override
+            public void project(int relation, boolean head, int from, int to, double[] block, double[][] scratch) {
+                int k = entityVectors.dim();
+                for (int entity = from; entity < to; entity++){
+                    entityVectors.copyRow(entity, block, (entity - from) * k);
+                }
+            }
+
+            @Override
+            public void relationVector(int relation, double[] destination) {
+                relationVectors.copyRow(relation, destination);
+            }
+        };
+    }
+}
@@ -0,0 +1,357 @@
+package com.prime.common.embedding;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.computinghelper.ParallelTrainer;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.ProjectionCache;
+import com.prime.common.computinghelper.TripleKernel;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.evaluation.AsyncValidator;
+import com.prime.common.evaluation.TripleScorer;
+import com.prime.common.io.WriteModel;
+import org.apache.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * TransH algorithm (projecting vector to a plane where relation vector is) -- reflects one-many/ many-one/ many-many relations
+ */
+
+
+public class TransH {
+
+    final static Logger logger = Logger.getLogger(TransH.class);
+    Helper helper;
+    EmbeddingTable entityVectors;
+    EmbeddingTable relationVectors;
+    EmbeddingTable normalVectors;
+    int threads;
+    AsyncValidator validator;
+    Precision precision;
+    ProjectionCache projectionCache = new ProjectionCache(ProjectionCache.DEFAULT_CAPACITY);
+
+    public TransH(){
+        this(1);
+    }
+
+    /**
+     * @param threads number of training threads
+     */
+    public TransH(int threads){
+        this(threads, Precision.FLOAT64);
+    }
+
+    /**
+     * @param threads number of training threads
+     * @param precision FLOAT64, or FLOAT32 to keep the vectors in float (half the memory), the sgd arithmetic is done in double either way
+     */
+    public TransH(int threads, Precision precision){
+        this.helper = new Helper();
+        this.threads = Math.max(1, threads);
+        this.precision = precision;
+    }
+
+    /**
+     * initialize entity vectors, relation vectors and normal vectors
+     * @param k
+     */
+
+    public void initialize(int entitySize, int relationSize,int k){
+        entityVectors = EmbeddingTable.create(entitySize, k, precision);
+        relationVectors = EmbeddingTable.create(relationSize, k, precision);
+        normalVectors = EmbeddingTable.create(relationSize, k, precision);
+        projectionCache.invalidate();
+        for (int i = 0; i < entitySize; i++){
+            double[] eVector = helper.initVector(k);
+            double[] normedEVector = helper.norm(eVector);
+            entityVectors.setRow(i, normedEVector);
+        }
+        for(int j =0; j < relationSize; j++){
+            double[] rVector = helper.initVector(k);
+            double[] normRVector = helper.norm(rVector);
+            double[] nVector = helper.initVector(k);
+            double[]normNVector = helper.norm(nVector);
+            relationVectors.setRow(j, normRVector);
+            normalVectors.setRow(j, normNVector);
+        }
+    }
+
+
+
+    /**
+     * sgd, the only different is to use project vector of the cost function instead of entity vectors in TransE and there is a soft constraint on orthogonality
+     * @param head
+     * @param relation
+     * @param tail
+     * @param headC
+     * @param tailC
+     * @param rows scratch buffers of the calling thread
+     * @param margin
+     * @param learningRate
+     * @param C hyper-parameter weighting the importance of soft constraints
+     * @param k
+     */
+
+    private void update(int head, int relation, int tail, int headC, int tailC, double[][] rows, double margin, double learningRate, double C, int k){
+        double[] normalVector = rows[0];
+        double[] headVector = rows[1];
+        double[] relationVector = rows[2];
+        double[] tailVector = rows[3];
+        double[] headCVector = rows[4];
+        double[] tailCVector = rows[5];
+        normalVectors.copyRow(relation, normalVector);
+        entityVectors.copyRow(head, headVector);
+        relationVectors.copyRow(relation, relationVector);
+        entityVectors.copyRow(tail, tailVector);
+        entityVectors.copyRow(headC, headCVector);
+        entityVectors.copyRow(tailC, tailCVector);
+        double[] projectHead = helper.planeProjection(headVector, normalVector); // project vector to a plane
+        double[] projectTail = helper.planeProjection(tailVector, normalVector); // project vector to a plane
+        double[] projectHeadC = helper.planeProjection(headCVector, normalVector); // project vector to a plane
+        double[] projectTailC = helper.planeProjection(tailCVector, normalVector); // project vector to a plane
+
+        Boolean orthogonal = helper.checkOrthogonal(relationVector, normalVector);
+        double dotProduct = helper.dotProduct(relationVector, normalVector);
+
+        double distanceL2 = helper.distanceL2(projectHead, relationVector, projectTail, k);
+        double distanceL2C = helper.distanceL2(projectHeadC, relationVector, projectTailC, k);
+        double loss = distanceL2 + margin - distanceL2C;
+        if (loss > 0){
+            double[] newHeadVector = new double[k];
+            double[] newRelationVector = new double[k];
+            double[] newTailVector = new double[k];
+            double[]newNormalVector = new double[k];
+            for (int j = 0; j< k; j++){
+                double delta = 2*(projectTail[j] - projectHead[j] -relationVector[j]);
+                double deltaC = 2*(projectTailC[j] - projectHeadC[j] - relationVector[j]);
+                double constraintR = 0;
+                double constraintN = 0;
+                if (orthogonal == false){
+                    constraintR = 2 *C * dotProduct *normalVector[j]; // constraints if the relation vector and the normal vector is not orthogonal for relation vector
+                    constraintN = 2* C * dotProduct *relationVector[j]; // constraints if not orthogonal for normal vector
+                }
+                double newHead = headVector[j] + learningRate * delta * (1 - Math.pow(normalVector[j], 2)); // the partial derivative includes normal vector, second step chain rule
+                double newRelation = relationVector[j] + learningRate * (delta - deltaC) - constraintR; // relation vector is not affected by normal vector, second step chain rule
+                double newTail = tailVector[j] - learningRate * delta * (1 - Math.pow(normalVector[j], 2)); // the partial derivative includes normal vector
+                double newNormal = normalVector[j] - constraintN; // update normal vector if not orthogonal
+                newHeadVector[j] = newHead;
+                newRelationVector[j] = newRelation;
+                newTailVector[j] = newTail;
+                newNormalVector[j] = newNormal;
+            }
+            double[] normedHeadVector = helper.norm(newHeadVector);
+            double[] normedRelationVector = helper.norm(newRelationVector);
+            double[] normedTailVector = helper.norm(newTailVector);
+            double[] normedNormalVector = helper.norm(newNormalVector);
+            entityVectors.setRow(head, normedHeadVector);
+            entityVectors.setRow(tail, normedTailVector);
+            relationVectors.setRow(relation, normedRelationVector);
+            normalVectors.setRow(relation, normedNormalVector);
+        }
+    }
+
+    /**
+     * sgd kernel run by the training threads
+     * @param margin
+     * @param learningRate
+     * @param C
+     * @param k
+     * @return kernel
+     */
+
+    public TripleKernel<double[][]> kernel(final double margin, final double learningRate, final double C, final int k){
+        return new TripleKernel<double[][]>() {
+            @Override
+            public double[][] newScratch() {
+                return new double[6][k];
+            }
+
+            @Override
+            public void update(int head, int relation, int tail, int headC, int tailC, double[][] scratch) {
+                TransH.this.update(head, relation, tail, headC, tailC, scratch, margin, learningRate, C, k);
+            }
+        };
+    }
+
+    /**
+     * projection of an entity to the hyperplane of a relation, cached until the parameters change. The returned array is shared, do not modify
+     * it. Call invalidateProjections after changing the vectors outside of learn
+     * @param entity
+     * @param relation
+     * @return projected entity vector
+     */
+
+    public double[] projection(int entity, int relation){
+        double[] projected = projectionCache.get(relation, entity);
+        if (projected == null){
+            long generation = projectionCache.generation();
+            projected = helper.planeProjection(entityVectors.row(entity), normalVectors.row(relation));
+            projectionCache.put(relation, entity, projected, generation);
+        }
+        return projected;
+    }
+
+    /**
+     * drop the cached projections, e.g. after sgd steps run through the kernel
+     */
+    public void invalidateProjections(){
+        projectionCache.invalidate();
+    }
+
+    /**
+     * @param capacity maximum number of cached projections, 0 disables the cache
+     */
+    public void setProjectionCacheSize(int capacity){
+        projectionCache = new ProjectionCache(capacity);
+    }
+
+    public ProjectionCache getProjectionCache(){
+        return projectionCache;
+    }
+
+    /**
+     * validation on dev set
+     * @param devTriples
+     * @param margin
+     * @param k
+     * @return
+     */
+
+    private double validation(TripleStore devTriples, double margin, int k){
+        int count = 0;
+        for (int i = 0; i < devTriples.size(); i++){
+            int head = devTriples.head(i);
+            int relation = devTriples.relation(i);
+            int tail = devTriples.tail(i);
+            double[] relationVector = relationVectors.row(relation);
+            double[] projectHead = projection(head, relation);
+            double[] projectTail = projection(tail, relation);
+            double distanceL2 = helper.distanceL2(projectHead, relationVector, projectTail, k);
+            if (distanceL2 < margin){
+                count ++;
+            }
+        }
+        double accuracy = (double) count / devTriples.size();
+        return accuracy;
+    }
+
+    /**
+     * save trained model in a local disk
+     * @param entityOutput
+     * @param relationOutput
+     */
+
+    private void saveModel(String entityOutput, String relationOutput, Map<String, Integer> entity2Id, Map<String, Integer> relation2Id){
+        WriteModel writer = new WriteModel();
+        writer.writeBinary(entityOutput, entity2Id, entityVectors);
+        writer.writeBinary(relationOutput, relation2Id, relationVectors);
+    }
+
+    /**
+     * learning phase and cross validation after each epoch
+     * @param devTriples
+     * @param margin
+     * @param learningRate
+     * @param C
+     * @param k
+     * @param size
+     * @param epochs
+     * @param entityOutput
+     * @param relationOutput
+     */
+
+    public void learn(TripleStore trainTriples, TripleStore devTriples, int entitySize, int relationSize, Map<String, Integer> entity2Id,
+                      Map<String, Integer> relation2Id, double margin, double learningRate, double C, int k, int size, int epochs, String entityOutput, String relationOutput){
+        initialize(entitySize, relationSize, k);
+        ParallelTrainer trainer = new ParallelTrainer(threads, true);
+        TripleKernel<double[][]> kernel = kernel(margin, learningRate, C, k);
+        for(int i = 0; i < epochs; i++){
+            trainer.trainEpochTimed(i, trainTriples, entitySize, relationSize, size, kernel);
+            projectionCache.invalidate();
+
+            if (validator != null && devTriples != null){
+                validator.submit(i, this::snapshotScorer, devTriples);
+                if (validator.shouldStop()){
+                    logger.info("Validation MRR stopped improving, stopping after epoch " + i);
+                    break;
+                }
+            } else if (devTriples != null){
+                double accuracy = validation(devTriples, margin, k);
+                logger.info("Validation Accuracy: " + accuracy + "; Epoch: " + i);
+            }
+
+        }
+        trainer.close();
+        if (validator != null){
+            validator.finish();
+        }
+        saveModel(entityOutput, relationOutput, entity2Id, relation2Id);
+
+    }
+
+    /**
+     * validate the dev set in the background after every epoch (filtered MRR of a sample, with early stopping) instead of the margin accuracy
+     * @param validator null for the synchronous validation
+     */
+    public void setValidator(AsyncValidator validator){
+        this.validator = validator;
+    }
+
+    /**
+     * scoring for link prediction (LinkPredictionEvaluator), entities are projected to the hyperplane of the relation
+     * @return scorer
+     */
+    public TripleScorer<double[][]> scorer(){
+        return scorer(entityVectors, relationVectors, normalVectors);
+    }
+
+    /**
+     * scorer on a copy of the current parameters, it keeps ranking the same model while training goes on (AsyncValidator)
+     * @return scorer
+     */
+    public TripleScorer<double[][]> snapshotScorer(){
+        return scorer(entityVectors.copy(), relationVectors.copy(), normalVectors.copy());
+    }
+
+    private TripleScorer<double[][]> scorer(final EmbeddingTable entityVectors, final EmbeddingTable relationVectors,
+                                            final EmbeddingTable normalVectors){
+        return new TripleScorer<double[][]>() {
+            @Override
+            public int entitySize() {
+                return entityVectors.rows();
+            }
+
+            @Override
+            public int dimension() {
+                return entityVectors.dim();
+            }
+
+            @Override
+            public double[][] newScratch() {
+                return new double[2][entityVectors.dim()];
+            }
+
+            @Override
+            public void project(int relation, boolean head, int from, int to, double[] block, double[][] scratch) {
+                int k = entityVectors.dim();
+                double[] normalVector = scratch[0];
+                double[] entityVector = scratch[1];
+                normalVectors.copyRow(relation, normalVector);
+                for (int entity = from; entity < to; entity++){
+                    entityVectors.copyRow(entity, entityVector);
+                    double dotProduct = helper.dotProduct(entityVector, normalVector);
+                    int offset = (entity - from) * k;
+                    for (int i = 0; i < k; i++){
+                        block[offset + i] = entityVector[i] - dotProduct * normalVector[i];
+                    }
+                }
+            }
+
+            @Override
+            public void relationVector(int relation, double[] destination) {
+                relationVectors.copyRow(relation, destination);
+            }
+        };
+    }
+}
@@ -0,0 +1,644 @@
+package com.prime.common.embedding;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.computinghelper.ParallelTrainer;
+import com.prime.common.computinghelper.RelationBatchKernel;
+import com.prime.common.computinghelper.RelationStatistics;
+import com.prime.common.computinghelper.SparseMatrix;
+import com.prime.common.computinghelper.TripleKernel;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.evaluation.AsyncValidator;
+import com.prime.common.evaluation.TripleScorer;
+import com.prime.common.io.WriteModel;
+import org.apache.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * TransSparse algorithm -- TransSparse(share) head and tail share the same sparse matrix to project on another space where relation vector is. TransSparse(separate) head and tail have its own correspoinding matrix
+ * In this implemention the sparse matrices are unstructured. I cannot think a simple way to generate a structured matrices...
+ * The matrices are stored in CSR form (SparseMatrix), projections and gradient updates only touch the non zeros, so memory and time scale with the
+ * number of non zeros of each relation instead of n * n.
+ */
+
+public class TransSparseX {
+
+    final static Logger logger = Logger.getLogger(TransSparseX.class);
+    EmbeddingTable entityVectors;
+    EmbeddingTable relationVectors;
+    ArrayList<SparseMatrix> matrices;
+    ArrayList<SparseMatrix> headMatrices;
+    ArrayList<SparseMatrix> tailMatrices;
+    Helper helper;
+    Boolean separate;
+    int threads;
+    AsyncValidator validator;
+
+    public TransSparseX(Boolean separate){
+        this(separate, 1);
+    }
+
+    /**
+     * @param separate
+     * @param threads number of training threads
+     */
+    public TransSparseX(Boolean separate, int threads){
+        this.helper = new Helper();
+        this.separate = separate;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * get the number of none zeros in the sparse matrices minus diagonal numbers for TransSparse(share), from the number of triples per relation
+     * @param statistics
+     * @param theta minimum sparse degree of sparse matrix
+     * @param n
+     * @return
+     */
+    private ArrayList<Integer> nonZerosLeft(RelationStatistics statistics, double theta, int n){
+        int[] pairNumbers = new int[statistics.getRelationSize()];
+        for (int i = 0; i < pairNumbers.length; i++){
+            pairNumbers[i] = statistics.tripleCount(i);
+        }
+        return nonZerosLeft(pairNumbers, statistics.maxTripleCount(), theta, n);
+    }
+
+    /**
+     * get the number of none zeros in the sparse matrices minus diagonal numbers for TransSparse(separate), from the number of distinct heads
+     * or tails per relation
+     * @param statistics
+     * @param headSet
+     * @param theta
+     * @param n
+     * @return
+     */
+    private ArrayList<Integer> nonZerosLeftSep(RelationStatistics statistics, Boolean headSet, double theta, int n){
+        int[] entityNumbers = new int[statistics.getRelationSize()];
+        for (int i = 0; i < entityNumbers.length; i++){
+            entityNumbers[i] = headSet == true ? statistics.distinctHeads(i) : statistics.distinctTails(i);
+        }
+        return nonZerosLeft(entityNumbers, headSet == true ? statistics.maxDistinctHeads() : statistics.maxDistinctTails(), theta, n);
+    }
+
+    private ArrayList<Integer> nonZerosLeft(int[] numbers, int max, double theta, int n){
+        ArrayList<Integer> nzLs = new ArrayList<Integer>();
+        max = Math.max(1, max);
+        for (int i = 0; i< numbers.length; i++) {
+            double thetaR = 1 - (1 - theta) * ((double) numbers[i] / max); // sparse degree, the most frequent relation gets theta
+            int nz = (int) Math.round((1 - thetaR) * n * n);
+            int nzL;
+            if (nz < n) {
+                nzL = 0;
+            } else {
+                nzL = nz - n;
+            }
+            nzLs.add(nzL);
+        }
+        return nzLs;
+    }
+
+    /**
+     * initialize entity and relation vectors, and sparse matrices for both models
+     * @param transEEntityVectors
+     * @param transERelationVectors
+     * @param n
+     * @param triples
+     * @param relationSize
+     * @param theta
+     */
+    public void initialize(EmbeddingTable transEEntityVectors, EmbeddingTable transERelationVectors, int n, TripleStore triples, int relationSize, double theta){
+        entityVectors = transEEntityVectors; // use the result of TransE
+        relationVectors = transERelationVectors; // use the result of TransE
+        Random random = new Random();
+        RelationStatistics statistics = RelationStatistics.of(triples, relationSize); // shared with the bernoulli sampling of the trainer
+        if(separate == true){
+            headMatrices = new ArrayList<SparseMatrix>();
+            tailMatrices = new ArrayList<SparseMatrix>();
+            ArrayList<Integer> headnzL = nonZerosLeftSep(statistics, true, theta, n);
+            for (int h = 0; h < headnzL.size(); h++){
+                headMatrices.add(SparseMatrix.unstructured(n, headnzL.get(h), random));
+            }
+            ArrayList<Integer> tailnzL = nonZerosLeftSep(statistics, false, theta, n);
+            for (int t = 0; t < tailnzL.size(); t++){
+                tailMatrices.add(SparseMatrix.unstructured(n, tailnzL.get(t), random));
+            }
+        } else {
+            matrices = new ArrayList<SparseMatrix>();
+            ArrayList<Integer> nonZeros = nonZerosLeft(statistics, theta, n);
+            for (int i = 0; i < relationSize; i ++){
+                matrices.add(SparseMatrix.unstructured(n, nonZeros.get(i), random));
+            }
+        }
+    }
+
+    /**
+     * sgd, the projection is matrix * vector. Gradients reach the entities through transpose(matrix) * delta and the matrices through
+     * delta * transpose(entity), restricted to the non zeros of the matrix
+     * @param head
+     * @param relation
+     * @param tail
+     * @param headN
+     * @param tailN
+     * @param rows scratch buffers of the calling thread
+     * @param learningRate
+     * @param margin
+     * @param n
+     * @param L1
+     */
+    private void update(int head, int relation, int tail, int headN, int tailN, double[][] rows, double learningRate, double margin, int n, Boolean L1){
+        double[] headVector = rows[0];
+        double[] relationVector = rows[1];
+        double[] tailVector = rows[2];
+        double[] headNVector = rows[3];
+        double[] tailNVector = rows[4];
+        double[] headProjectionVector = rows[5];
+        double[] tailProjectionVector = rows[6];
+        double[] headNProjectionVector = rows[7];
+        double[] tailNProjectionVector = rows[8];
+        double[] delta = rows[9];
+        double[] deltaC = rows[10];
+        double[] headGradient = rows[11];
+        double[] tailGradient = rows[12];
+        double[] work = rows[13];
+        double[] workN = rows[14];
+        entityVectors.copyRow(head, headVector);
+        relationVectors.copyRow(relation, relationVector);
+        entityVectors.copyRow(tail, tailVector);
+        entityVectors.copyRow(headN, headNVector);
+        entityVectors.copyRow(tailN, tailNVector);
+        SparseMatrix hMatrix = separate == true ? headMatrices.get(relation) : matrices.get(relation);
+        SparseMatrix tMatrix = separate == true ? tailMatrices.get(relation) : hMatrix;
+        hMatrix.multiply(headVector, headProjectionVector);
+        hMatrix.multiply(headNVector, headNProjectionVector);
+        tMatrix.multiply(tailVector, tailProjectionVector);
+        tMatrix.multiply(tailNVector, tailNProjectionVector);
+        helper.normalize(headProjectionVector, n);
+        helper.normalize(tailProjectionVector, n);
+        helper.normalize(headNProjectionVector, n);
+        helper.normalize(tailNProjectionVector, n);
+        double loss;
+        if (L1 == true){
+            loss = margin + helper.distanceL1(headProjectionVector, relationVector, tailProjectionVector, n)
+                    - helper.distanceL1(headNProjectionVector, relationVector, tailNProjectionVector, n);
+        } else {
+            loss = margin + helper.distanceL2(headProjectionVector, relationVector, tailProjectionVector, n)
+                    - helper.distanceL2(headNProjectionVector, relationVector, tailNProjectionVector, n);
+        }
+        if (loss <= 0){
+            return;
+        }
+        for (int j = 0; j < n; j++){
+            double temp = tailProjectionVector[j] - headProjectionVector[j] - relationVector[j];
+            double tempC = tailNProjectionVector[j] - headNProjectionVector[j] - relationVector[j];
+            if (L1 == true){
+                delta[j] = temp >= 0 ? 1d : -1d; // first step chain rule
+                deltaC[j] = tempC >= 0 ? 1d : -1d;
+            } else {
+                delta[j] = 2 * temp; // first step chain rule
+                deltaC[j] = 2 * tempC;
+            }
+        }
+
+        hMatrix.multiplyTransposed(delta, headGradient); // second step chain rule, with the matrices before the update
+        tMatrix.multiplyTransposed(delta, tailGradient);
+        if (separate == true){
+            hMatrix.addOuter(learningRate, delta, headVector);
+            hMatrix.addOuter(-learningRate, deltaC, headNVector);
+            tMatrix.addOuter(-learningRate, delta, tailVector);
+            tMatrix.addOuter(learningRate, deltaC, tailNVector);
+        } else {
+            for (int j = 0; j < n; j++){
+                work[j] = headVector[j] - tailVector[j];
+                workN[j] = headNVector[j] - tailNVector[j];
+            }
+            hMatrix.addOuter(learningRate, delta, work);
+            hMatrix.addOuter(-learningRate, deltaC, workN);
+        }
+        for (int j = 0; j < n; j++){
+            headVector[j] = headVector[j] + learningRate * headGradient[j];
+            relationVector[j] = relationVector[j] + learningRate * (delta[j] - deltaC[j]); // relation vector is not affected by the matrix
+            tailVector[j] = tailVector[j] - learningRate * tailGradient[j];
+        }
+        helper.normalize(headVector, n);
+        helper.normalize(relationVector, n);
+        helper.normalize(tailVector, n);
+        entityVectors.setRow(head, headVector);
+        relationVectors.setRow(relation, relationVector);
+        entityVectors.setRow(tail, tailVector);
+        normMatrix(hMatrix, work, workN);
+        if (separate == true){
+            normMatrix(tMatrix, work, workN);
+        }
+    }
+
+    /**
+     * grow a scratch buffer of the calling thread
+     */
+    private static double[] buffer(double[][] rows, int index, int length){
+        if (rows[index] == null || rows[index].length < length){
+            rows[index] = new double[length];
+        }
+        return rows[index];
+    }
+
+    /**
+     * sgd on the triples of one relation of a mini-batch. The vectors of the group are stored as columns of n x count blocks, every non zero
+     * of the sparse matrices is applied to all of them in one contiguous loop: one sparse-dense product for the projections and one for the
+     * entity gradients, and a sum of outer products for the matrix update. The matrices are normalized once for the group
+     * @param relation
+     * @param heads
+     * @param tails
+     * @param headsN
+     * @param tailsN
+     * @param size number of triples
+     * @param rows scratch buffers of the calling thread
+     * @param learningRate
+     * @param margin
+     * @param n
+     * @param L1
+     */
+    private void updateRelation(int relation, int[] heads, int[] tails, int[] headsN, int[] tailsN, int size, double[][] rows, double learningRate,
+                                double margin, int n, Boolean L1){
+        int pairs = 2 * size;
+        double[] vector = rows[0];
+        double[] relationVector = rows[1];
+        double[] headBatch = buffer(rows, 15, n * pairs); // column 2i head, 2i + 1 corrupted head of triple i
+        double[] tailBatch = buffer(rows, 16, n * pairs);
+        double[] headProjections = buffer(rows, 17, n * pairs);
+        double[] tailProjections = buffer(rows, 18, n * pairs);
+        double[] delta = buffer(rows, 19, n * size); // column a for the a-th violating triple
+        double[] deltaC = buffer(rows, 20, n * size);
+        double[] headColumns = buffer(rows, 21, n * size); // separate: head, share: head - tail
+        double[] headNColumns = buffer(rows, 22, n * size);
+        double[] tailColumns = buffer(rows, 23, n * size);
+        double[] tailNColumns = buffer(rows, 24, n * size);
+        double[] headGradients = buffer(rows, 25, n * size);
+        double[] tailGradients = buffer(rows, 26, n * size);
+        double[] losses = buffer(rows, 27, size);
+        double[] norms = buffer(rows, 28, pairs);
+        SparseMatrix hMatrix = separate == true ? headMatrices.get(relation) : matrices.get(relation);
+        SparseMatrix tMatrix = separate == true ? tailMatrices.get(relation) : hMatrix;
+        relationVectors.copyRow(relation, relationVector);
+        for (int i = 0; i < size; i++){
+            gather(heads[i], vector, headBatch, 2 * i, pairs, n);
+            gather(headsN[i], vector, headBatch, 2 * i + 1, pairs, n);
+            gather(tails[i], vector, tailBatch, 2 * i, pairs, n);
+            gather(tailsN[i], vector, tailBatch, 2 * i + 1, pairs, n);
+        }
+        hMatrix.multiplyBlock(headBatch, pairs, headProjections);
+        tMatrix.multiplyBlock(tailBatch, pairs, tailProjections);
+        normalizeColumns(headProjections, pairs, n, norms);
+        normalizeColumns(tailProjections, pairs, n, norms);
+        Arrays.fill(losses, 0, size, margin);
+        for (int j = 0; j < n; j++){
+            int row = j * pairs;
+            for (int i = 0; i < size; i++){
+                double temp = tailProjections[row + 2 * i] - headProjections[row + 2 * i] - relationVector[j];
+                double tempC = tailProjections[row + 2 * i + 1] - headProjections[row + 2 * i + 1] - relationVector[j];
+                losses[i] = losses[i] + (L1 == true ? Math.abs(temp) - Math.abs(tempC) : temp * temp - tempC * tempC);
+            }
+        }
+        int active = 0; // number of violating triples
+        for (int i = 0; i < size; i++){
+            if (losses[i] > 0){
+                active ++;
+            }
+        }
+        if (active == 0){
+            return;
+        }
+        int a = 0;
+        for (int i = 0; i < size; i++){
+            if (losses[i] <= 0){
+                continue;
+            }
+            for (int j = 0; j < n; j++){
+                int row = j * pairs;
+                double temp = tailProjections[row + 2 * i] - headProjections[row + 2 * i] - relationVector[j];
+                double tempC = tailProjections[row + 2 * i + 1] - headProjections[row + 2 * i + 1] - relationVector[j];
+                int out = j * active + a;
+                if (L1 == true){
+                    delta[out] = temp >= 0 ? 1d : -1d; // first step chain rule
+                    deltaC[out] = tempC >= 0 ? 1d : -1d;
+                } else {
+                    delta[out] = 2 * temp; // first step chain rule
+                    deltaC[out] = 2 * tempC;
+                }
+                double head = headBatch[row + 2 * i];
+                double headN = headBatch[row + 2 * i + 1];
+                double tail = tailBatch[row + 2 * i];
+                double tailN = tailBatch[row + 2 * i + 1];
+                if (separate == true){
+                    headColumns[out] = head;
+                    headNColumns[out] = headN;
+                    tailColumns[out] = tail;
+                    tailNColumns[out] = tailN;
+                } else {
+                    headColumns[out] = head - tail;
+                    headNColumns[out] = headN - tailN;
+                }
+            }
+            a ++;
+        }
+
+        hMatrix.multiplyTransposedBlock(delta, active, headGradients); // second step chain rule, with the matrices before the update
+        if (separate == true){
+            tMatrix.multiplyTransposedBlock(delta, active, tailGradients);
+            hMatrix.addOuterBlock(learningRate, delta, headColumns, active);
+            hMatrix.addOuterBlock(-learningRate, deltaC, headNColumns, active);
+            tMatrix.addOuterBlock(-learningRate, delta, tailColumns, active);
+            tMatrix.addOuterBlock(learningRate, deltaC, tailNColumns, active);
+        } else {
+            tailGradients = headGradients;
+            hMatrix.addOuterBlock(learningRate, delta, headColumns, active);
+            hMatrix.addOuterBlock(-learningRate, deltaC, headNColumns, active);
+        }
+        double[] headVector = rows[0];
+        double[] tailVector = rows[2];
+        a = 0;
+        for (int i = 0; i < size; i++){
+            if (losses[i] <= 0){
+                continue;
+            }
+            entityVectors.copyRow(heads[i], headVector); // current rows, an entity can occur more than once in the group
+            entityVectors.copyRow(tails[i], tailVector);
+            relationVectors.copyRow(relation, relationVector);
+            for (int j = 0; j < n; j++){
+                int index = j * active + a;
+                headVector[j] = headVector[j] + learningRate * headGradients[index];
+                relationVector[j] = relationVector[j] + learningRate * (delta[index] - deltaC[index]); // relation vector is not affected by the matrix
+                tailVector[j] = tailVector[j] - learningRate * tailGradients[index];
+            }
+            helper.normalize(headVector, n);
+            helper.normalize(relationVector, n);
+            helper.normalize(tailVector, n);
+            entityVectors.setRow(heads[i], headVector);
+            relationVectors.setRow(relation, relationVector);
+            entityVectors.setRow(tails[i], tailVector);
+            a ++;
+        }
+        normMatrix(hMatrix, rows[13], rows[14]);
+        if (separate == true){
+            normMatrix(tMatrix, rows[13], rows[14]);
+        }
+    }
+
+    /**
+     * copy an entity vector into column column of an n x count block
+     */
+    private void gather(int entity, double[] vector, double[] block, int column, int count, int n){
+        entityVectors.copyRow(entity, vector);
+        for (int j = 0; j < n; j++){
+            block[j * count + column] = vector[j];
+        }
+    }
+
+    /**
+     * normalize every column of an n x count block
+     */
+    private static void normalizeColumns(double[] block, int count, int n, double[] norms){
+        Arrays.fill(norms, 0, count, 0d);
+        for (int j = 0; j < n; j++){
+            int row = j * count;
+            for (int c = 0; c < count; c++){
+                norms[c] = norms[c] + block[row + c] * block[row + c];
+            }
+        }
+        for (int c = 0; c < count; c++){
+            norms[c] = 1 / Math.sqrt(norms[c]);
+        }
+        for (int j = 0; j < n; j++){
+            int row = j * count;
+            for (int c = 0; c < count; c++){
+                block[row + c] = block[row + c] * norms[c];
+            }
+        }
+    }
+
+    /**
+     * scale a matrix to spectral norm 1
+     */
+    private void normMatrix(SparseMatrix matrix, double[] columnBuffer, double[] rowBuffer){
+        double norm = matrix.spectralNorm(columnBuffer, rowBuffer);
+        if (norm > 0){
+            matrix.scale(1 / norm);
+        }
+    }
+
+    /**
+     * sgd kernel run by the training threads, the trainer hands it the mini-batches relation by relation (updateRelation)
+     * @param learningRate
+     * @param margin
+     * @param n
+     * @param L1
+     * @return kernel
+     */
+    public RelationBatchKernel<double[][]> kernel(final double learningRate, final double margin, final int n, final Boolean L1){
+        return new RelationBatchKernel<double[][]>() {
+            @Override
+            public double[][] newScratch() {
+                double[][] rows = new double[29][]; // 15 .. 28 are the batch buffers of updateRelation, allocated on first use
+                for (int i = 0; i < 15; i++){
+                    rows[i] = new double[n];
+                }
+                return rows;
+            }
+
+            @Override
+            public void update(int head, int relation, int tail, int headN, int tailN, double[][] scratch) {
+                TransSparseX.this.update(head, relation, tail, headN, tailN, scratch, learningRate, margin, n, L1);
+            }
+
+            @Override
+            public void updateRelation(int relation, int[] heads, int[] tails, int[] headsN, int[] tailsN, int size, double[][] scratch) {
+                TransSparseX.this.updateRelation(relation, heads, tails, headsN, tailsN, size, scratch, learningRate, margin, n, L1);
+            }
+        };
+    }
+
+    /**
+     * validation on dev set
+     * @param devTriples
+     * @param margin
+     * @param n
+     * @param L1
+     * @return
+     */
+    private double validation(TripleStore devTriples, double margin, int n, Boolean L1){
+        int count = 0;
+        for (int i = 0; i < devTriples.size(); i++){
+            int head = devTriples.head(i);
+            int relation = devTriples.relation(i);
+            int tail = devTriples.tail(i);
+            double[] headVector = entityVectors.row(head);
+            double[] relationVector = relationVectors.row(relation);
+            double[] tailVector = entityVectors.row(tail);
+            double[] projectHead = new double[n];
+            double[] projectTail = new double[n];
+            if(separate == true){
+                headMatrices.get(relation).multiply(headVector, projectHead);
+                tailMatrices.get(relation).multiply(tailVector, projectTail);
+            } else {
+                matrices.get(relation).multiply(headVector, projectHead);
+                matrices.get(relation).multiply(tailVector, projectTail);
+            }
+            double distance;
+            if (L1 == true){
+                distance = helper.distanceL1(projectHead, relationVector, projectTail, n);
+            } else{
+                distance = helper.distanceL2(projectHead, relationVector, projectTail, n);
+            }
+
+            if (distance < margin){
+                count ++;
+            }
+        }
+        double accuracy = (double) count / devTriples.size();
+        return accuracy;
+    }
+
+    /**
+     * save trained model in local disk
+     * @param entityOutput
+     * @param relationOutput
+     * @param entity2Id
+     * @param relation2Id
+     */
+    private void saveModel(String entityOutput, String relationOutput, Map<String, Integer> entity2Id, Map<String, Integer> relation2Id){
+        WriteModel writer = new WriteModel();
+        writer.writeBinary(entityOutput, entity2Id, entityVectors);
+        writer.writeBinary(relationOutput, relation2Id, relationVectors);
+    }
+
+    /**
+     * learning phase and cross validation
+     * @param trainTriples
+     * @param devTriples
+     * @param entitySize
+     * @param relationSize
+     * @param transEEntityVectors
+     * @param transRelationVectors
+     * @param entity2Id
+     * @param relation2Id
+     * @param margin
+     * @param learningRate
+     * @param theta
+     * @param n
+     * @param size
+     * @param epochs
+     * @param L1
+     * @param entityOutput
+     * @param relationOutput
+     */
+    public void learn(TripleStore trainTriples, TripleStore devTriples, int entitySize, int relationSize, EmbeddingTable transEEntityVectors,
+                      EmbeddingTable transRelationVectors, Map<String, Integer> entity2Id, Map<String, Integer> relation2Id, double margin, double learningRate, double theta, int n, int size, int epochs, Boolean L1,
+                      String entityOutput, String relationOutput){
+        initialize(transEEntityVectors, transRelationVectors, n, trainTriples, relationSize, theta);
+        ParallelTrainer trainer = new ParallelTrainer(threads, true);
+        TripleKernel<double[][]> kernel = kernel(learningRate, margin, n, L1);
+        for(int i = 0; i < epochs; i++){
+            trainer.trainEpochTimed(i, trainTriples, entitySize, relationSize, size, kernel);
+
+            if (validator != null && devTriples != null){
+                validator.submit(i, this::snapshotScorer, devTriples, L1);
+                if (validator.shouldStop()){
+                    logger.info("Validation MRR stopped improving, stopping after epoch " + i);
+                    break;
+                }
+            } else if (devTriples != null){
+                double accuracy = validation(devTriples, margin, n, L1);
+                logger.info("Validation Accuracy: " + accuracy + "; Epoch: " + i);
+            }
+
+        }
+        trainer.close();
+        if (validator != null){
+            validator.finish();
+        }
+        saveModel(entityOutput, relationOutput, entity2Id, relation2Id);
+
+    }
+
+    /**
+     * validate the dev set in the background after every epoch (filtered MRR of a sample, with early stopping) instead of the margin accuracy
+     * @param validator null for the synchronous validation
+     */
+    public void setValidator(AsyncValidator validator){
+        this.validator = validator;
+    }
+
+    /**
+     * scoring for link prediction (LinkPredictionEvaluator), entities are projected with the sparse matrix of the relation (the head or tail
+     * matrix for separate) and normalized as in training
+     * @return scorer
+     */
+    public TripleScorer<double[][]> scorer(){
+        return scorer(entityVectors, relationVectors, matrices, headMatrices, tailMatrices);
+    }
+
+    /**
+     * scorer on a copy of the current parameters, it keeps ranking the same model while training goes on (AsyncValidator)
+     * @return scorer
+     */
+    public TripleScorer<double[][]> snapshotScorer(){
+        return scorer(entityVectors.copy(), relationVectors.copy(), copy(matrices), copy(headMatrices), copy(tailMatrices));
+    }
+
+    private static List<SparseMatrix> copy(List<SparseMatrix> matrices){
+        if (matrices == null){
+            return null;
+        }
+        List<SparseMatrix> copies = new ArrayList<SparseMatrix>(matrices.size());
+        for (SparseMatrix matrix : matrices){
+            copies.add(matrix.copy());
+        }
+        return copies;
+    }
+
+    private TripleScorer<double[][]> scorer(final EmbeddingTable entityVectors, final EmbeddingTable relationVectors,
+                                            final List<SparseMatrix> matrices, final List<SparseMatrix> headMatrices,
+                                            final List<SparseMatrix> tailMatrices){
+        return new TripleScorer<double[][]>() {
+            @Override
+            public int entitySize() {
+                return entityVectors.rows();
+            }
+
+            @Override
+            public int dimension() {
+                return relationVectors.dim();
+            }
+
+            @Override
+            public double[][] newScratch() {
+                return new double[2][entityVectors.dim()];
+            }
+
+            @Override
+            public void project(int relation, boolean head, int from, int to, double[] block, double[][] scratch) {
+                int n = relationVectors.dim();
+                SparseMatrix matrix = separate == true ? (head ? headMatrices : tailMatrices).get(relation) : matrices.get(relation);
+                double[] entityVector = scratch[0];
+                double[] projection = scratch[1];
+                for (int entity = from; entity < to; entity++){
+                    entityVectors.copyRow(entity, entityVector);
+                    matrix.multiply(entityVector, projection);
+                    int offset = (entity - from) * n;
+                    System.arraycopy(projection, 0, block, offset, n);
+                    helper.normalize(block, offset, n);
+                }
+            }
+
+            @Override
+            public void relationVector(int relation, double[] destination) {
+                relationVectors.copyRow(relation, destination);
+            }
+
+            @Override
+            public boolean separateProjections() {
+                return separate == true;
+            }
+        };
+    }
+}
@@ -0,0 +1,849 @@
+package com.prime.common.embedding;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Gemm;
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.computinghelper.IndexedRelationBatchKernel;
+import com.prime.common.computinghelper.MatrixConstraint;
+import com.prime.common.computinghelper.ParallelTrainer;
+import com.prime.common.computinghelper.RelationBatchKernel;
+import com.prime.common.computinghelper.RelationCluster;
+import com.prime.common.computinghelper.TripleKernel;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.evaluation.AsyncValidator;
+import com.prime.common.evaluation.TripleScorer;
+import com.prime.common.io.SerializeModelLists;
+import com.prime.common.io.WriteModel;
+import org.apache.log4j.Logger;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TransR algorithm -- project entity vectors to another space in which relation vectors are. CTransR first uses clustering to get cluster-specific relations and then run sgd similar as TransR
+ * Both initialize entity vectors and relation vectors with the result of TransE
+ * TransR is complicated and expensive and CTransR is crazy !!!!
+ * The matrices are updated in place and kept bounded by a MatrixConstraint once per relation group of a mini-batch (TransR: the matrix of the
+ * relation, CTransR: the matrices of the clusters the group updated), SPECTRAL by default: the svd norm of the original implementation by
+ * warm-started power iteration. SVD is the old full decomposition, ROW_NORM clips every row to norm 1 without an iteration.
+ */
+public class XTransR {
+
+    final static Logger logger = Logger.getLogger(XTransR.class);
+    Helper helper;
+    EmbeddingTable entityVectors;
+    EmbeddingTable relationVectors;
+    ArrayList<double[][]> matrices;
+    int[] tripleClusters; // CTransR: cluster id of every training triple, by triple index
+    int[] clusterStarts; // the clusters of relation r are clusterStarts[r] .. clusterStarts[r + 1] - 1
+    EmbeddingTable clusterVectors; // cluster-specific relation vector, by cluster id
+    double[][][] matricesC; // projection matrix, by cluster id
+    ArrayList<double[]> singularVectors; // per relation, start of the next SPECTRAL power iteration
+    double[][] singularVectorsC; // per cluster id
+    Boolean CTransR;
+    int threads;
+    AsyncValidator validator;
+    MatrixConstraint constraint;
+
+    public XTransR(Boolean CTransR){
+        this(CTransR, 1);
+    }
+
+    /**
+     * @param CTransR
+     * @param threads number of training threads
+     */
+    public XTransR(Boolean CTransR, int threads){
+        this(CTransR, threads, MatrixConstraint.SPECTRAL);
+    }
+
+    /**
+     * @param CTransR
+     * @param threads number of training threads
+     * @param constraint how the projection matrices are normalized after a step
+     */
+    public XTransR(Boolean CTransR, int threads, MatrixConstraint constraint){
+        this.helper = new Helper();
+        this.CTransR = CTransR;
+        this.threads = Math.max(1, threads);
+        this.constraint = constraint;
+    }
+
+    /**
+     * initialize transR required vectors and matrices
+     * @param transEEntityVectors
+     * @param transERelationVectors
+     * @param k
+     * @param d
+     */
+    public void initialize(EmbeddingTable transEEntityVectors, EmbeddingTable transERelationVectors, int k, int d){
+        entityVectors = transEEntityVectors; // initialize entity embeddings with results from TransE
+        relationVectors = transERelationVectors; // initialize relation embeddings with results from TransE
+        if (relationVectors.dim() != d){
+            throw new IllegalArgumentException("relation vectors have dimension " + relationVectors.dim() + ", the projection needs d = " + d);
+        }
+        matrices = new ArrayList<double[][]>();
+        singularVectors = new ArrayList<double[]>();
+        for(int i =0; i < relationVectors.rows(); i++){
+            double[][] matrix = helper.identityMatrix(k, d);
+            matrices.add(matrix);
+            singularVectors.add(startVector(d));
+        }
+    }
+
+    /**
+     * using clustering to initialize CTransR required vectors and matrices.
+     * @param transEEntityVectors
+     * @param transERelationVectors
+     * @param relationSize
+     * @param triples
+     * @param clusterNumber
+     * @param clusterEpochs
+     * @param k
+     * @param d
+     */
+    public void initializeC(EmbeddingTable transEEntityVectors, EmbeddingTable transERelationVectors, int relationSize, TripleStore triples, int clusterNumber, int clusterEpochs, int k, int d){
+        if (transEEntityVectors.dim() != d || transERelationVectors.dim() != d){
+            throw new IllegalArgumentException("cluster vectors are offsets of entity vectors, CTransR needs entity and relation dimension d = " + d);
+        }
+        RelationCluster cluster = new RelationCluster(transEEntityVectors, relationSize, triples, clusterNumber, clusterEpochs, k, d, threads);
+        tripleClusters = cluster.getTripleClusters();
+        clusterStarts = cluster.getClusterStarts();
+        clusterVectors = cluster.getClusterVectors(); // initialize relation embeddings with results from TransE
+        matricesC = cluster.getMatrices(); // updated in place by the training threads
+        entityVectors = transEEntityVectors; //initialize entity embeddings with results from TransE
+        relationVectors = transERelationVectors;
+        singularVectorsC = new double[matricesC.length][];
+        for (int c = 0; c < matricesC.length; c++){
+            singularVectorsC[c] = startVector(d);
+        }
+    }
+
+    /**
+     * cluster of a triple that is not in the training set: the cluster of the relation whose vector is closest to the offset (head - tail)
+     * @param relation
+     * @param headVector
+     * @param tailVector
+     * @param offset buffer of length >= k
+     * @param k
+     * @return cluster id, -1 if the relation has no cluster
+     */
+    private int nearestCluster(int relation, double[] headVector, double[] tailVector, double[] offset, int k){
+        return nearestCluster(clusterVectors, relation, headVector, tailVector, offset, k);
+    }
+
+    /**
+     * nearestCluster on other cluster vectors, e.g. the copy of a snapshot scorer
+     */
+    private int nearestCluster(EmbeddingTable clusterVectors, int relation, double[] headVector, double[] tailVector, double[] offset, int k){
+        for (int i = 0; i < k; i++){
+            offset[i] = headVector[i] - tailVector[i];
+        }
+        int nearest = -1;
+        double minDistance = Double.MAX_VALUE;
+        for (int c = clusterStarts[relation]; c < clusterStarts[relation + 1]; c++){
+            double distance = helper.squaredDistance(offset, 0, clusterVectors.page(c), clusterVectors.offset(c), k);
+            if (distance < minDistance){
+                minDistance = distance;
+                nearest = c;
+            }
+        }
+        return nearest;
+    }
+
+    private double[] startVector(int d){
+        double[] vector = new double[d];
+        Arrays.fill(vector, 1 / Math.sqrt(d));
+        return vector;
+    }
+
+    /**
+     * normalize a matrix after its rows were updated in place
+     * @param matrix
+     * @param singularVector start of the power iteration for SPECTRAL
+     * @param rows scratch buffers of the calling thread
+     * @return normalized matrix, a new one for SVD
+     */
+    private double[][] normMatrix(double[][] matrix, double[] singularVector, double[][] rows){
+        if (constraint == MatrixConstraint.SVD){
+            return helper.normMatrix(matrix);
+        }
+        if (constraint == MatrixConstraint.ROW_NORM){
+            for (double[] row : matrix){
+                helper.clipRow(row);
+            }
+        }
+        if (constraint == MatrixConstraint.SPECTRAL){
+            double norm = helper.spectralNorm(matrix, singularVector, rows[5], rows[6]);
+            if (norm > 0){
+                for (double[] row : matrix){
+                    for (int m = 0; m < row.length; m++){
+                        row[m] = row[m] / norm;
+                    }
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * grow a scratch buffer of the calling thread
+     */
+    private static double[] buffer(double[][] rows, int index, int length){
+        if (rows[index] == null || rows[index].length < length){
+            rows[index] = new double[length];
+        }
+        return rows[index];
+    }
+
+    /**
+     * sgd for transR on the triples of one relation of a mini-batch. The head, tail and corrupted vectors of all triples are projected with one
+     * matrix product, the gradients of the violating triples are again two products with the matrix (entities) and a sum of outer products
+     * (matrix), and the matrix is normalized once for the group
+     * @param relation
+     * @param heads
+     * @param tails
+     * @param headsN
+     * @param tailsN
+     * @param size number of triples
+     * @param rows scratch buffers of the calling thread
+     * @param learningRate
+     * @param k
+     * @param d
+     * @param margin
+     */
+    private void updateRelation(int relation, int[] heads, int[] tails, int[] headsN, int[] tailsN, int size, double[][] rows, double learningRate,
+                                int k, int d, double margin){
+        double[] relationVector = rows[4]; // rows 0 .. 3 are the work rows of the matrix products
+        double[] batch = buffer(rows, 7, 4 * size * k); // head, tail, head corrupted, tail corrupted of triple i at rows 4i .. 4i + 3
+        double[] projections = buffer(rows, 8, 4 * size * d);
+        double[] delta = buffer(rows, 9, size * d);
+        double[] deltaC = buffer(rows, 10, size * d);
+        double[] difference = buffer(rows, 11, size * k); // head - tail
+        double[] differenceN = buffer(rows, 12, size * k); // head corrupted - tail corrupted
+        double[] gradients = buffer(rows, 13, size * k);
+        double[] losses = buffer(rows, 14, size);
+        double[][] matrix = matrices.get(relation);
+        relationVectors.copyRow(relation, relationVector);
+        for (int i = 0; i < size; i++){
+            entityVectors.copyRow(heads[i], batch, (4 * i) * k);
+            entityVectors.copyRow(tails[i], batch, (4 * i + 1) * k);
+            entityVectors.copyRow(headsN[i], batch, (4 * i + 2) * k);
+            entityVectors.copyRow(tailsN[i], batch, (4 * i + 3) * k);
+        }
+        Gemm.multiply(batch, 4 * size, matrix, projections, rows); // project vectors to another space
+        for (int v = 0; v < 4 * size; v++){
+            helper.normalize(projections, v * d, d);
+        }
+        int active = 0; // violating triples, their deltas and differences are packed at the front
+        for (int i = 0; i < size; i++){
+            int head = 4 * i * d;
+            int tail = head + d;
+            int headN = tail + d;
+            int tailN = headN + d;
+            double distanceL2 = 0;
+            double distanceNL2 = 0;
+            for (int m = 0; m < d; m++){
+                double temp = projections[tail + m] - projections[head + m] - relationVector[m];
+                double tempC = projections[tailN + m] - projections[headN + m] - relationVector[m];
+                distanceL2 = distanceL2 + temp * temp;
+                distanceNL2 = distanceNL2 + tempC * tempC;
+            }
+            losses[i] = distanceL2 + margin - distanceNL2;
+            if (losses[i] <= 0){
+                continue;
+            }
+            for (int m = 0; m < d; m++){
+                delta[active * d + m] = 2 * (projections[tail + m] - projections[head + m] - relationVector[m]); // first step chain rule
+                deltaC[active * d + m] = 2 * (projections[tailN + m] - projections[headN + m] - relationVector[m]);
+            }
+            for (int j = 0; j < k; j++){
+                difference[active * k + j] = batch[4 * i * k + j] - batch[(4 * i + 1) * k + j];
+                differenceN[active * k + j] = batch[(4 * i + 2) * k + j] - batch[(4 * i + 3) * k + j];
+            }
+            active ++;
+        }
+        if (active == 0){
+            return;
+        }
+        Gemm.multiplyTransposed(delta, active, matrix, gradients); // matrix * delta, second step chain rule, with the matrix before the update
+        Gemm.addTransposedProduct(matrix, learningRate, difference, delta, active, rows); // update the matrix in place
+        Gemm.addTransposedProduct(matrix, -learningRate, differenceN, deltaC, active, rows);
+        matrices.set(relation, normMatrix(matrix, singularVectors.get(relation), rows));
+        double[] headVector = rows[0];
+        double[] tailVector = rows[2];
+        int a = 0;
+        for (int i = 0; i < size; i++){
+            if (losses[i] <= 0){
+                continue;
+            }
+            entityVectors.copyRow(heads[i], headVector); // current rows, an entity can occur more than once in the group
+            entityVectors.copyRow(tails[i], tailVector);
+            relationVectors.copyRow(relation, relationVector);
+            for (int j = 0; j < k; j++){
+                headVector[j] = headVector[j] + learningRate * gradients[a * k + j];
+                tailVector[j] = tailVector[j] - learningRate * gradients[a * k + j];
+            }
+            for (int m = 0; m < d; m++){
+                relationVector[m] = relationVector[m] + learningRate * (delta[a * d + m] - deltaC[a * d + m]); // relation vector is not affected
+            }
+            helper.normalize(headVector, k);
+            helper.normalize(tailVector, k);
+            helper.normalize(relationVector, d);
+            entityVectors.setRow(heads[i], headVector);
+            entityVectors.setRow(tails[i], tailVector);
+            relationVectors.setRow(relation, relationVector);
+            a ++;
+        }
+    }
+
+
+    /**
+     * sgd for the CTransR triples of one relation in a mini-batch, triple by triple. The matrices of the clusters that were updated are
+     * normalized once at the end of the group
+     * @param relation
+     * @param triples index of every triple in the training set, null for triples outside of it (their cluster is the nearest one)
+     * @param heads
+     * @param tails
+     * @param headsN
+     * @param tailsN
+     * @param size number of triples
+     * @param rows scratch buffers of the calling thread
+     * @param learningRate
+     * @param k
+     * @param d
+     * @param margin
+     * @param alpha
+     */
+    private void updateRelationC(int relation, int[] triples, int[] heads, int[] tails, int[] headsN, int[] tailsN, int size, double[][] rows,
+                                 double learningRate, int k, int d, double margin, double alpha){
+        int first = clusterStarts[relation];
+        int clusters = clusterStarts[relation + 1] - first;
+        double[] touched = buffer(rows, 9, clusters); // 1 for a cluster whose matrix was updated
+        Arrays.fill(touched, 0, clusters, 0d);
+        for (int i = 0; i < size; i++){
+            int cluster;
+            if (triples != null){
+                cluster = tripleClusters[triples[i]];
+            } else {
+                cluster = nearestCluster(relation, heads[i], tails[i], rows, k);
+            }
+            if (cluster >= 0 && updateC(cluster, heads[i], relation, tails[i], headsN[i], tailsN[i], rows, learningRate, k, d, margin, alpha)){
+                touched[cluster - first] = 1;
+            }
+        }
+        for (int c = 0; c < clusters; c++){
+            if (touched[c] > 0){
+                matricesC[first + c] = normMatrix(matricesC[first + c], singularVectorsC[first + c], rows);
+            }
+        }
+    }
+
+    /**
+     * sgd for a single CTransR triple outside of a relation group, in the nearest cluster of its relation
+     */
+    private void updateTripleC(int head, int relation, int tail, int headN, int tailN, double[][] rows, double learningRate, int k, int d,
+                               double margin, double alpha){
+        int cluster = nearestCluster(relation, head, tail, rows, k);
+        if (cluster >= 0 && updateC(cluster, head, relation, tail, headN, tailN, rows, learningRate, k, d, margin, alpha)){
+            matricesC[cluster] = normMatrix(matricesC[cluster], singularVectorsC[cluster], rows);
+        }
+    }
+
+    /**
+     * nearestCluster of a triple given by its entities, reads them into rows 0 and 2 and uses row 8 for the offset
+     */
+    private int nearestCluster(int relation, int head, int tail, double[][] rows, int k){
+        entityVectors.copyRow(head, rows[0]);
+        entityVectors.copyRow(tail, rows[2]);
+        return nearestCluster(relation, rows[0], rows[2], rows[8], k);
+    }
+
+    /**
+     * sgd step for a CTransR triple, the matrix is normalized by the caller. Projections, gradients and new vectors live in the scratch rows
+     * 10 .. 19, no allocation per triple
+     * @param cluster cluster id of the triple
+     * @param head
+     * @param relation
+     * @param tail
+     * @param headN
+     * @param tailN
+     * @param rows scratch buffers of the calling thread
+     * @param learningRate
+     * @param k
+     * @param d
+     * @param margin
+     * @param alpha
+     * @return true if the triple violated the margin and the parameters were updated
+     */
+    private boolean updateC(int cluster, int head, int relation, int tail, int headN, int tailN, double[][] rows, double learningRate, int k, int d, double margin, double alpha){
+        double[][] matrix = matricesC[cluster]; // get matrix of the cluster
+        double[] relationC = rows[7];
+        clusterVectors.copyRow(cluster, relationC); // get cluster-specific relation vector
+        double[] headVector = rows[0];
+        double[] relationVector = rows[1];
+        double[] tailVector = rows[2];
+        double[] headNVector = rows[3];
+        double[] tailNVector = rows[4];
+        entityVectors.copyRow(head, headVector);
+        relationVectors.copyRow(relation, relationVector);
+        entityVectors.copyRow(tail, tailVector);
+        entityVectors.copyRow(headN, headNVector);
+        entityVectors.copyRow(tailN, tailNVector);
+        // project to another space using relationC corresponding matrix, normalized in place
+        double[] normHeadRVector = helper.spaceProjection(headVector, matrix, rows[10]);
+        helper.normalize(normHeadRVector, d);
+        double[] normTailRVector = helper.spaceProjection(tailVector, matrix, rows[11]);
+        helper.normalize(normTailRVector, d);
+        double[] normHeadNRVector = helper.spaceProjection(headNVector, matrix, rows[12]);
+        helper.normalize(normHeadNRVector, d);
+        double[] normTailNRVector = helper.spaceProjection(tailNVector, matrix, rows[13]);
+        helper.normalize(normTailNRVector, d);
+        double relationDistance = helper.relationDistanceL2(relationC, relationVector); // constraint ensure relationC and relation is not far away
+        double distance = helper.distanceL2(normHeadRVector, relationC, normTailRVector, d) + alpha * relationDistance; // distance includes relation distance
+        double distanceN = helper.distanceL2(normHeadNRVector, relationC, normTailNRVector, d) + alpha * relationDistance; // distance includes relation distance
+        double loss = distance + margin - distanceN;
+        if (loss > 0){
+            double[] newRelation = rows[14];
+            double[] newRelationC = rows[15];
+            double[] delta = rows[16];
+            double[] deltaC = rows[17];
+            double[] newHead = rows[18];
+            double[] newTail = rows[19];
+            for (int m =0; m<d; m++){
+                delta[m] = 2 * ((normTailRVector[m] - normHeadRVector[m] - relationVector[m])+ alpha * relationDistance); // partial derivation includes relation distance, first step chain rule
+                deltaC[m] = 2* ((normTailNRVector[m] - normHeadNRVector[m] - relationVector[m] + alpha * relationDistance)); // partial derivation includes relation distance, first step chain rule
+                newRelation[m] = relationVector[m] - learningRate * (delta[m] * alpha - deltaC[m] *alpha); // relation is not affected by matrix but affected by relation distance
+                newRelationC[m] = relationC[m] + learningRate *(delta[m] *(1 + alpha) - deltaC[m] * (1 + alpha)); // relationC is not affected by matrix but affected by relation distance
+            }
+            for (int j =0; j<k; j++){
+                double matrixDelta = helper.dotProduct(matrix[j], delta); // (matrix * delta)[j], second step chain rule
+                newHead[j] = headVector[j] + learningRate * matrixDelta;
+                newTail[j] = tailVector[j] - learningRate * matrixDelta;
+            }
+            for (int j =0; j<k; j++){
+                double difference = learningRate * (headVector[j] - tailVector[j]);
+                double differenceN = learningRate * (headNVector[j] - tailNVector[j]);
+                for(int m =0; m < d; m ++){
+                    matrix[j][m] = matrix[j][m] + difference * delta[m] - differenceN * deltaC[m]; // update matrix in place
+                }
+            }
+            helper.normalize(newHead, k);
+            helper.normalize(newRelation, d);
+            helper.normalize(newTail, k);
+            helper.normalize(newRelationC, d);
+            entityVectors.setRow(head, newHead);
+            entityVectors.setRow(tail, newTail);
+            relationVectors.setRow(relation, newRelation);
+            clusterVectors.setRow(cluster, newRelationC);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * sgd kernel run by the training threads, for transR or CTransR. Both train the mini-batches relation by relation (RelationBatchKernel), CTransR
+     * gets the triple indices as well (IndexedRelationBatchKernel) because the matrix depends on the cluster of the triple
+     * @param learningRate
+     * @param k
+     * @param d
+     * @param margin
+     * @param alpha
+     * @return kernel
+     */
+    public TripleKernel<double[][]> kernel(final double learningRate, final int k, final int d, final double margin, final double alpha){
+        if (CTransR){
+            return new IndexedRelationBatchKernel<double[][]>() {
+                @Override
+                public double[][] newScratch() {
+                    double[][] rows = new double[20][]; // 9 are the cluster flags of updateRelationC, allocated on first use
+                    for (int i = 0; i < 5; i++){
+                        rows[i] = new double[Math.max(k, d)];
+                    }
+                    rows[5] = new double[d]; // power iteration buffers
+                    rows[6] = new double[k];
+                    rows[7] = new double[d]; // cluster vector
+                    rows[8] = new double[k]; // offset of a triple outside of the training set
+                    for (int i = 10; i < 18; i++){
+                        rows[i] = new double[d]; // projections, new relation and cluster vectors, gradients of updateC
+                    }
+                    rows[18] = new double[k]; // new head and tail of updateC
+                    rows[19] = new double[k];
+                    return rows;
+                }
+
+                @Override
+                public void update(int head, int relation, int tail, int headN, int tailN, double[][] scratch) {
+                    updateTripleC(head, relation, tail, headN, tailN, scratch, learningRate, k, d, margin, alpha);
+                }
+
+                @Override
+                public void updateRelation(int relation, int[] heads, int[] tails, int[] headsN, int[] tailsN, int size, double[][] scratch) {
+                    updateRelationC(relation, null, heads, tails, headsN, tailsN, size, scratch, learningRate, k, d, margin, alpha);
+                }
+
+                @Override
+                public void updateRelation(int relation, int[] triples, int[] heads, int[] tails, int[] headsN, int[] tailsN, int size,
+                                           double[][] scratch) {
+                    updateRelationC(relation, triples, heads, tails, headsN, tailsN, size, scratch, learningRate, k, d, margin, alpha);
+                }
+            };
+        }
+        return new RelationBatchKernel<double[][]>() {
+            @Override
+            public double[][] newScratch() {
+                double[][] rows = new double[15][]; // 7 .. 14 are the batch buffers of updateRelation, allocated on first use
+                for (int i = 0; i < 5; i++){
+                    rows[i] = new double[Math.max(k, d)];
+                }
+                rows[5] = new double[d]; // power iteration buffers
+                rows[6] = new double[k];
+                return rows;
+            }
+
+            @Override
+            public void update(int head, int relation, int tail, int headN, int tailN, double[][] scratch) {
+                XTransR.this.updateRelation(relation, new int[]{head}, new int[]{tail}, new int[]{headN}, new int[]{tailN}, 1, scratch,
+                        learningRate, k, d, margin);
+            }
+
+            @Override
+            public void updateRelation(int relation, int[] heads, int[] tails, int[] headsN, int[] tailsN, int size, double[][] scratch) {
+                XTransR.this.updateRelation(relation, heads, tails, headsN, tailsN, size, scratch, learningRate, k, d, margin);
+            }
+        };
+    }
+
+    /**
+     * validation on dev set for transR
+     * @param devTriples
+     * @param margin
+     * @param k
+     * @return
+     */
+
+    private double validation(TripleStore devTriples, double margin, int k){
+        int count = 0;
+        for (int i = 0; i < devTriples.size(); i++){
+            int head = devTriples.head(i);
+            int relation = devTriples.relation(i);
+            int tail = devTriples.tail(i);
+            double[] headVector = entityVectors.row(head);
+            double[] relationVector = relationVectors.row(relation);
+            double[] tailVector = entityVectors.row(tail);
+            double[][] matrix = matrices.get(relation);
+            double[] projectHead = helper.spaceProjection(headVector, matrix);
+            double[] projectTail = helper.spaceProjection(tailVector, matrix);
+            double distanceL2 = helper.distanceL2(projectHead, relationVector, projectTail, projectHead.length);
+            if (distanceL2 < margin){
+                count ++;
+            }
+        }
+        double accuracy = (double) count / devTriples.size();
+        return accuracy;
+    }
+
+    /**
+     * validation on dev set for CTransR, because one relation may have k cluster-specific relations. I use euclidean distance between relationC and offset (head - tail) to decide which is the relationC for the pair
+     * @param devTriples
+     * @param margin
+     * @param k
+     * @return
+     */
+    private double validationC(TripleStore devTriples, double margin, int k){
+        int count = 0;
+        double[] offset = new double[k];
+        for (int t = 0; t < devTriples.size(); t++){
+            int head = devTriples.head(t);
+            int relation = devTriples.relation(t);
+            int tail = devTriples.tail(t);
+            double[] headVector = entityVectors.row(head);
+            double[] relationVector = relationVectors.row(relation);
+            double[] tailVector = entityVectors.row(tail);
+            int cluster = nearestCluster(relation, headVector, tailVector, offset, k);
+            if (cluster < 0){
+                continue; // relation without training triples
+            }
+            double[][] matrix = matricesC[cluster];
+            double[] projectHead = helper.spaceProjection(headVector, matrix);
+            double[] projectTail = helper.spaceProjection(tailVector, matrix);
+            double distanceL2 = helper.distanceL2(projectHead, relationVector, projectTail, projectHead.length);
+            if (distanceL2 < margin){
+                count ++;
+            }
+        }
+        double accuracy = (double) count / devTriples.size();
+        return accuracy;
+    }
+
+
+    /**
+     * save trained model in local disk
+     * @param entityOutput
+     * @param relationOutput
+     * @param relationCOutput
+     * @param entity2Id
+     * @param relation2Id
+     */
+    private void saveModel(String entityOutput, String relationOutput, String relationCOutput, Map<String, Integer> entity2Id, Map<String, Integer> relation2Id){
+        WriteModel writer = new WriteModel();
+        writer.writeBinary(entityOutput, entity2Id, entityVectors);
+        writer.writeBinary(relationOutput, relation2Id, relationVectors);
+        if (!CTransR){
+            return; // relation clusters only exist for CTransR
+        }
+
+        Map<String, ArrayList<double[]>> relationCMap = new HashMap<String, ArrayList<double[]>>();
+        Iterator iteratorRelation = relation2Id.entrySet().iterator();
+        while (iteratorRelation.hasNext()){
+            Map.Entry entry = (Map.Entry)iteratorRelation.next();
+            String relationName = entry.getKey().toString();
+            int relationId = Integer.parseInt(entry.getValue().toString());
+            ArrayList<double[]> relationCs = new ArrayList<double[]>();
+            for (int c = clusterStarts[relationId]; c < clusterStarts[relationId + 1]; c++){
+                relationCs.add(clusterVectors.row(c));
+            }
+            relationCMap.put(relationName, relationCs);
+        }
+
+        SerializeModelLists modelRelationC = new SerializeModelLists(relationCMap);
+        writer.write2(relationCOutput, modelRelationC);
+    }
+
+
+    /**
+     * learning phase and cross validation after each epoch
+     * @param trainTriples
+     * @param devTriples
+     * @param transEEntityVectors
+     * @param transERelationVectors
+     * @param relationSize
+     * @param enitytSize
+     * @param learningRate
+     * @param margin
+     * @param k
+     * @param d
+     * @param alpha
+     * @param clusterNumber
+     * @param clusterEpochs
+     * @param epochs
+     * @param size
+     * @param entityOutput
+     * @param relationOutput
+     * @param relationCOutput
+     * @param entity2Id
+     * @param relation2Id
+     */
+    public void learn (TripleStore trainTriples, TripleStore devTriples, EmbeddingTable transEEntityVectors, EmbeddingTable transERelationVectors, int relationSize,
+                       int enitytSize, double learningRate, double margin, int k, int d, double alpha, int clusterNumber, int clusterEpochs, int epochs, int size, String entityOutput, String relationOutput, String relationCOutput,
+                       Map<String, Integer> entity2Id, Map<String, Integer> relation2Id){
+        if(CTransR){
+            initializeC(transEEntityVectors, transERelationVectors, relationSize, trainTriples, clusterNumber, clusterEpochs, k, d);
+        } else {
+            initialize(transEEntityVectors, transERelationVectors, k, d);
+        }
+        ParallelTrainer trainer = new ParallelTrainer(threads, true);
+        TripleKernel<double[][]> kernel = kernel(learningRate, k, d, margin, alpha);
+        for(int i = 0; i < epochs; i++){
+            trainer.trainEpochTimed(i, trainTriples, enitytSize, relationSize, size, kernel);
+
+            if (validator != null && devTriples != null){
+                validator.submit(i, this::snapshotScorer, devTriples);
+                if (validator.shouldStop()){
+                    logger.info("Validation MRR stopped improving, stopping after epoch " + i);
+                    break;
+                }
+            } else if(devTriples != null){
+                double accuracy = 0d;
+                if(CTransR){
+                    accuracy = validationC(devTriples, margin, k);
+                } else {
+                    accuracy = validation(devTriples, margin, k);
+                }
+                logger.info("Validation Accuracy: " + accuracy + "; Epoch: " + i);
+            }
+
+        }
+        trainer.close();
+        if (validator != null){
+            validator.finish();
+        }
+        saveModel(entityOutput, relationOutput, relationCOutput, entity2Id, relation2Id);
+
+
+    }
+
+    /**
+     * validate the dev set in the background after every epoch (filtered MRR of a sample, with early stopping) instead of the margin accuracy
+     * @param validator null for the synchronous validation
+     */
+    public void setValidator(AsyncValidator validator){
+        this.validator = validator;
+    }
+
+    /**
+     * scoring for link prediction (LinkPredictionEvaluator), entities are projected with the matrix of the relation (a block at a time with
+     * Gemm) and normalized as in training. CTransR ranks a test triple in the cluster of its relation nearest to the offset (head - tail), as
+     * the training kernel and validationC pick it, with the matrix and vector of the cluster
+     * @return scorer
+     */
+    public TripleScorer<double[][]> scorer(){
+        if (CTransR){
+            return scorerC(entityVectors, relationVectors, clusterVectors, matricesC);
+        }
+        return scorer(entityVectors, relationVectors, matrices);
+    }
+
+    /**
+     * scorer on a copy of the current parameters, it keeps ranking the same model while training goes on (AsyncValidator)
+     * @return scorer
+     */
+    public TripleScorer<double[][]> snapshotScorer(){
+        if (CTransR){
+            return scorerC(entityVectors.copy(), relationVectors.copy(), clusterVectors.copy(), copy(matricesC));
+        }
+        return scorer(entityVectors.copy(), relationVectors.copy(), copy(matrices));
+    }
+
+    private static List<double[][]> copy(List<double[][]> matrices){
+        List<double[][]> copies = new ArrayList<double[][]>(matrices.size());
+        for (double[][] matrix : matrices){
+            double[][] copy = new double[matrix.length][];
+            for (int i = 0; i < matrix.length; i++){
+                copy[i] = matrix[i].clone();
+            }
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static double[][][] copy(double[][][] matrices){
+        double[][][] copies = new double[matrices.length][][];
+        for (int c = 0; c < matrices.length; c++){
+            copies[c] = new double[matrices[c].length][];
+            for (int i = 0; i < matrices[c].length; i++){
+                copies[c][i] = matrices[c][i].clone();
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * scratch of a scoring thread
+     */
+    private static double[][] scorerScratch(int d){
+        double[][] rows = new double[5][];
+        for (int i = 0; i < 4; i++){
+            rows[i] = new double[d]; // Gemm work rows
+        }
+        rows[4] = new double[0]; // gathered entity vectors, grown on use
+        return rows;
+    }
+
+    private TripleScorer<double[][]> scorer(final EmbeddingTable entityVectors, final EmbeddingTable relationVectors,
+                                            final List<double[][]> matrices){
+        return new TripleScorer<double[][]>() {
+            @Override
+            public int entitySize() {
+                return entityVectors.rows();
+            }
+
+            @Override
+            public int dimension() {
+                return relationVectors.dim();
+            }
+
+            @Override
+            public double[][] newScratch() {
+                return scorerScratch(relationVectors.dim());
+            }
+
+            @Override
+            public void project(int relation, boolean head, int from, int to, double[] block, double[][] scratch) {
+                int k = entityVectors.dim();
+                int d = relationVectors.dim();
+                int count = to - from;
+                double[] batch = buffer(scratch, 4, count * k);
+                for (int entity = from; entity < to; entity++){
+                    entityVectors.copyRow(entity, batch, (entity - from) * k);
+                }
+                Gemm.multiply(batch, count, matrices.get(relation), block, scratch);
+                for (int v = 0; v < count; v++){
+                    helper.normalize(block, v * d, d);
+                }
+            }
+
+            @Override
+            public void relationVector(int relation, double[] destination) {
+                relationVectors.copyRow(relation, destination);
+            }
+        };
+    }
+
+    /**
+     * CTransR scorer, the spaces are the clusters: space c < clusters is ranked with the matrix and vector of cluster c, clusters + r is relation r
+     * without a cluster (no training triple), ranked with the unprojected entities and the relation vector
+     */
+    private TripleScorer<double[][]> scorerC(final EmbeddingTable entityVectors, final EmbeddingTable relationVectors,
+                                             final EmbeddingTable clusterVectors, final double[][][] matricesC){
+        final int clusters = matricesC.length;
+        return new TripleScorer<double[][]>() {
+            @Override
+            public int entitySize() {
+                return entityVectors.rows();
+            }
+
+            @Override
+            public int dimension() {
+                return relationVectors.dim();
+            }
+
+            @Override
+            public double[][] newScratch() {
+                return scorerScratch(relationVectors.dim());
+            }
+
+            @Override
+            public int space(int head, int relation, int tail) {
+                int k = entityVectors.dim();
+                int cluster = nearestCluster(clusterVectors, relation, entityVectors.row(head), entityVectors.row(tail), new double[k], k);
+                return cluster >= 0 ? cluster : clusters + relation;
+            }
+
+            @Override
+            public void project(int space, boolean head, int from, int to, double[] block, double[][] scratch) {
+                int k = entityVectors.dim();
+                int d = relationVectors.dim();
+                int count = to - from;
+                if (space < clusters){
+                    double[] batch = buffer(scratch, 4, count * k);
+                    for (int entity = from; entity < to; entity++){
+                        entityVectors.copyRow(entity, batch, (entity - from) * k);
+                    }
+                    Gemm.multiply(batch, count, matricesC[space], block, scratch);
+                } else {
+                    for (int entity = from; entity < to; entity++){
+                        entityVectors.copyRow(entity, block, (entity - from) * d); // CTransR entities have dimension d
+                    }
+                }
+                for (int v = 0; v < count; v++){
+                    helper.normalize(block, v * d, d);
+                }
+            }
+
+            @Override
+            public void relationVector(int space, double[] destination) {
+                if (space < clusters){
+                    clusterVectors.copyRow(space, destination);
+                } else {
+                    relationVectors.copyRow(space - clusters, destination);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,227 @@
+package com.prime.common.evaluation;
+
+import com.prime.common.computinghelper.TripleStore;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * validation of the dev set off the training thread. After an epoch the model hands over a scorer on a snapshot (copy) of its parameters, the
+ * filtered ranks of a random sample of the dev triples are computed on a background thread while the next epoch trains, and the MRR is logged
+ * with its confidence interval (ValidationResult). The sample is drawn once, so every epoch is ranked on the same triples and the epochs
+ * compare without sampling noise between them.
+ * At most one validation runs at a time: if the previous one is still busy when an epoch ends, that epoch is not validated (and not snapshot)
+ * instead of stalling training.
+ * Early stopping: shouldStop is true once patience completed validations in a row did not raise the best MRR by more than minDelta.
+ * A validation that fails is logged and training goes on, unless setAbortOnFailure(true) makes the next submit, shouldStop or finish throw.
+ * One instance per learn run.
+ */
+public class AsyncValidator {
+
+    final static Logger logger = Logger.getLogger(AsyncValidator.class);
+    final TripleHashSet known;
+    final int sampleSize;
+    final int patience;
+    final double minDelta;
+    final LinkPredictionEvaluator evaluator;
+    final Random random;
+    final List<ValidationResult> results = new ArrayList<ValidationResult>();
+    ExecutorService executor;
+    Future<ValidationResult> pending;
+    int pendingEpoch;
+    TripleStore sampled;
+    int[] sample;
+    ValidationResult best;
+    int sinceBest;
+    boolean abortOnFailure;
+    int failures;
+
+    /**
+     * validate without early stopping
+     * @param known triples that are not counted as wrong candidates, e.g. TripleHashSet.of(entitySize, relationSize, train, dev)
+     * @param sampleSize dev triples ranked per epoch, 0 for all
+     */
+    public AsyncValidator(TripleHashSet known, int sampleSize){
+        this(known, sampleSize, 0, 0, 1, new Random(1));
+    }
+
+    /**
+     * @param known triples that are not counted as wrong candidates, e.g. TripleHashSet.of(entitySize, relationSize, train, dev)
+     * @param sampleSize dev triples ranked per epoch, 0 for all
+     * @param patience validations without improvement before stopping, 0 never stops
+     * @param minDelta smallest MRR gain that counts as improvement
+     * @param threads ranking threads of a validation, they run next to the training threads
+     * @param random draws the sample
+     */
+    public AsyncValidator(TripleHashSet known, int sampleSize, int patience, double minDelta, int threads, Random random){
+        this.known = known;
+        this.sampleSize = sampleSize;
+        this.patience = patience;
+        this.minDelta = minDelta;
+        this.evaluator = new LinkPredictionEvaluator(threads);
+        this.random = random;
+    }
+
+    /**
+     * validate an epoch with L2 distance
+     * @see #submit(int, Supplier, TripleStore, Boolean)
+     */
+    public <S> boolean submit(int epoch, Supplier<TripleScorer<S>> snapshot, TripleStore devTriples){
+        return submit(epoch, snapshot, devTriples, false);
+    }
+
+    /**
+     * start the validation of an epoch in the background, unless the previous one is still running
+     * @param epoch
+     * @param snapshot creates a scorer on a copy of the parameters, only called when the epoch is validated
+     * @param devTriples
+     * @param L1 true to rank by L1 distance, false for L2
+     * @return true if the epoch is validated, false if it was skipped
+     */
+    public synchronized <S> boolean submit(final int epoch, Supplier<TripleScorer<S>> snapshot, final TripleStore devTriples, final Boolean L1){
+        collect(false);
+        if (pending != null){
+            logger.info("Validation of epoch " + pendingEpoch + " still running, epoch " + epoch + " not validated");
+            return false;
+        }
+        final int[] indices = sample(devTriples);
+        final TripleScorer<S> scorer = snapshot.get();
+        if (executor == null){
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "validation");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingEpoch = epoch;
+        pending = executor.submit(() -> {
+            long start = System.nanoTime();
+            int[] ranks = evaluator.rank(scorer, devTriples, indices, known, L1);
+            return new ValidationResult(epoch, new RankingMetrics(ranks), devTriples.size(), (System.nanoTime() - start) / 1000000);
+        });
+        return true;
+    }
+
+    /**
+     * @return true if the best MRR has not improved in the last patience validations
+     */
+    public synchronized boolean shouldStop(){
+        collect(false);
+        return patience > 0 && best != null && sinceBest >= patience;
+    }
+
+    /**
+     * wait for the running validation and release the background threads
+     * @return best validation, null if there was none
+     */
+    public synchronized ValidationResult finish(){
+        try {
+            collect(true);
+        } finally {
+            if (executor != null){
+                executor.shutdown();
+                executor = null;
+            }
+            evaluator.close();
+        }
+        if (best != null){
+            logger.info("Best validation: " + best);
+        }
+        return best;
+    }
+
+    /**
+     * the fixed sample of dev indices, drawn on first use (partial fisher-yates)
+     */
+    private int[] sample(TripleStore devTriples){
+        if (sample != null && sampled == devTriples){
+            return sample;
+        }
+        int size = devTriples.size();
+        int count = sampleSize <= 0 ? size : Math.min(sampleSize, size);
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++){
+            indices[i] = i;
+        }
+        if (count < size){
+            for (int i = 0; i < count; i++){
+                int j = i + random.nextInt(size - i);
+                int swap = indices[i];
+                indices[i] = indices[j];
+                indices[j] = swap;
+            }
+            int[] drawn = new int[count];
+            System.arraycopy(indices, 0, drawn, 0, count);
+            indices = drawn;
+        }
+        sampled = devTriples;
+        sample = indices;
+        return sample;
+    }
+
+    /**
+     * record the running validation if it is done (or wait for it)
+     */
+    private void collect(boolean wait){
+        if (pending == null || (!wait && !pending.isDone())){
+            return;
+        }
+        ValidationResult result;
+        try {
+            result = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            pending = null;
+            failures++;
+            if (abortOnFailure){
+                throw new IllegalStateException("validation of epoch " + pendingEpoch + " failed", e.getCause());
+            }
+            logger.error("Validation of epoch " + pendingEpoch + " failed, training goes on", e.getCause());
+            return;
+        }
+        pending = null;
+        results.add(result);
+        if (best == null || result.getMeanReciprocalRank() > best.getMeanReciprocalRank() + minDelta){
+            best = result;
+            sinceBest = 0;
+        } else {
+            sinceBest++;
+        }
+        logger.info("Validation " + result + (sinceBest == 0 ? "; best" : "; no improvement for " + sinceBest));
+    }
+
+    /**
+     * @return completed validations in epoch order
+     */
+    public synchronized List<ValidationResult> getResults() {
+        return new ArrayList<ValidationResult>(results);
+    }
+
+    public synchronized ValidationResult getBest() {
+        return best;
+    }
+
+    /**
+     * @return validations that threw instead of returning a result
+     */
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    /**
+     * @param abortOnFailure true to rethrow a failed validation as IllegalStateException on the training thread, which stops learn. False
+     *                       (default) logs it and keeps training
+     */
+    public synchronized void setAbortOnFailure(boolean abortOnFailure) {
+        this.abortOnFailure = abortOnFailure;
+    }
+}
@@ -0,0 +1,290 @@
+package com.prime.common.evaluation;
+
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.computinghelper.VectorKernels;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * filtered link prediction evaluation: for every test triple (head, relation, tail) all entities are ranked as tail of (head, relation, ?) and
+ * as head of (?, relation, tail). Candidates that form a known triple (train, dev or test) are skipped, ties count half. Reports MRR, mean rank
+ * and Hits@1/3/10 over both predictions.
+ * The test triples are grouped by relation (by TripleScorer.space, e.g. the CTransR cluster). For a relation the queries (projected head +
+ * relation, projected tail - relation) are computed once, then the entities are projected block by block and every block is compared with all
+ * queries of the relation while it is in cache. The blocks are scored in parallel, each block task keeps its own counts which are added up after
+ * the relation.
+ * The scoring threads are daemon threads started on the first parallel rank and kept for the later ones, close stops them.
+ */
+public class LinkPredictionEvaluator implements AutoCloseable {
+
+    final static Logger logger = Logger.getLogger(LinkPredictionEvaluator.class);
+    final static VectorKernels kernels = VectorKernels.get();
+    /** entities per block, a block of 512 vectors of dimension 100 (400 KB) stays in the L2 cache */
+    public final static int BLOCK_SIZE = 512;
+    final int threads;
+    final int blockSize;
+    ExecutorService executor;
+
+    /**
+     * @param threads number of scoring threads, 1 scores on the calling thread
+     */
+    public LinkPredictionEvaluator(int threads){
+        this(threads, BLOCK_SIZE);
+    }
+
+    /**
+     * @param threads number of scoring threads, 1 scores on the calling thread
+     * @param blockSize entities projected and scored together
+     */
+    public LinkPredictionEvaluator(int threads, int blockSize){
+        this.threads = Math.max(1, threads);
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * filtered ranking metrics of all test triples, L2 distance
+     * @param scorer the trained model
+     * @param testTriples
+     * @param known triples that are not counted as wrong candidates, e.g. TripleHashSet.of(entitySize, relationSize, train, dev, test)
+     * @return metrics
+     */
+    public <S> RankingMetrics evaluate(TripleScorer<S> scorer, TripleStore testTriples, TripleHashSet known){
+        return evaluate(scorer, testTriples, known, false);
+    }
+
+    /**
+     * filtered ranking metrics of all test triples
+     * @param scorer the trained model
+     * @param testTriples
+     * @param known triples that are not counted as wrong candidates, e.g. TripleHashSet.of(entitySize, relationSize, train, dev, test)
+     * @param L1 true to rank by L1 distance, false for L2
+     * @return metrics
+     */
+    public <S> RankingMetrics evaluate(TripleScorer<S> scorer, TripleStore testTriples, TripleHashSet known, Boolean L1){
+        long start = System.nanoTime();
+        int[] indices = new int[testTriples.size()];
+        for (int i = 0; i < indices.length; i++){
+            indices[i] = i;
+        }
+        RankingMetrics metrics = new RankingMetrics(rank(scorer, testTriples, indices, known, L1));
+        logger.info("Ranked " + indices.length + " triples against " + scorer.entitySize() + " entities: " + (System.nanoTime() - start) / 1000000
+                + " ms; " + metrics);
+        return metrics;
+    }
+
+    /**
+     * filtered ranks of some triples of a store
+     * @param scorer the trained model
+     * @param triples
+     * @param indices triples to rank
+     * @param known triples that are not counted as wrong candidates
+     * @param L1 true to rank by L1 distance, false for L2
+     * @return 2 * indices.length ranks, tail prediction of indices[i] at 2 * i, head prediction at 2 * i + 1
+     */
+    public <S> int[] rank(TripleScorer<S> scorer, TripleStore triples, int[] indices, TripleHashSet known, Boolean L1){
+        int[] ranks = new int[2 * indices.length];
+        long[] keys = new long[indices.length];
+        for (int i = 0; i < indices.length; i++){
+            int triple = indices[i];
+            keys[i] = ((long) scorer.space(triples.head(triple), triples.relation(triple), triples.tail(triple)) << 32) | i;
+        }
+        Arrays.sort(keys);
+        ExecutorService executor = threads == 1 ? null : executor();
+        ThreadLocal<Worker<S>> workers = ThreadLocal.withInitial(() -> new Worker<S>(scorer, blockSize));
+        int start = 0;
+        while (start < keys.length){
+            int space = (int) (keys[start] >>> 32);
+            int end = start;
+            while (end < keys.length && (int) (keys[end] >>> 32) == space){
+                end++;
+            }
+            int[] positions = new int[end - start];
+            for (int i = start; i < end; i++){
+                positions[i - start] = (int) keys[i];
+            }
+            int relation = triples.relation(indices[positions[0]]);
+            rankRelation(scorer, triples, indices, positions, space, relation, known, L1 == true, workers, executor, ranks);
+            start = end;
+        }
+        return ranks;
+    }
+
+    /**
+     * the scoring threads, started on first use
+     */
+    private synchronized ExecutorService executor(){
+        if (executor == null){
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "evaluation");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * stop the scoring threads, a later rank starts new ones
+     */
+    @Override
+    public synchronized void close(){
+        if (executor != null){
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * per thread buffers: the scorer's scratch and the projected entity blocks
+     */
+    static class Worker<S> {
+        final S scratch;
+        final double[] tailBlock;
+        final double[] headBlock;
+
+        Worker(TripleScorer<S> scorer, int blockSize){
+            this.scratch = scorer.newScratch();
+            this.tailBlock = new double[blockSize * scorer.dimension()];
+            this.headBlock = scorer.separateProjections() ? new double[blockSize * scorer.dimension()] : tailBlock;
+        }
+    }
+
+    /**
+     * rank the test triples of one space
+     * @param space projection of the group, from TripleScorer.space
+     * @param relation relation of the group, for the known triples
+     */
+    private <S> void rankRelation(final TripleScorer<S> scorer, TripleStore triples, int[] indices, int[] positions, final int space,
+                                  final int relation, final TripleHashSet known, final boolean L1, final ThreadLocal<Worker<S>> workers,
+                                  ExecutorService executor, int[] ranks){
+        final int dim = scorer.dimension();
+        final int size = positions.length;
+        final int[] heads = new int[size];
+        final int[] tails = new int[size];
+        final double[] tailQueries = new double[size * dim];
+        final double[] headQueries = new double[size * dim];
+        final double[] scores = new double[size];
+        double[] relationVector = new double[dim];
+        scorer.relationVector(space, relationVector);
+        Worker<S> worker = workers.get();
+        double[] projectedHead = new double[dim];
+        double[] projectedTail = new double[dim];
+        for (int i = 0; i < size; i++){
+            heads[i] = triples.head(indices[positions[i]]);
+            tails[i] = triples.tail(indices[positions[i]]);
+            scorer.project(space, true, heads[i], heads[i] + 1, projectedHead, worker.scratch);
+            scorer.project(space, false, tails[i], tails[i] + 1, projectedTail, worker.scratch);
+            for (int j = 0; j < dim; j++){
+                tailQueries[i * dim + j] = projectedHead[j] + relationVector[j];
+                headQueries[i * dim + j] = projectedTail[j] - relationVector[j];
+            }
+            scores[i] = distance(tailQueries, i * dim, projectedTail, 0, dim, L1);
+        }
+
+        final int entitySize = scorer.entitySize();
+        List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+        for (int from = 0; from < entitySize; from += blockSize){
+            final int blockStart = from;
+            final int blockEnd = Math.min(entitySize, from + blockSize);
+            tasks.add(() -> {
+                Worker<S> taskWorker = workers.get();
+                int[] counts = new int[4 * size]; // tail better, tail ties, head better, head ties
+                scorer.project(space, false, blockStart, blockEnd, taskWorker.tailBlock, taskWorker.scratch);
+                for (int i = 0; i < size; i++){
+                    count(taskWorker.tailBlock, blockStart, blockEnd, tailQueries, i * dim, dim, scores[i], tails[i], L1, counts, 4 * i,
+                            known, heads[i], relation, -1);
+                }
+                if (scorer.separateProjections()){
+                    scorer.project(space, true, blockStart, blockEnd, taskWorker.headBlock, taskWorker.scratch);
+                }
+                for (int i = 0; i < size; i++){
+                    count(taskWorker.headBlock, blockStart, blockEnd, headQueries, i * dim, dim, scores[i], heads[i], L1, counts, 4 * i + 2,
+                            known, -1, relation, tails[i]);
+                }
+                return counts;
+            });
+        }
+        int[] counts = new int[4 * size];
+        for (int[] taskCounts : run(tasks, executor)){
+            for (int i = 0; i < counts.length; i++){
+                counts[i] = counts[i] + taskCounts[i];
+            }
+        }
+        for (int i = 0; i < size; i++){
+            ranks[2 * positions[i]] = 1 + counts[4 * i] + counts[4 * i + 1] / 2;
+            ranks[2 * positions[i] + 1] = 1 + counts[4 * i + 2] + counts[4 * i + 3] / 2;
+        }
+    }
+
+    /**
+     * count the candidates of a block that score better than (or equal to) the true entity, skipping known triples
+     * @param head fixed head for tail prediction, -1 for head prediction (the candidate is the head)
+     * @param tail fixed tail for head prediction, -1 for tail prediction
+     */
+    private static void count(double[] block, int blockStart, int blockEnd, double[] queries, int queryOffset, int dim, double score, int target,
+                              boolean L1, int[] counts, int countOffset, TripleHashSet known, int head, int relation, int tail){
+        int better = 0;
+        int ties = 0;
+        for (int entity = blockStart; entity < blockEnd; entity++){
+            if (entity == target){
+                continue;
+            }
+            double distance = distance(queries, queryOffset, block, (entity - blockStart) * dim, dim, L1);
+            if (distance > score){
+                continue;
+            }
+            boolean isKnown = head < 0 ? known.contains(entity, relation, tail) : known.contains(head, relation, entity);
+            if (isKnown){
+                continue;
+            }
+            if (distance < score){
+                better++;
+            } else {
+                ties++;
+            }
+        }
+        counts[countOffset] = counts[countOffset] + better;
+        counts[countOffset + 1] = counts[countOffset + 1] + ties;
+    }
+
+    /**
+     * L1 distance or squared L2 distance (same order as L2)
+     */
+    private static double distance(double[] vector1, int offset1, double[] vector2, int offset2, int dim, boolean L1){
+        if (L1){
+            return kernels.distanceL1(vector1, offset1, vector2, offset2, dim);
+        }
+        return kernels.squaredDistance(vector1, offset1, vector2, offset2, dim);
+    }
+
+    private static List<int[]> run(List<Callable<int[]>> tasks, ExecutorService executor){
+        List<int[]> results = new ArrayList<int[]>(tasks.size());
+        try {
+            if (executor == null){
+                for (Callable<int[]> task : tasks){
+                    results.add(task.call());
+                }
+                return results;
+            }
+            for (Future<int[]> future : executor.invokeAll(tasks)){
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
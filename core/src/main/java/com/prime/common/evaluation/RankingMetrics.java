@@ -0,0 +1,75 @@
+package com.prime.common.evaluation;
+
+/**
+ * link prediction metrics from the filtered ranks of the test triples, two ranks per triple (tail prediction, head prediction)
+ */
+public class RankingMetrics {
+
+    final int[] ranks;
+    final double meanRank;
+    final double meanReciprocalRank;
+    final double hits1;
+    final double hits3;
+    final double hits10;
+
+    /**
+     * @param ranks rank of every prediction, 1 is best
+     */
+    public RankingMetrics(int[] ranks){
+        this.ranks = ranks;
+        double rankSum = 0;
+        double reciprocalSum = 0;
+        int h1 = 0;
+        int h3 = 0;
+        int h10 = 0;
+        for (int rank : ranks){
+            rankSum = rankSum + rank;
+            reciprocalSum = reciprocalSum + 1d / rank;
+            if (rank <= 1){
+                h1++;
+            }
+            if (rank <= 3){
+                h3++;
+            }
+            if (rank <= 10){
+                h10++;
+            }
+        }
+        int count = Math.max(1, ranks.length);
+        this.meanRank = rankSum / count;
+        this.meanReciprocalRank = reciprocalSum / count;
+        this.hits1 = (double) h1 / count;
+        this.hits3 = (double) h3 / count;
+        this.hits10 = (double) h10 / count;
+    }
+
+    public int[] getRanks() {
+        return ranks;
+    }
+
+    public double getMeanRank() {
+        return meanRank;
+    }
+
+    public double getMeanReciprocalRank() {
+        return meanReciprocalRank;
+    }
+
+    public double getHits1() {
+        return hits1;
+    }
+
+    public double getHits3() {
+        return hits3;
+    }
+
+    public double getHits10() {
+        return hits10;
+    }
+
+    @Override
+    public String toString() {
+        return "MRR: " + meanReciprocalRank + "; MR: " + meanRank + "; Hits@1: " + hits1 + "; Hits@3: " + hits3 + "; Hits@10: " + hits10
+                + "; Predictions: " + ranks.length;
+    }
+}
@@ -0,0 +1,120 @@
+package com.prime.common.evaluation;
+
+import com.prime.common.computinghelper.TripleStore;
+
+import java.util.Arrays;
+
+/**
+ * set of known triples for filtered ranking, an open addressing table of primitive longs. A triple is packed into one long,
+ * (head * relationSize + relation) * entitySize + tail, so a lookup neither boxes nor allocates.
+ */
+public class TripleHashSet {
+
+    final static long EMPTY = -1;
+    final int entitySize;
+    final int relationSize;
+    long[] keys;
+    int mask;
+    int size;
+
+    /**
+     * @param entitySize
+     * @param relationSize
+     * @param expectedSize number of triples, the table grows when needed
+     */
+    public TripleHashSet(int entitySize, int relationSize, int expectedSize){
+        if ((double) entitySize * entitySize * relationSize >= Long.MAX_VALUE){
+            throw new IllegalArgumentException("a triple of " + entitySize + " entities and " + relationSize + " relations does not fit in a long");
+        }
+        this.entitySize = entitySize;
+        this.relationSize = relationSize;
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1; // load factor <= 0.5
+        this.keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * all triples of the given stores, usually train, dev and test
+     * @param entitySize
+     * @param relationSize
+     * @param stores
+     * @return set of the triples
+     */
+    public static TripleHashSet of(int entitySize, int relationSize, TripleStore... stores){
+        int expectedSize = 0;
+        for (TripleStore store : stores){
+            expectedSize = expectedSize + store.size();
+        }
+        TripleHashSet set = new TripleHashSet(entitySize, relationSize, expectedSize);
+        for (TripleStore store : stores){
+            for (int i = 0; i < store.size(); i++){
+                set.add(store.head(i), store.relation(i), store.tail(i));
+            }
+        }
+        return set;
+    }
+
+    long key(int head, int relation, int tail){
+        return ((long) head * relationSize + relation) * entitySize + tail;
+    }
+
+    int position(long key){
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * @param head
+     * @param relation
+     * @param tail
+     * @return true if the triple was not in the set
+     */
+    public boolean add(int head, int relation, int tail){
+        if (size * 2 >= keys.length){
+            grow();
+        }
+        long key = key(head, relation, tail);
+        int position = position(key);
+        while (keys[position] != EMPTY){
+            if (keys[position] == key){
+                return false;
+            }
+            position = (position + 1) & mask;
+        }
+        keys[position] = key;
+        size++;
+        return true;
+    }
+
+    public boolean contains(int head, int relation, int tail){
+        long key = key(head, relation, tail);
+        int position = position(key);
+        while (keys[position] != EMPTY){
+            if (keys[position] == key){
+                return true;
+            }
+            position = (position + 1) & mask;
+        }
+        return false;
+    }
+
+    private void grow(){
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for (long key : old){
+            if (key != EMPTY){
+                int position = position(key);
+                while (keys[position] != EMPTY){
+                    position = (position + 1) & mask;
+                }
+                keys[position] = key;
+            }
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+}
@@ -0,0 +1,64 @@
+package com.prime.common.evaluation;
+
+/**
+ * what LinkPredictionEvaluator needs from a translation model: the projection of candidate entities to the space of a relation and the
+ * relation vector in that space. A triple (head, relation, tail) is scored by the distance between projected head + relation and projected tail,
+ * lower is better, so ranking every candidate tail of a query is one projection of the entities (in blocks) and one distance per candidate.
+ * The projection is picked per relation, or per space() of the test triple for models with several projections of a relation (CTransR clusters).
+ * @param <S> per-thread scratch buffers
+ */
+public interface TripleScorer<S> {
+
+    /**
+     * @return number of candidate entities
+     */
+    int entitySize();
+
+    /**
+     * @return dimension of the space entities and relations are compared in
+     */
+    int dimension();
+
+    /**
+     * allocate the scratch buffers of one evaluation thread
+     * @return scratch buffers
+     */
+    S newScratch();
+
+    /**
+     * space a test triple is ranked in: all its candidates are projected with project(space, ...) and compared with relationVector(space, ...).
+     * A space belongs to a single relation
+     * @param head
+     * @param relation
+     * @param tail
+     * @return space id, the relation itself by default
+     */
+    default int space(int head, int relation, int tail){
+        return relation;
+    }
+
+    /**
+     * project the entities from .. to - 1 to the space of a relation
+     * @param relation relation, or space id from space()
+     * @param head true to project them as heads, false as tails
+     * @param from
+     * @param to
+     * @param block (to - from) x dimension, entity from + i at offset i * dimension
+     * @param scratch
+     */
+    void project(int relation, boolean head, int from, int to, double[] block, S scratch);
+
+    /**
+     * copy the vector of a relation
+     * @param relation relation, or space id from space()
+     * @param destination length >= dimension
+     */
+    void relationVector(int relation, double[] destination);
+
+    /**
+     * @return true if heads and tails are projected differently (e.g. TransSparse with separate matrices)
+     */
+    default boolean separateProjections(){
+        return false;
+    }
+}
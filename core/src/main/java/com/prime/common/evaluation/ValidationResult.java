@@ -0,0 +1,90 @@
+package com.prime.common.evaluation;
+
+/**
+ * filtered ranking metrics of the dev triples after one epoch, with a 95% confidence interval of the MRR. The interval treats the ranked triples
+ * as a sample drawn without replacement from the dev set: the unit is the mean reciprocal rank of a triple (tail and head prediction together,
+ * they are not independent) and the standard error gets the finite population correction, so ranking the full dev set gives an interval of
+ * width 0 -- the MRR of the dev set is then known exactly.
+ */
+public class ValidationResult {
+
+    /** normal quantile of a two sided 95% interval */
+    public final static double Z = 1.96;
+    final int epoch;
+    final RankingMetrics metrics;
+    final int population;
+    final long millis;
+    final double standardError;
+
+    /**
+     * @param epoch
+     * @param metrics ranks of the sampled triples, tail prediction at 2 * i, head prediction at 2 * i + 1
+     * @param population number of dev triples the sample was drawn from
+     * @param millis evaluation time
+     */
+    public ValidationResult(int epoch, RankingMetrics metrics, int population, long millis){
+        this.epoch = epoch;
+        this.metrics = metrics;
+        this.population = population;
+        this.millis = millis;
+        int[] ranks = metrics.getRanks();
+        int n = ranks.length / 2;
+        double mean = metrics.getMeanReciprocalRank();
+        double squares = 0;
+        for (int i = 0; i < n; i++){
+            double value = (1d / ranks[2 * i] + 1d / ranks[2 * i + 1]) / 2 - mean;
+            squares = squares + value * value;
+        }
+        if (n < 2 || population <= n){
+            this.standardError = 0;
+        } else {
+            double correction = (double) (population - n) / (population - 1);
+            this.standardError = Math.sqrt(squares / (n - 1) / n * correction);
+        }
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public RankingMetrics getMetrics() {
+        return metrics;
+    }
+
+    public double getMeanReciprocalRank() {
+        return metrics.getMeanReciprocalRank();
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    public double getLower() {
+        return metrics.getMeanReciprocalRank() - Z * standardError;
+    }
+
+    public double getUpper() {
+        return metrics.getMeanReciprocalRank() + Z * standardError;
+    }
+
+    /**
+     * @return number of ranked dev triples
+     */
+    public int getSampleSize() {
+        return metrics.getRanks().length / 2;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        return "Epoch: " + epoch + "; MRR: " + metrics.getMeanReciprocalRank() + " (95% CI " + getLower() + " .. " + getUpper() + "); Hits@10: "
+                + metrics.getHits10() + "; Triples: " + getSampleSize() + "/" + population + "; " + millis + " ms";
+    }
+}
@@ -0,0 +1,367 @@
+package com.prime.common.io;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Precision;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * versioned binary model file: a fixed header, the embedding matrix as one contiguous row-major block of float64, float32 or bfloat16 values and a
+ * dictionary with the name of every row. Opening a file memory maps the matrix, so startup only reads the header and the dictionary and the
+ * vectors are paged in by the os on first access.
+ *
+ * layout (little endian):
+ * header (64 bytes): magic "GEMB", version, bytes per value (8, 4 or 2 for bfloat16), rows, dim, reserved int, dictionary offset (long), zero padding
+ * matrix: rows * dim values starting at byte 64
+ * dictionary: per row an int byte length followed by the UTF-8 bytes of the name
+ */
+public class BinaryModel {
+
+    final static int MAGIC = 0x424D4547; // "GEMB" read as a little endian int
+    final static int VERSION = 1;
+    final static int HEADER_SIZE = 64;
+    final static int MAX_PAGE_BYTES = 1 << 30;
+    final int rows;
+    final int dim;
+    final int valueBytes;
+    final int rowsPerPage;
+    final ByteBuffer[] pages;
+    final String[] names;
+    final Map<String, Integer> name2Row;
+
+    private BinaryModel(int rows, int dim, int valueBytes, ByteBuffer[] pages, int rowsPerPage, String[] names){
+        this.rows = rows;
+        this.dim = dim;
+        this.valueBytes = valueBytes;
+        this.pages = pages;
+        this.rowsPerPage = rowsPerPage;
+        this.names = names;
+        this.name2Row = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++){
+            name2Row.put(names[i], i);
+        }
+    }
+
+    /**
+     * check the magic number of a file
+     * @param inputFile
+     * @return true if the file is in the binary model format
+     * @throws IOException
+     */
+    public static boolean isBinary(String inputFile) throws IOException {
+        FileInputStream file = new FileInputStream(inputFile);
+        try {
+            byte[] magic = new byte[4];
+            int read = file.read(magic);
+            return read == 4 && ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * write a table in the binary format
+     * @param outputFile
+     * @param name2Id name of every row, ids without a name are written with an empty name
+     * @param table
+     * @param float32 true to store float32 values, false for float64
+     * @throws IOException
+     */
+    public static void write(String outputFile, Map<String, Integer> name2Id, EmbeddingTable table, Boolean float32) throws IOException {
+        write(outputFile, name2Id, table, float32 ? Precision.FLOAT32 : Precision.FLOAT64);
+    }
+
+    /**
+     * write a table in the binary format
+     * @param outputFile
+     * @param name2Id name of every row, ids without a name are written with an empty name
+     * @param table
+     * @param precision precision of the stored values, independent of the precision of the table
+     * @throws IOException
+     */
+    public static void write(String outputFile, Map<String, Integer> name2Id, EmbeddingTable table, Precision precision) throws IOException {
+        String[] names = new String[table.rows()];
+        for (Map.Entry<String, Integer> entry : name2Id.entrySet()){
+            if (entry.getValue() < names.length){
+                names[entry.getValue()] = entry.getKey();
+            }
+        }
+        int valueBytes = precision.bytes();
+        long dictionaryOffset = HEADER_SIZE + (long) table.rows() * table.dim() * valueBytes;
+        RandomAccessFile file = new RandomAccessFile(outputFile, "rw");
+        try {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(valueBytes).putInt(table.rows()).putInt(table.dim()).putInt(0).putLong(dictionaryOffset);
+            while (buffer.position() < HEADER_SIZE){
+                buffer.put((byte) 0);
+            }
+            double[] vector = new double[table.dim()];
+            for (int row = 0; row < table.rows(); row++){
+                table.copyRow(row, vector);
+                for (int i = 0; i < table.dim(); i++){
+                    if (buffer.remaining() < 8){
+                        flush(channel, buffer);
+                    }
+                    if (precision == Precision.FLOAT64){
+                        buffer.putDouble(vector[i]);
+                    } else if (precision == Precision.FLOAT32){
+                        buffer.putFloat((float) vector[i]);
+                    } else {
+                        buffer.putShort(Precision.toBFloat16((float) vector[i]));
+                    }
+                }
+            }
+            for (String name : names){
+                byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 4){
+                    flush(channel, buffer);
+                }
+                buffer.putInt(bytes.length);
+                int written = 0;
+                while (written < bytes.length){
+                    if (!buffer.hasRemaining()){
+                        flush(channel, buffer);
+                    }
+                    int length = Math.min(buffer.remaining(), bytes.length - written);
+                    buffer.put(bytes, written, length);
+                    written = written + length;
+                }
+            }
+            flush(channel, buffer);
+        } finally {
+            file.close();
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * rewrite a model file in another precision, e.g. to ship a bfloat16 copy of a float32 model
+     * @param inputFile
+     * @param outputFile
+     * @param precision
+     * @throws IOException
+     */
+    public static void convert(String inputFile, String outputFile, Precision precision) throws IOException {
+        BinaryModel model = open(inputFile);
+        Map<String, Integer> name2Id = new HashMap<String, Integer>(model.rows * 2);
+        for (int row = 0; row < model.rows; row++){
+            name2Id.put(model.names[row], row);
+        }
+        write(outputFile, name2Id, model.toTable(), precision);
+    }
+
+    /**
+     * open a binary model file, the matrix is memory mapped and not copied to the heap
+     * @param inputFile
+     * @return model
+     * @throws IOException if the file is not a binary model or has an unknown version
+     */
+    public static BinaryModel open(String inputFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_SIZE){
+                throw new IOException(inputFile + " is too short for a binary model");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC){
+                throw new IOException(inputFile + " is not a binary model");
+            }
+            int version = header.getInt(4);
+            if (version != VERSION){
+                throw new IOException(inputFile + " has unsupported version " + version);
+            }
+            int valueBytes = header.getInt(8);
+            int rows = header.getInt(12);
+            int dim = header.getInt(16);
+            long dictionaryOffset = header.getLong(24);
+            if ((valueBytes != 2 && valueBytes != 4 && valueBytes != 8) || dictionaryOffset != HEADER_SIZE + (long) rows * dim * valueBytes
+                    || dictionaryOffset > channel.size()){
+                throw new IOException(inputFile + " has a corrupt header");
+            }
+
+            long rowBytes = Math.max(1, (long) dim * valueBytes);
+            int rowsPerPage = (int) Math.max(1, Math.min(Math.max(rows, 1), MAX_PAGE_BYTES / rowBytes));
+            int pageNumber = (rows + rowsPerPage - 1) / rowsPerPage;
+            ByteBuffer[] pages = new ByteBuffer[pageNumber];
+            for (int i = 0; i < pageNumber; i++){
+                int pageRows = Math.min(rowsPerPage, rows - i * rowsPerPage);
+                pages[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + i * rowsPerPage * rowBytes, pageRows * rowBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            long dictionaryBytes = channel.size() - dictionaryOffset;
+            if (dictionaryBytes > Integer.MAX_VALUE){
+                throw new IOException(inputFile + " has a dictionary larger than 2GB");
+            }
+            ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset, dictionaryBytes).order(ByteOrder.LITTLE_ENDIAN);
+            String[] names = new String[rows];
+            byte[] bytes = new byte[64];
+            for (int i = 0; i < rows; i++){
+                if (dictionary.remaining() < 4){
+                    throw new IOException(inputFile + " has a truncated dictionary");
+                }
+                int length = dictionary.getInt();
+                if (length < 0 || length > dictionary.remaining()){
+                    throw new IOException(inputFile + " has a truncated dictionary");
+                }
+                if (length > bytes.length){
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                dictionary.get(bytes, 0, length);
+                names[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            return new BinaryModel(rows, dim, valueBytes, pages, rowsPerPage, names);
+        } finally {
+            file.close(); // mappings stay valid after the channel is closed
+        }
+    }
+
+    public int rows(){
+        return rows;
+    }
+
+    public int dim(){
+        return dim;
+    }
+
+    public boolean isFloat32(){
+        return valueBytes == 4;
+    }
+
+    public Precision precision(){
+        return Precision.ofBytes(valueBytes);
+    }
+
+    public String name(int row){
+        return names[row];
+    }
+
+    /**
+     * row of a name
+     * @param name
+     * @return row, -1 if the name is unknown
+     */
+    public int row(String name){
+        Integer row = name2Row.get(name);
+        return row == null ? -1 : row;
+    }
+
+    public double get(int row, int i){
+        int index = (row % rowsPerPage) * dim + i;
+        ByteBuffer page = pages[row / rowsPerPage];
+        if (valueBytes == 2){
+            return Precision.fromBFloat16(page.getShort(index << 1));
+        }
+        return valueBytes == 4 ? page.getFloat(index << 2) : page.getDouble(index << 3);
+    }
+
+    /**
+     * copy a row into an existing buffer of length >= dim
+     * @param row
+     * @param destination
+     */
+    public void copyRow(int row, double[] destination){
+        ByteBuffer page = pages[row / rowsPerPage];
+        int index = (row % rowsPerPage) * dim;
+        if (valueBytes == 2){
+            for (int i = 0; i < dim; i++){
+                destination[i] = Precision.fromBFloat16(page.getShort((index + i) << 1));
+            }
+        } else if (valueBytes == 4){
+            for (int i = 0; i < dim; i++){
+                destination[i] = page.getFloat((index + i) << 2);
+            }
+        } else {
+            for (int i = 0; i < dim; i++){
+                destination[i] = page.getDouble((index + i) << 3);
+            }
+        }
+    }
+
+    /**
+     * dot product of a row with a vector, read directly from the mapped file
+     * @param row
+     * @param vector vector of length >= dim
+     * @return dot product
+     */
+    public double dot(int row, double[] vector){
+        ByteBuffer page = pages[row / rowsPerPage];
+        int index = (row % rowsPerPage) * dim;
+        double sum = 0;
+        if (valueBytes == 2){
+            for (int i = 0; i < dim; i++){
+                sum = sum + Precision.fromBFloat16(page.getShort((index + i) << 1)) * vector[i];
+            }
+        } else if (valueBytes == 4){
+            for (int i = 0; i < dim; i++){
+                sum = sum + page.getFloat((index + i) << 2) * vector[i];
+            }
+        } else {
+            for (int i = 0; i < dim; i++){
+                sum = sum + page.getDouble((index + i) << 3) * vector[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * vector of a name
+     * @param name
+     * @return copy of the vector, null if the name is unknown
+     */
+    public double[] vector(String name){
+        int row = row(name);
+        if (row < 0){
+            return null;
+        }
+        double[] vector = new double[dim];
+        copyRow(row, vector);
+        return vector;
+    }
+
+    /**
+     * copy the whole model to the heap, float64 models as a float64 table, float32 and bfloat16 models as a float32 table
+     * @return table with the same row order
+     */
+    public EmbeddingTable toTable(){
+        EmbeddingTable table = EmbeddingTable.create(rows, dim, valueBytes == 8 ? Precision.FLOAT64 : Precision.FLOAT32);
+        double[] vector = new double[dim];
+        for (int row = 0; row < rows; row++){
+            copyRow(row, vector);
+            table.setRow(row, vector);
+        }
+        return table;
+    }
+
+    /**
+     * copy the whole model into the map returned by the old serialized format
+     * @return name to vector map
+     */
+    public Map<String, double[]> toMap(){
+        Map<String, double[]> map = new HashMap<String, double[]>(rows * 2);
+        for (int row = 0; row < rows; row++){
+            double[] vector = new double[dim];
+            copyRow(row, vector);
+            map.put(names[row], vector);
+        }
+        return map;
+    }
+}
@@ -14,9 +14,17 @@ public class LoadModel {
 
     private final static Logger logger = Logger.getLogger(LoadModel.class);
 
+    /**
+     * load a model as a name to vector map, both the binary format and the old serialized format are accepted
+     * @param inputFile
+     * @return name to vector map
+     */
     public Map<String, double[]> load(String inputFile){
         Map<String, double[]> resultMap = new HashMap<String, double[]>();
         try {
+            if (BinaryModel.isBinary(inputFile)){
+                return BinaryModel.open(inputFile).toMap();
+            }
             FileInputStream file = new FileInputStream(inputFile);
             ObjectInputStream inputStream = new ObjectInputStream(file);
 
@@ -34,4 +42,14 @@ public class LoadModel {
         return resultMap;
     }
 
+    /**
+     * memory map a model in the binary format, vectors are read from the mapped file on access
+     * @param inputFile
+     * @return model
+     * @throws IOException
+     */
+    public BinaryModel loadBinary(String inputFile) throws IOException {
+        return BinaryModel.open(inputFile);
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.prime.common.io;
 
+import com.prime.common.computinghelper.TripleStore;
 import org.apache.commons.lang3.tuple.Triple;
 
 
@@ -15,8 +16,7 @@ import java.util.Map;
 public class Node2Id {
 
     Map<String, Integer> entity2id, relation2Id;
-    ArrayList<Triple<Integer, Integer, Integer>> tripleIds;
-    ArrayList<Integer> headList, lableList, tailList;
+    TripleStore tripleIds;
     int entitySize, relationSize;
 
 
@@ -25,10 +25,6 @@ public class Node2Id {
         this.entity2id = string2Id(entityList);
         this.relation2Id = string2Id(relationList);
         this.tripleIds = triple2Id(tripleList);
-        this.headList = new ArrayList<Integer>();
-        this.lableList = new ArrayList<Integer>();
-        this.tailList = new ArrayList<Integer>();
-        splitTripleIds();
         this.entitySize = entityList.size();
         this.relationSize = relationList.size();
 
@@ -50,12 +46,12 @@ public class Node2Id {
     }
 
     /**
-     * convert triple Strings to triple integers
+     * convert triple Strings to triple integers stored in int columns
      * @param inputList
      * @return
      */
-    private ArrayList<Triple<Integer, Integer, Integer>> triple2Id (ArrayList<Triple<String, String, String>> inputList) {
-        ArrayList<Triple<Integer, Integer, Integer>> triples = new ArrayList<Triple<Integer, Integer, Integer>>();
+    private TripleStore triple2Id (ArrayList<Triple<String, String, String>> inputList) {
+        TripleStore triples = new TripleStore(inputList.size());
         for (Triple<String, String, String> stringTriple: inputList){
             String headString = stringTriple.getLeft();
             String labelString = stringTriple.getMiddle();
@@ -63,34 +59,26 @@ public class Node2Id {
             int head = entity2id.get(headString);
             int label = relation2Id.get(labelString);
             int tail = entity2id.get(tailString);
-            triples.add(Triple.of(head, label, tail));
+            triples.add(head, label, tail);
         }
 
         return triples;
     }
 
-    private void splitTripleIds(){
-        for(Triple<Integer, Integer, Integer> triple : tripleIds){
-            headList.add(triple.getLeft());
-            lableList.add(triple.getMiddle());
-            tailList.add(triple.getRight());
-        }
-    }
-
-    public ArrayList<Integer> getHeadList() {
-        return headList;
-    }
-
-    public ArrayList<Integer> getLableList() {
-        return lableList;
-    }
-
-    public ArrayList<Integer> getTailList() {
-        return tailList;
+    /**
+     * triple ids as int columns, heads, relations and tails are available with getHeads(), getRelations() and getTails()
+     * @return triple store
+     */
+    public TripleStore getTripleStore() {
+        return tripleIds;
     }
 
+    /**
+     * triple ids as a list of boxed triples, built on every call
+     * @return list of triples
+     */
     public ArrayList<Triple<Integer, Integer, Integer>> getTripleIds() {
-        return tripleIds;
+        return tripleIds.toTriples();
     }
 
     public Map<String, Integer> getEntity2id() {
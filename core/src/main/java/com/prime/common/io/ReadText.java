@@ -11,8 +11,9 @@ import java.util.ArrayList;
 
 /**
  * read in RDF triples and create three lists: entity list, relation list and triple list
- *
+ * @deprecated holds the whole file as strings, use TripleReader which parses straight into a TripleStore
  */
+@Deprecated
 public class ReadText {
 
     private final static Logger logger = Logger.getLogger(ReadText.class);
@@ -30,17 +31,17 @@ public class ReadText {
 
     }
 
-    private ArrayList<String> readString (String filename){
+    private ArrayList<String> readString (String filename) throws IOException{
         ArrayList<String> result = new ArrayList<String>();
 
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), "utf8"));
         try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), "utf8"));
             String line;
             while ((line = reader.readLine()) != null){
                 result.add(line);
             }
-        } catch (IOException e) {
-            logger.error(e.getMessage());
+        } finally {
+            reader.close();
         }
 
         return result;
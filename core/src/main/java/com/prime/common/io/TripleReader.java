@@ -0,0 +1,297 @@
+package com.prime.common.io;
+
+import com.prime.common.computinghelper.TripleStore;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * streaming loader for tab separated triple files (head \t relation \t tail per line). The file is cut into chunks at line boundaries, every
+ * chunk is memory mapped and parsed on its own thread straight into int ids, so the text is never held in memory as lines or String triples.
+ * Chunks intern ids into local dictionaries which are merged in file order afterwards, so ids are the same as with a sequential load: either
+ * the line number in the entity/relation files or the order of first occurrence in the triple file.
+ */
+public class TripleReader {
+
+    private final static Logger logger = Logger.getLogger(TripleReader.class);
+    final static int MIN_CHUNK_SIZE = 1 << 20;
+    final static int MAX_CHUNK_SIZE = 1 << 30;
+    Map<String, Integer> entity2Id;
+    Map<String, Integer> relation2Id;
+    ArrayList<String> entityList;
+    ArrayList<String> relationList;
+    TripleStore tripleStore;
+
+    /**
+     * load triples and assign ids in order of first occurrence
+     * @param tripleFile
+     * @param threads number of parsing threads
+     * @throws IOException
+     */
+    public TripleReader(String tripleFile, int threads) throws IOException {
+        this(tripleFile, null, null, threads);
+    }
+
+    /**
+     * load triples with ids given by the line numbers of the entity and relation files, names missing from them get the next free ids
+     * @param tripleFile
+     * @param entities file with one entity per line, or null
+     * @param relations file with one relation per line, or null
+     * @param threads number of parsing threads
+     * @throws IOException
+     */
+    public TripleReader(String tripleFile, String entities, String relations, int threads) throws IOException {
+        this.entityList = entities == null ? new ArrayList<String>() : readLines(entities);
+        this.relationList = relations == null ? new ArrayList<String>() : readLines(relations);
+        this.entity2Id = string2Id(entityList);
+        this.relation2Id = string2Id(relationList);
+        this.tripleStore = readTriples(tripleFile, Math.max(1, threads));
+    }
+
+    private ArrayList<String> readLines(String filename) throws IOException {
+        ArrayList<String> result = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null){
+                if (!line.isEmpty()){
+                    result.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    private Map<String, Integer> string2Id(ArrayList<String> inputList){
+        Map<String, Integer> map = new HashMap<String, Integer>();
+        for (int i = 0; i < inputList.size(); i ++){
+            map.put(inputList.get(i), i);
+        }
+        return map;
+    }
+
+    /**
+     * split the file into chunks which end at a line break
+     * @param file
+     * @param threads
+     * @return chunk boundaries, chunk i is [bounds[i], bounds[i+1])
+     * @throws IOException
+     */
+    private long[] chunkBounds(RandomAccessFile file, int threads) throws IOException {
+        long length = file.length();
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, length / (threads * 4L) + 1));
+        ArrayList<Long> bounds = new ArrayList<Long>();
+        bounds.add(0L);
+        long position = chunkSize;
+        while (position < length){
+            file.seek(position);
+            int b;
+            while ((b = file.read()) != -1 && b != '\n'){
+                position ++;
+            }
+            position ++; // first byte after the line break
+            if (position >= length){
+                break;
+            }
+            bounds.add(position);
+            position = position + chunkSize;
+        }
+        bounds.add(length);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++){
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private TripleStore readTriples(String tripleFile, int threads) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(tripleFile, "r");
+        ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+        try {
+            FileChannel channel = file.getChannel();
+            long[] bounds = chunkBounds(file, threads);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                ArrayList<Future<Chunk>> futures = new ArrayList<Future<Chunk>>();
+                for (int i = 0; i + 1 < bounds.length; i++){
+                    final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+                    final long start = bounds[i];
+                    futures.add(executor.submit(() -> parse(buffer, start)));
+                }
+                for (Future<Chunk> future : futures){
+                    chunks.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while reading " + tripleFile, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException){
+                    throw new IOException(tripleFile + ": " + e.getCause().getMessage(), e.getCause());
+                }
+                throw new IOException("failed to read " + tripleFile, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            file.close();
+        }
+        ArrayList<TripleStore> stores = new ArrayList<TripleStore>();
+        for (Chunk chunk : chunks){
+            chunk.remap(merge(chunk.entities, entity2Id, entityList), merge(chunk.relations, relation2Id, relationList));
+            stores.add(chunk.triples);
+        }
+        TripleStore result = TripleStore.concat(stores);
+        logger.info("Loaded " + result.size() + " triples, " + entityList.size() + " entities, " + relationList.size() + " relations from " + tripleFile);
+        return result;
+    }
+
+    /**
+     * add the names of a chunk to the global dictionary, in the order the chunk has seen them
+     * @param names local names, index is the local id
+     * @param name2Id global dictionary
+     * @param nameList global names, index is the global id
+     * @return global id for each local id
+     */
+    private int[] merge(ArrayList<String> names, Map<String, Integer> name2Id, ArrayList<String> nameList){
+        int[] remap = new int[names.size()];
+        for (int i = 0; i < remap.length; i++){
+            String name = names.get(i);
+            Integer id = name2Id.get(name);
+            if (id == null){
+                id = nameList.size();
+                name2Id.put(name, id);
+                nameList.add(name);
+            }
+            remap[i] = id;
+        }
+        return remap;
+    }
+
+    /**
+     * parse one chunk, fields are split by scanning bytes for tabs and line breaks
+     * @param buffer
+     * @param start file offset of the chunk, for error messages
+     * @return parsed chunk with local ids
+     * @throws IOException on a line without three fields
+     */
+    private Chunk parse(ByteBuffer buffer, long start) throws IOException {
+        Chunk chunk = new Chunk(buffer.remaining() / 32);
+        byte[] field = new byte[256];
+        int[] ids = new int[3];
+        int fieldNumber = 0;
+        int fieldLength = 0;
+        int limit = buffer.limit();
+        for (int position = 0; position <= limit; position++){
+            byte b = position < limit ? buffer.get(position) : (byte) '\n';
+            if (b == '\n' && fieldNumber == 0 && fieldLength == 0){
+                continue; // empty line
+            }
+            if (b == '\t' || b == '\n'){
+                if (fieldNumber < 3){
+                    ids[fieldNumber] = chunk.intern(field, fieldLength, fieldNumber == 1);
+                }
+                fieldNumber ++;
+                fieldLength = 0;
+                if (b == '\n'){
+                    if (fieldNumber < 3){
+                        throw new IOException("line at byte " + (start + position) + " has less than three tab separated fields");
+                    }
+                    chunk.triples.add(ids[0], ids[1], ids[2]);
+                    fieldNumber = 0;
+                }
+            } else if (b != '\r'){
+                if (fieldLength == field.length){
+                    byte[] larger = new byte[field.length * 2];
+                    System.arraycopy(field, 0, larger, 0, fieldLength);
+                    field = larger;
+                }
+                field[fieldLength ++] = b;
+            }
+        }
+        return chunk;
+    }
+
+    public TripleStore getTripleStore() {
+        return tripleStore;
+    }
+
+    public Map<String, Integer> getEntity2Id() {
+        return entity2Id;
+    }
+
+    public Map<String, Integer> getRelation2Id() {
+        return relation2Id;
+    }
+
+    public ArrayList<String> getEntityList() {
+        return entityList;
+    }
+
+    public ArrayList<String> getRelationList() {
+        return relationList;
+    }
+
+    public int getEntitySize() {
+        return entityList.size();
+    }
+
+    public int getRelationSize() {
+        return relationList.size();
+    }
+
+    /**
+     * triples and local dictionaries of one chunk
+     */
+    private static class Chunk {
+        TripleStore triples;
+        Map<String, Integer> entity2Id = new HashMap<String, Integer>();
+        Map<String, Integer> relation2Id = new HashMap<String, Integer>();
+        ArrayList<String> entities = new ArrayList<String>();
+        ArrayList<String> relations = new ArrayList<String>();
+
+        Chunk(int capacity){
+            this.triples = new TripleStore(capacity);
+        }
+
+        int intern(byte[] bytes, int length, boolean relation){
+            String name = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            Map<String, Integer> name2Id = relation ? relation2Id : entity2Id;
+            Integer id = name2Id.get(name);
+            if (id == null){
+                ArrayList<String> names = relation ? relations : entities;
+                id = names.size();
+                name2Id.put(name, id);
+                names.add(name);
+            }
+            return id;
+        }
+
+        void remap(int[] entityRemap, int[] relationRemap){
+            int[] heads = triples.getHeads();
+            int[] relationIds = triples.getRelations();
+            int[] tails = triples.getTails();
+            for (int i = 0; i < triples.size(); i++){
+                heads[i] = entityRemap[heads[i]];
+                relationIds[i] = relationRemap[relationIds[i]];
+                tails[i] = entityRemap[tails[i]];
+            }
+        }
+    }
+}
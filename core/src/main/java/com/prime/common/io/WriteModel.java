@@ -0,0 +1,90 @@
+package com.prime.common.io;
+
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Precision;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.util.Map;
+
+/**
+ * write serialized model to local disk
+ */
+
+public class WriteModel {
+
+    private final static Logger logger = LogManager.getLogger(WriteModel.class);
+
+
+    public void write(String outputFile, SerializeModelVectors model){
+        try {
+            FileOutputStream file = new FileOutputStream(outputFile);
+            ObjectOutputStream outputStream = new ObjectOutputStream(file);
+            outputStream.writeObject(model);
+            outputStream.flush();
+
+            outputStream.close();
+            file.close();
+
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    public void write2 (String outputFile, SerializeModelLists model){
+        try {
+            FileOutputStream file = new FileOutputStream(outputFile);
+            ObjectOutputStream outputStream = new ObjectOutputStream(file);
+            outputStream.writeObject(model);
+            outputStream.flush();
+
+            outputStream.close();
+            file.close();
+
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * write a table in the binary model format (see BinaryModel) in the precision of the table
+     * @param outputFile
+     * @param name2Id name of every row
+     * @param table
+     */
+    public void writeBinary(String outputFile, Map<String, Integer> name2Id, EmbeddingTable table){
+        writeBinary(outputFile, name2Id, table, table.precision());
+    }
+
+    /**
+     * write a table in the binary model format (see BinaryModel)
+     * @param outputFile
+     * @param name2Id name of every row
+     * @param table
+     * @param float32 true to store float32 values, which halves the file size
+     */
+    public void writeBinary(String outputFile, Map<String, Integer> name2Id, EmbeddingTable table, Boolean float32){
+        try {
+            BinaryModel.write(outputFile, name2Id, table, float32);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * write a table in the binary model format (see BinaryModel)
+     * @param outputFile
+     * @param name2Id name of every row
+     * @param table
+     * @param precision FLOAT64, FLOAT32 or BFLOAT16 (a quarter of the float64 size, about 3 significant digits)
+     */
+    public void writeBinary(String outputFile, Map<String, Integer> name2Id, EmbeddingTable table, Precision precision){
+        try {
+            BinaryModel.write(outputFile, name2Id, table, precision);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+}
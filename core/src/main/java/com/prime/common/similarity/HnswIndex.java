@@ -0,0 +1,661 @@
+package com.prime.common.similarity;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.VectorKernels;
+import com.prime.common.io.BinaryModel;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * approximate nearest neighbour index over entity embeddings (hierarchical navigable small world graph, Malkov and Yashunin). Every entity is a
+ * node with up to 2m links on the bottom layer and up to m links on the sparse upper layers, a search walks greedily from the top layer down
+ * and explores efSearch candidates on the bottom layer. m and efConstruction trade build time and memory for recall, efSearch trades query
+ * latency for recall and can be changed at any time.
+ *
+ * The index stores the graph only, the vectors are read from the model it was built from. It is saved next to the model file (see
+ * indexFile) and loaded by memory mapping, together with a memory mapped BinaryModel.
+ */
+public class HnswIndex {
+
+    final static Logger logger = Logger.getLogger(HnswIndex.class);
+    final static int MAGIC = 0x57534E48; // "HNSW" read as a little endian int
+    final static int VERSION = 1;
+    final static int HEADER_SIZE = 64;
+    final static int MAX_PAGE_BYTES = 1 << 30;
+    final VectorSource vectors;
+    final String[] names;
+    final Map<String, Integer> name2Id;
+    final Metric metric;
+    final int m;
+    final int maxM0;
+    final int efConstruction;
+    volatile int efSearch;
+    final DoubleBuffer norms; // norm for cosine, squared norm for L2
+    final IntBuffer levels;
+    final IntBuffer[] layer0; // per node: link count followed by maxM0 links
+    final int nodesPerPage;
+    final int[][] upper; // per node: (count + m links) for every level above 0, null for nodes on the bottom layer only
+    int entryPoint;
+    int maxLevel;
+    final ThreadLocal<Scratch> scratch;
+
+    private HnswIndex(VectorSource vectors, String[] names, Metric metric, int m, int efConstruction, DoubleBuffer norms, IntBuffer levels,
+                      IntBuffer[] layer0, int nodesPerPage, int[][] upper, int entryPoint, int maxLevel){
+        this.vectors = vectors;
+        this.names = names;
+        this.name2Id = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++){
+            if (names[i] != null){
+                name2Id.put(names[i], i);
+            }
+        }
+        this.metric = metric;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.efSearch = Math.max(efConstruction / 2, 10);
+        this.norms = norms;
+        this.levels = levels;
+        this.layer0 = layer0;
+        this.nodesPerPage = nodesPerPage;
+        this.upper = upper;
+        this.entryPoint = entryPoint;
+        this.maxLevel = maxLevel;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(vectors.rows(), vectors.dim(), Math.max(efConstruction, 4 * m)));
+    }
+
+    /**
+     * build an index over the vectors of a saved entity model
+     * @param model
+     * @param metric
+     * @param m links per node on the upper layers, 2m on the bottom layer (typically 16)
+     * @param efConstruction candidate list size while building, higher gives a better graph (typically 100-200)
+     * @return index
+     */
+    public static HnswIndex build(BinaryModel model, Metric metric, int m, int efConstruction){
+        String[] names = new String[model.rows()];
+        for (int i = 0; i < names.length; i++){
+            names[i] = model.name(i);
+        }
+        return build(VectorSource.of(model), names, metric, m, efConstruction, new Random());
+    }
+
+    /**
+     * build an index over trained entity vectors
+     * @param vectors e.g. TransE.getEntityVectors()
+     * @param entity2Id
+     * @param metric
+     * @param m links per node on the upper layers, 2m on the bottom layer (typically 16)
+     * @param efConstruction candidate list size while building, higher gives a better graph (typically 100-200)
+     * @return index
+     */
+    public static HnswIndex build(EmbeddingTable vectors, Map<String, Integer> entity2Id, Metric metric, int m, int efConstruction){
+        String[] names = new String[vectors.rows()];
+        for (Map.Entry<String, Integer> entry : entity2Id.entrySet()){
+            if (entry.getValue() < names.length){
+                names[entry.getValue()] = entry.getKey();
+            }
+        }
+        return build(VectorSource.of(vectors), names, metric, m, efConstruction, new Random());
+    }
+
+    static HnswIndex build(VectorSource vectors, String[] names, Metric metric, int m, int efConstruction, Random random){
+        if (m < 2){
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        int rows = vectors.rows();
+        int slot = 2 * m + 1;
+        int nodesPerPage = Math.max(1, MAX_PAGE_BYTES / (slot * 4));
+        int pageNumber = (rows + nodesPerPage - 1) / nodesPerPage;
+        IntBuffer[] layer0 = new IntBuffer[pageNumber];
+        for (int i = 0; i < pageNumber; i++){
+            layer0[i] = IntBuffer.allocate(Math.min(nodesPerPage, rows - i * nodesPerPage) * slot);
+        }
+        DoubleBuffer norms = DoubleBuffer.allocate(rows);
+        double[] vector = new double[vectors.dim()];
+        for (int row = 0; row < rows; row++){
+            vectors.copyRow(row, vector);
+            double sum = vectors.dot(row, vector);
+            norms.put(row, metric == Metric.COSINE ? Math.sqrt(sum) : sum);
+        }
+        HnswIndex index = new HnswIndex(vectors, names, metric, m, efConstruction, norms, IntBuffer.allocate(rows), layer0, nodesPerPage,
+                new int[rows][], -1, -1);
+        double levelMultiplier = 1 / Math.log(m);
+        long start = System.nanoTime();
+        for (int node = 0; node < rows; node++){
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            index.insert(node, level);
+            if ((node + 1) % 100000 == 0){
+                logger.info("Indexed " + (node + 1) + " of " + rows + " nodes; " + (System.nanoTime() - start) / 1000000 + " ms");
+            }
+        }
+        return index;
+    }
+
+    private double distance(double[] query, double queryNorm, int node){
+        double dot = vectors.dot(node, query);
+        if (metric == Metric.COSINE){
+            double denominator = queryNorm * norms.get(node);
+            return denominator == 0 ? 1 : 1 - dot / denominator;
+        }
+        return queryNorm + norms.get(node) - 2 * dot;
+    }
+
+    private double queryNorm(double[] query){
+        double sum = VectorKernels.get().squaredNorm(query, 0, query.length);
+        return metric == Metric.COSINE ? Math.sqrt(sum) : sum;
+    }
+
+    private int linkCount(int node, int level){
+        if (level == 0){
+            return layer0[node / nodesPerPage].get((node % nodesPerPage) * (maxM0 + 1));
+        }
+        return upper[node][(level - 1) * (m + 1)];
+    }
+
+    private int link(int node, int level, int j){
+        if (level == 0){
+            return layer0[node / nodesPerPage].get((node % nodesPerPage) * (maxM0 + 1) + 1 + j);
+        }
+        return upper[node][(level - 1) * (m + 1) + 1 + j];
+    }
+
+    private void setLinks(int node, int level, int[] links, int count){
+        if (level == 0){
+            IntBuffer page = layer0[node / nodesPerPage];
+            int base = (node % nodesPerPage) * (maxM0 + 1);
+            page.put(base, count);
+            for (int j = 0; j < count; j++){
+                page.put(base + 1 + j, links[j]);
+            }
+        } else {
+            int base = (level - 1) * (m + 1);
+            upper[node][base] = count;
+            System.arraycopy(links, 0, upper[node], base + 1, count);
+        }
+    }
+
+    private void insert(int node, int level){
+        levels.put(node, level);
+        if (level > 0){
+            upper[node] = new int[level * (m + 1)];
+        }
+        if (entryPoint < 0){
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        Scratch s = scratch.get();
+        double[] query = s.query;
+        vectors.copyRow(node, query);
+        double queryNorm = norms.get(node);
+
+        int current = entryPoint;
+        double currentDistance = distance(query, queryNorm, current);
+        for (int l = maxLevel; l > level; l--){
+            boolean changed = true;
+            while (changed){
+                changed = false;
+                for (int j = 0; j < linkCount(current, l); j++){
+                    int neighbor = link(current, l, j);
+                    double d = distance(query, queryNorm, neighbor);
+                    if (d < currentDistance){
+                        currentDistance = d;
+                        current = neighbor;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        int[] entries = new int[]{current};
+        int entryNumber = 1;
+        for (int l = Math.min(level, maxLevel); l >= 0; l--){
+            searchLayer(query, queryNorm, entries, entryNumber, efConstruction, l, -1, s);
+            int found = s.drainSorted();
+            int maxLinks = l == 0 ? maxM0 : m;
+            int selected = selectNeighbors(s.sortedNodes, s.sortedDistances, found, m, s);
+            setLinks(node, l, s.selected, selected);
+            int[] chosen = new int[selected];
+            System.arraycopy(s.selected, 0, chosen, 0, selected);
+            entries = new int[found];
+            System.arraycopy(s.sortedNodes, 0, entries, 0, found);
+            entryNumber = found;
+            for (int neighbor : chosen){
+                addLink(neighbor, node, l, maxLinks, s);
+            }
+        }
+        if (level > maxLevel){
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * add a back link, if the node has too many links keep the best ones by the selection heuristic
+     */
+    private void addLink(int node, int newLink, int level, int maxLinks, Scratch s){
+        int count = linkCount(node, level);
+        if (count < maxLinks){
+            for (int j = 0; j < count; j++){
+                s.links[j] = link(node, level, j);
+            }
+            s.links[count] = newLink;
+            setLinks(node, level, s.links, count + 1);
+            return;
+        }
+        double[] base = s.base;
+        vectors.copyRow(node, base);
+        double baseNorm = norms.get(node);
+        s.results.clear();
+        for (int j = 0; j < count; j++){
+            int neighbor = link(node, level, j);
+            s.results.push(neighbor, -distance(base, baseNorm, neighbor));
+        }
+        s.results.push(newLink, -distance(base, baseNorm, newLink));
+        int found = s.drainSorted();
+        int selected = selectNeighbors(s.sortedNodes, s.sortedDistances, found, maxLinks, s);
+        setLinks(node, level, s.selected, selected);
+    }
+
+    /**
+     * neighbour selection heuristic: a candidate is kept only if it is closer to the base node than to every neighbour kept so far, which
+     * keeps links spread over different directions. Remaining slots are filled with the closest pruned candidates.
+     * @param candidates sorted by ascending distance to the base node
+     * @param distances
+     * @param count
+     * @param maxLinks
+     * @param s
+     * @return number of selected nodes in s.selected
+     */
+    private int selectNeighbors(int[] candidates, double[] distances, int count, int maxLinks, Scratch s){
+        int selected = 0;
+        int pruned = 0;
+        for (int i = 0; i < count && selected < maxLinks; i++){
+            int candidate = candidates[i];
+            vectors.copyRow(candidate, s.candidate);
+            double candidateNorm = norms.get(candidate);
+            boolean good = true;
+            for (int j = 0; j < selected; j++){
+                if (distance(s.candidate, candidateNorm, s.selected[j]) < distances[i]){
+                    good = false;
+                    break;
+                }
+            }
+            if (good){
+                s.selected[selected ++] = candidate;
+            } else {
+                s.pruned[pruned ++] = candidate;
+            }
+        }
+        for (int i = 0; i < pruned && selected < maxLinks; i++){
+            s.selected[selected ++] = s.pruned[i];
+        }
+        return selected;
+    }
+
+    /**
+     * beam search on one layer, the ef closest nodes found are left in s.results (farthest on top)
+     */
+    private void searchLayer(double[] query, double queryNorm, int[] entries, int entryNumber, int ef, int level, int exclude, Scratch s){
+        int visit = s.nextVisit();
+        s.candidates.clear();
+        s.results.clear();
+        for (int i = 0; i < entryNumber; i++){
+            int entry = entries[i];
+            if (s.visited[entry] == visit){
+                continue;
+            }
+            s.visited[entry] = visit;
+            double d = distance(query, queryNorm, entry);
+            s.candidates.push(entry, d);
+            if (entry != exclude){
+                s.results.push(entry, -d);
+                if (s.results.size() > ef){
+                    s.results.pop();
+                }
+            }
+        }
+        while (s.candidates.size() > 0){
+            double candidateDistance = s.candidates.peekKey();
+            if (s.results.size() >= ef && candidateDistance > -s.results.peekKey()){
+                break;
+            }
+            int candidate = s.candidates.pop();
+            int count = linkCount(candidate, level);
+            for (int j = 0; j < count; j++){
+                int neighbor = link(candidate, level, j);
+                if (s.visited[neighbor] == visit){
+                    continue;
+                }
+                s.visited[neighbor] = visit;
+                double d = distance(query, queryNorm, neighbor);
+                if (s.results.size() < ef || d < -s.results.peekKey()){
+                    s.candidates.push(neighbor, d);
+                    if (neighbor != exclude){
+                        s.results.push(neighbor, -d);
+                        if (s.results.size() > ef){
+                            s.results.pop();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * approximate k nearest entities of a vector
+     * @param query vector of length dim
+     * @param k number of neighbours, at least 1
+     * @return neighbours, closest first, scored like NearestNeighbors (cosine similarity or euclidean distance)
+     */
+    public List<Neighbor> search(double[] query, int k){
+        return search(query, k, -1);
+    }
+
+    /**
+     * approximate k nearest entities of an entity, the entity itself is left out
+     * @param entity
+     * @param k number of neighbours, at least 1
+     * @return neighbours, closest first
+     */
+    public List<Neighbor> search(String entity, int k){
+        Integer node = name2Id.get(entity);
+        if (node == null){
+            throw new IllegalArgumentException("unknown entity " + entity);
+        }
+        double[] query = new double[vectors.dim()];
+        vectors.copyRow(node, query);
+        return search(query, k, node);
+    }
+
+    private List<Neighbor> search(double[] query, int k, int exclude){
+        if (k < 1){
+            throw new IllegalArgumentException("k has to be at least 1, got " + k);
+        }
+        if (query.length != vectors.dim()){
+            throw new IllegalArgumentException("query has dimension " + query.length + ", expected " + vectors.dim());
+        }
+        ArrayList<Neighbor> neighbors = new ArrayList<Neighbor>(k);
+        if (entryPoint < 0){
+            return neighbors;
+        }
+        Scratch s = scratch.get();
+        double queryNorm = queryNorm(query);
+        int current = entryPoint;
+        double currentDistance = distance(query, queryNorm, current);
+        for (int l = maxLevel; l > 0; l--){
+            boolean changed = true;
+            while (changed){
+                changed = false;
+                for (int j = 0; j < linkCount(current, l); j++){
+                    int neighbor = link(current, l, j);
+                    double d = distance(query, queryNorm, neighbor);
+                    if (d < currentDistance){
+                        currentDistance = d;
+                        current = neighbor;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        searchLayer(query, queryNorm, new int[]{current}, 1, Math.max(efSearch, k), 0, exclude, s);
+        int found = s.drainSorted();
+        for (int i = 0; i < found && i < k; i++){
+            double d = s.sortedDistances[i];
+            double score = metric == Metric.COSINE ? 1 - d : Math.sqrt(Math.max(0, d));
+            neighbors.add(new Neighbor(s.sortedNodes[i], names[s.sortedNodes[i]], score));
+        }
+        return neighbors;
+    }
+
+    /**
+     * size of the candidate list of a search, higher gives better recall and slower queries
+     * @param efSearch
+     */
+    public void setEfSearch(int efSearch) {
+        this.efSearch = Math.max(1, efSearch);
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    public int getM() {
+        return m;
+    }
+
+    public int getEfConstruction() {
+        return efConstruction;
+    }
+
+    public int rows(){
+        return vectors.rows();
+    }
+
+    /**
+     * file name of the index saved next to a model
+     * @param modelFile
+     * @return index file name
+     */
+    public static String indexFile(String modelFile){
+        return modelFile + ".hnsw";
+    }
+
+    /**
+     * save the graph, the vectors stay in the model file
+     * layout (little endian): 64 byte header (magic "HNSW", version, metric, m, efConstruction, rows, dim, entry point, max level), the norms
+     * as doubles, the bottom layer as (2m + 1) ints per node, the level of every node as ints, then the upper layer links of every node above
+     * the bottom layer in node order
+     * @param indexFile
+     * @throws IOException
+     */
+    public void save(String indexFile) throws IOException {
+        int rows = vectors.rows();
+        RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+        try {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(metric.ordinal()).putInt(m).putInt(efConstruction).putInt(rows).putInt(vectors.dim())
+                    .putInt(entryPoint).putInt(maxLevel);
+            while (buffer.position() < HEADER_SIZE){
+                buffer.put((byte) 0);
+            }
+            for (int i = 0; i < rows; i++){
+                if (buffer.remaining() < 8){
+                    flush(channel, buffer);
+                }
+                buffer.putDouble(norms.get(i));
+            }
+            for (IntBuffer page : layer0){
+                for (int i = 0; i < page.capacity(); i++){
+                    if (buffer.remaining() < 4){
+                        flush(channel, buffer);
+                    }
+                    buffer.putInt(page.get(i));
+                }
+            }
+            for (int i = 0; i < rows; i++){
+                if (buffer.remaining() < 4){
+                    flush(channel, buffer);
+                }
+                buffer.putInt(levels.get(i));
+            }
+            for (int i = 0; i < rows; i++){
+                if (upper[i] != null){
+                    for (int value : upper[i]){
+                        if (buffer.remaining() < 4){
+                            flush(channel, buffer);
+                        }
+                        buffer.putInt(value);
+                    }
+                }
+            }
+            flush(channel, buffer);
+        } finally {
+            file.close();
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * load a saved index, norms and the bottom layer are memory mapped and only the sparse upper layers are read to the heap
+     * @param indexFile
+     * @param model the model the index was built from
+     * @return index
+     * @throws IOException if the file is not an index or does not match the model
+     */
+    public static HnswIndex load(String indexFile, BinaryModel model) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_SIZE){
+                throw new IOException(indexFile + " is too short for an index");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC){
+                throw new IOException(indexFile + " is not an hnsw index");
+            }
+            if (header.getInt(4) != VERSION){
+                throw new IOException(indexFile + " has unsupported version " + header.getInt(4));
+            }
+            int metricOrdinal = header.getInt(8);
+            if (metricOrdinal < 0 || metricOrdinal >= Metric.values().length){
+                throw new IOException(indexFile + " has unknown metric " + metricOrdinal);
+            }
+            Metric metric = Metric.values()[metricOrdinal];
+            int m = header.getInt(12);
+            int efConstruction = header.getInt(16);
+            int rows = header.getInt(20);
+            int dim = header.getInt(24);
+            int entryPoint = header.getInt(28);
+            int maxLevel = header.getInt(32);
+            if (rows != model.rows() || dim != model.dim()){
+                throw new IOException(indexFile + " was built for " + rows + " x " + dim + " vectors, the model has " + model.rows() + " x " + model.dim());
+            }
+            if ((long) rows * 8 > Integer.MAX_VALUE){
+                throw new IOException(indexFile + " has too many nodes to be mapped");
+            }
+
+            long position = HEADER_SIZE;
+            DoubleBuffer norms = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) rows * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            position = position + (long) rows * 8;
+            int slot = 2 * m + 1;
+            int nodesPerPage = Math.max(1, MAX_PAGE_BYTES / (slot * 4));
+            int pageNumber = (rows + nodesPerPage - 1) / nodesPerPage;
+            IntBuffer[] layer0 = new IntBuffer[pageNumber];
+            for (int i = 0; i < pageNumber; i++){
+                long bytes = (long) Math.min(nodesPerPage, rows - i * nodesPerPage) * slot * 4;
+                layer0[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                position = position + bytes;
+            }
+            IntBuffer levels = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) rows * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            position = position + (long) rows * 4;
+            IntBuffer upperLinks = channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position).order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer();
+            int[][] upper = new int[rows][];
+            for (int i = 0; i < rows; i++){
+                int level = levels.get(i);
+                if (level > 0){
+                    upper[i] = new int[level * (m + 1)];
+                    upperLinks.get(upper[i]);
+                }
+            }
+            String[] names = new String[rows];
+            for (int i = 0; i < rows; i++){
+                names[i] = model.name(i);
+            }
+            return new HnswIndex(VectorSource.of(model), names, metric, m, efConstruction, norms, levels, layer0, nodesPerPage, upper,
+                    entryPoint, maxLevel);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * search buffers of one thread
+     */
+    private static class Scratch {
+        final int[] visited;
+        int visit;
+        final NodeHeap candidates;
+        final NodeHeap results;
+        int[] sortedNodes;
+        double[] sortedDistances;
+        int[] selected;
+        int[] pruned;
+        int[] links;
+        final double[] query;
+        final double[] base;
+        final double[] candidate;
+
+        Scratch(int rows, int dim, int ef){
+            this.visited = new int[rows];
+            this.visit = 0;
+            this.candidates = new NodeHeap(ef * 4);
+            this.results = new NodeHeap(ef + 1);
+            this.sortedNodes = new int[ef + 1];
+            this.sortedDistances = new double[ef + 1];
+            this.selected = new int[ef + 1];
+            this.pruned = new int[ef + 1];
+            this.links = new int[ef + 1];
+            this.query = new double[dim];
+            this.base = new double[dim];
+            this.candidate = new double[dim];
+        }
+
+        int nextVisit(){
+            visit ++;
+            if (visit == Integer.MAX_VALUE){
+                Arrays.fill(visited, 0);
+                visit = 1;
+            }
+            return visit;
+        }
+
+        /**
+         * empty the result heap into sortedNodes/sortedDistances, closest first
+         * @return number of results
+         */
+        int drainSorted(){
+            int n = results.size();
+            if (sortedNodes.length < n){
+                sortedNodes = new int[n];
+                sortedDistances = new double[n];
+                selected = new int[n];
+                pruned = new int[n];
+                links = new int[n];
+            }
+            for (int i = n - 1; i >= 0; i--){
+                sortedDistances[i] = -results.peekKey();
+                sortedNodes[i] = results.pop();
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.prime.common.similarity;
+
+/**
+ * similarity measures for nearest neighbour search
+ */
+public enum Metric {
+    /** cosine similarity, higher is closer */
+    COSINE,
+    /** euclidean distance, lower is closer */
+    L2
+}
@@ -0,0 +1,246 @@
+package com.prime.common.similarity;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.VectorKernels;
+import com.prime.common.io.BinaryModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * exact top-k nearest neighbour search over entity embeddings. The vectors are scanned from the contiguous EmbeddingTable pages with norms
+ * computed once up front, so cosine and euclidean scores are a single dot product per candidate. The table is split into row ranges which are
+ * scanned in parallel, each range keeps a bounded heap per query and the heaps are merged at the end. A batch of queries is answered in one
+ * scan, every row is read once for all queries of the batch.
+ */
+public class NearestNeighbors {
+
+    final static int MIN_ROWS_PER_TASK = 4096;
+    final static VectorKernels kernels = VectorKernels.get();
+    final EmbeddingTable vectors;
+    final boolean isFloat32;
+    final String[] names;
+    final Map<String, Integer> entity2Id;
+    final double[] norms;
+    final double[] squaredNorms;
+    final int threads;
+    final ExecutorService executor;
+
+    /**
+     * @param vectors entity vectors, e.g. TransE.getEntityVectors()
+     * @param entity2Id entity name to row, as used for training
+     * @param threads number of scan threads, 1 scans on the calling thread
+     */
+    public NearestNeighbors(EmbeddingTable vectors, Map<String, Integer> entity2Id, int threads){
+        this.vectors = vectors;
+        this.isFloat32 = vectors.precision() == Precision.FLOAT32;
+        this.entity2Id = entity2Id;
+        this.names = new String[vectors.rows()];
+        for (Map.Entry<String, Integer> entry : entity2Id.entrySet()){
+            if (entry.getValue() < names.length){
+                names[entry.getValue()] = entry.getKey();
+            }
+        }
+        this.norms = new double[vectors.rows()];
+        this.squaredNorms = new double[vectors.rows()];
+        for (int row = 0; row < vectors.rows(); row++){
+            double sum = isFloat32 ? kernels.squaredNorm(vectors.floatPage(row), vectors.offset(row), vectors.dim())
+                    : kernels.squaredNorm(vectors.page(row), vectors.offset(row), vectors.dim());
+            squaredNorms[row] = sum;
+            norms[row] = Math.sqrt(sum);
+        }
+        this.threads = Math.max(1, threads);
+        this.executor = this.threads == 1 ? null : Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "nearest-neighbors");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * search over a saved model, the vectors are copied to the heap (float32 and bfloat16 models as a float32 table)
+     * @param model entity model written by one of the embedding models
+     * @param threads
+     * @return search engine
+     */
+    public static NearestNeighbors fromModel(BinaryModel model, int threads){
+        Map<String, Integer> entity2Id = new HashMap<String, Integer>(model.rows() * 2);
+        for (int row = 0; row < model.rows(); row++){
+            entity2Id.put(model.name(row), row);
+        }
+        return new NearestNeighbors(model.toTable(), entity2Id, threads);
+    }
+
+    /**
+     * the k entities closest to an entity, the entity itself is left out
+     * @param entity entity name
+     * @param k number of neighbours, at least 1
+     * @param metric
+     * @return neighbours, closest first
+     */
+    public List<Neighbor> search(String entity, int k, Metric metric){
+        ArrayList<String> entities = new ArrayList<String>(1);
+        entities.add(entity);
+        return searchBatch(entities, k, metric).get(0);
+    }
+
+    /**
+     * the k entities closest to each entity of a batch, answered with a single scan
+     * @param entities entity names
+     * @param k number of neighbours, at least 1
+     * @param metric
+     * @return neighbours of every entity, closest first
+     */
+    public List<List<Neighbor>> searchBatch(List<String> entities, int k, Metric metric){
+        double[][] queries = new double[entities.size()][];
+        int[] exclude = new int[entities.size()];
+        for (int q = 0; q < queries.length; q++){
+            Integer row = entity2Id.get(entities.get(q));
+            if (row == null){
+                throw new IllegalArgumentException("unknown entity " + entities.get(q));
+            }
+            queries[q] = vectors.row(row);
+            exclude[q] = row;
+        }
+        return scan(queries, exclude, k, metric);
+    }
+
+    /**
+     * the k entities closest to a vector
+     * @param query vector of length dim
+     * @param k number of neighbours, at least 1
+     * @param metric
+     * @return neighbours, closest first
+     */
+    public List<Neighbor> search(double[] query, int k, Metric metric){
+        return scan(new double[][]{query}, new int[]{-1}, k, metric).get(0);
+    }
+
+    /**
+     * the k entities closest to each vector of a batch
+     * @param queries vectors of length dim
+     * @param k number of neighbours, at least 1
+     * @param metric
+     * @return neighbours of every vector, closest first
+     */
+    public List<List<Neighbor>> searchBatch(double[][] queries, int k, Metric metric){
+        int[] exclude = new int[queries.length];
+        Arrays.fill(exclude, -1);
+        return scan(queries, exclude, k, metric);
+    }
+
+    private List<List<Neighbor>> scan(final double[][] queries, final int[] exclude, final int k, final Metric metric){
+        if (k < 1){
+            throw new IllegalArgumentException("k has to be at least 1, got " + k);
+        }
+        final double[] queryNorms = new double[queries.length];
+        for (int q = 0; q < queries.length; q++){
+            if (queries[q].length != vectors.dim()){
+                throw new IllegalArgumentException("query has dimension " + queries[q].length + ", expected " + vectors.dim());
+            }
+            double sum = kernels.squaredNorm(queries[q], 0, queries[q].length);
+            queryNorms[q] = metric == Metric.COSINE ? Math.sqrt(sum) : sum;
+        }
+        int rows = vectors.rows();
+        int tasks = threads == 1 ? 1 : Math.max(1, Math.min(threads * 4, rows / MIN_ROWS_PER_TASK));
+        TopK[] result;
+        if (tasks == 1){
+            result = scanRange(queries, queryNorms, exclude, k, metric, 0, rows);
+        } else {
+            ArrayList<Future<TopK[]>> futures = new ArrayList<Future<TopK[]>>(tasks);
+            for (int t = 0; t < tasks; t++){
+                final int start = (int) ((long) rows * t / tasks);
+                final int end = (int) ((long) rows * (t + 1) / tasks);
+                futures.add(executor.submit(() -> scanRange(queries, queryNorms, exclude, k, metric, start, end)));
+            }
+            try {
+                result = futures.get(0).get();
+                for (int t = 1; t < tasks; t++){
+                    TopK[] partial = futures.get(t).get();
+                    for (int q = 0; q < queries.length; q++){
+                        result[q].merge(partial[q]);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        List<List<Neighbor>> neighbors = new ArrayList<List<Neighbor>>(queries.length);
+        int[] ids = new int[k];
+        double[] scores = new double[k];
+        for (int q = 0; q < queries.length; q++){
+            int n = result[q].drain(ids, scores);
+            ArrayList<Neighbor> list = new ArrayList<Neighbor>(n);
+            for (int i = 0; i < n; i++){
+                double score = metric == Metric.COSINE ? scores[i] : Math.sqrt(Math.max(0, -scores[i]));
+                list.add(new Neighbor(ids[i], names[ids[i]], score));
+            }
+            neighbors.add(list);
+        }
+        return neighbors;
+    }
+
+    /**
+     * score rows [start, end) against all queries, scores are kept as "higher is closer": the cosine similarity or the negative squared distance
+     */
+    private TopK[] scanRange(double[][] queries, double[] queryNorms, int[] exclude, int k, Metric metric, int start, int end){
+        TopK[] heaps = new TopK[queries.length];
+        for (int q = 0; q < queries.length; q++){
+            heaps[q] = new TopK(k);
+        }
+        int dim = vectors.dim();
+        float[][] floatQueries = isFloat32 ? new float[queries.length][dim] : null;
+        for (int q = 0; isFloat32 && q < queries.length; q++){
+            for (int i = 0; i < dim; i++){
+                floatQueries[q][i] = (float) queries[q][i];
+            }
+        }
+        for (int row = start; row < end; row++){
+            double[] page = isFloat32 ? null : vectors.page(row);
+            float[] floatPage = isFloat32 ? vectors.floatPage(row) : null;
+            int offset = vectors.offset(row);
+            for (int q = 0; q < queries.length; q++){
+                if (row == exclude[q]){
+                    continue;
+                }
+                double dot = isFloat32 ? kernels.dot(floatQueries[q], 0, floatPage, offset, dim) : kernels.dot(queries[q], 0, page, offset, dim);
+                double score;
+                if (metric == Metric.COSINE){
+                    double denominator = queryNorms[q] * norms[row];
+                    score = denominator == 0 ? 0 : dot / denominator;
+                } else {
+                    score = 2 * dot - queryNorms[q] - squaredNorms[row];
+                }
+                if (score > heaps[q].threshold()){
+                    heaps[q].offer(row, score);
+                }
+            }
+        }
+        return heaps;
+    }
+
+    public int rows(){
+        return vectors.rows();
+    }
+
+    /**
+     * stop the scan threads
+     */
+    public void shutdown(){
+        if (executor != null){
+            executor.shutdownNow();
+        }
+    }
+}
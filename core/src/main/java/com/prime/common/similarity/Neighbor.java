@@ -0,0 +1,38 @@
+package com.prime.common.similarity;
+
+/**
+ * one result of a nearest neighbour search
+ */
+public class Neighbor {
+
+    final int id;
+    final String name;
+    final double score;
+
+    public Neighbor(int id, String name, double score){
+        this.id = id;
+        this.name = name;
+        this.score = score;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * cosine similarity or euclidean distance, depending on the metric of the search
+     * @return score
+     */
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + score;
+    }
+}
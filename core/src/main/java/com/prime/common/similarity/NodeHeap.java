@@ -0,0 +1,87 @@
+package com.prime.common.similarity;
+
+import java.util.Arrays;
+
+/**
+ * growable binary min-heap of (node, key) pairs on primitive arrays, used for the candidate and result queues of the graph search. A max-heap
+ * is obtained by pushing negated keys.
+ */
+class NodeHeap {
+
+    int[] nodes;
+    double[] keys;
+    int size;
+
+    NodeHeap(int capacity){
+        this.nodes = new int[Math.max(1, capacity)];
+        this.keys = new double[Math.max(1, capacity)];
+        this.size = 0;
+    }
+
+    void clear(){
+        size = 0;
+    }
+
+    int size(){
+        return size;
+    }
+
+    int peekNode(){
+        return nodes[0];
+    }
+
+    double peekKey(){
+        return keys[0];
+    }
+
+    void push(int node, double key){
+        if (size == nodes.length){
+            nodes = Arrays.copyOf(nodes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        int i = size ++;
+        while (i > 0){
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key){
+                break;
+            }
+            nodes[i] = nodes[parent];
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        nodes[i] = node;
+        keys[i] = key;
+    }
+
+    /**
+     * remove the pair with the smallest key
+     * @return node of the removed pair
+     */
+    int pop(){
+        int top = nodes[0];
+        size --;
+        if (size > 0){
+            int node = nodes[size];
+            double key = keys[size];
+            int i = 0;
+            while (true){
+                int child = 2 * i + 1;
+                if (child >= size){
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]){
+                    child ++;
+                }
+                if (keys[child] >= key){
+                    break;
+                }
+                nodes[i] = nodes[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+        return top;
+    }
+}
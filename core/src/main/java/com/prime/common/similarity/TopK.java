@@ -0,0 +1,105 @@
+package com.prime.common.similarity;
+
+/**
+ * bounded min-heap on primitive arrays which keeps the k highest scores seen so far. The root is the weakest kept result, so a candidate that
+ * does not beat it is rejected with one comparison.
+ */
+class TopK {
+
+    final int k;
+    final int[] ids;
+    final double[] scores;
+    int size;
+
+    /**
+     * @param k number of kept results, at least 1
+     */
+    TopK(int k){
+        if (k < 1){
+            throw new IllegalArgumentException("k has to be at least 1, got " + k);
+        }
+        this.k = k;
+        this.ids = new int[k];
+        this.scores = new double[k];
+        this.size = 0;
+    }
+
+    /**
+     * lowest kept score, candidates have to beat it once the heap is full
+     * @return threshold
+     */
+    double threshold(){
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    void offer(int id, double score){
+        if (size < k){
+            int i = size ++;
+            while (i > 0){
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score){
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        } else if (score > scores[0]){
+            siftDown(id, score);
+        }
+    }
+
+    private void siftDown(int id, double score){
+        int i = 0;
+        while (true){
+            int child = 2 * i + 1;
+            if (child >= size){
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]){
+                child ++;
+            }
+            if (scores[child] >= score){
+                break;
+            }
+            ids[i] = ids[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+
+    /**
+     * add all results of another heap
+     * @param other
+     */
+    void merge(TopK other){
+        for (int i = 0; i < other.size; i++){
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * empty the heap into arrays sorted by descending score
+     * @param sortedIds
+     * @param sortedScores
+     * @return number of results
+     */
+    int drain(int[] sortedIds, double[] sortedScores){
+        int n = size;
+        for (int i = n - 1; i >= 0; i--){
+            sortedIds[i] = ids[0];
+            sortedScores[i] = scores[0];
+            size --;
+            if (size > 0){
+                int lastId = ids[size];
+                double lastScore = scores[size];
+                siftDown(lastId, lastScore);
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,69 @@
+package com.prime.common.similarity;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.VectorKernels;
+import com.prime.common.io.BinaryModel;
+
+/**
+ * read access to the vectors behind an index, either a heap table or a memory mapped model
+ */
+abstract class VectorSource {
+
+    abstract int rows();
+
+    abstract int dim();
+
+    abstract double dot(int row, double[] vector);
+
+    abstract void copyRow(int row, double[] destination);
+
+    static VectorSource of(final EmbeddingTable table){
+        return new VectorSource() {
+            int rows(){
+                return table.rows();
+            }
+
+            int dim(){
+                return table.dim();
+            }
+
+            double dot(int row, double[] vector){
+                if (table.precision() == Precision.FLOAT64){
+                    return VectorKernels.get().dot(table.page(row), table.offset(row), vector, 0, table.dim());
+                }
+                float[] page = table.floatPage(row);
+                int offset = table.offset(row);
+                double sum = 0;
+                for (int i = 0; i < table.dim(); i++){
+                    sum = sum + page[offset + i] * vector[i];
+                }
+                return sum;
+            }
+
+            void copyRow(int row, double[] destination){
+                table.copyRow(row, destination);
+            }
+        };
+    }
+
+    static VectorSource of(final BinaryModel model){
+        return new VectorSource() {
+            int rows(){
+                return model.rows();
+            }
+
+            int dim(){
+                return model.dim();
+            }
+
+            double dot(int row, double[] vector){
+                return model.dot(row, vector);
+            }
+
+            void copyRow(int row, double[] destination){
+                model.copyRow(row, destination);
+            }
+        };
+    }
+}
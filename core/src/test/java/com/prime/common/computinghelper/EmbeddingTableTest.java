@@ -0,0 +1,71 @@
+package com.prime.common.computinghelper;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * a FLOAT32 table stores what setRow gets rounded to float and widens it back in copyRow, a FLOAT64 table keeps the values as they are
+ */
+public class EmbeddingTableTest {
+
+    final static int ROWS = 3000; // more than one page at dim 50
+    final static int DIM = 50;
+
+    @Test
+    public void float32RowsAreTheRoundedFloat64Rows(){
+        double[][] rows = TestTables.gaussianRows(ROWS, DIM, 1, new Random(1));
+        EmbeddingTable float64 = TestTables.table(rows, Precision.FLOAT64);
+        EmbeddingTable float32 = TestTables.table(rows, Precision.FLOAT32);
+        double[] row64 = new double[DIM];
+        double[] row32 = new double[DIM];
+        for (int i = 0; i < ROWS; i++){
+            float64.copyRow(i, row64);
+            float32.copyRow(i, row32);
+            assertArrayEquals(rows[i], row64, 0);
+            for (int j = 0; j < DIM; j++){
+                assertEquals((double) (float) rows[i][j], row32[j], 0);
+                assertEquals(row64[j], row32[j], Math.abs(row64[j]) * 0x1p-24);
+            }
+        }
+    }
+
+    @Test
+    public void copyRowWithOffset(){
+        double[][] rows = TestTables.gaussianRows(ROWS, DIM, 1, new Random(2));
+        for (Precision precision : new Precision[]{Precision.FLOAT64, Precision.FLOAT32}){
+            EmbeddingTable table = TestTables.table(rows, precision);
+            double[] block = new double[3 * DIM];
+            for (int i = 0; i + 2 < ROWS; i += 997){
+                for (int b = 0; b < 3; b++){
+                    table.copyRow(i + b, block, b * DIM);
+                }
+                for (int b = 0; b < 3; b++){
+                    double[] row = table.row(i + b);
+                    for (int j = 0; j < DIM; j++){
+                        assertEquals(row[j], block[b * DIM + j], 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void copyToFloat32AndBack(){
+        double[][] rows = TestTables.gaussianRows(ROWS, DIM, 1, new Random(3));
+        EmbeddingTable float64 = TestTables.table(rows, Precision.FLOAT64);
+        EmbeddingTable float32 = float64.copy(Precision.FLOAT32);
+        EmbeddingTable back = float32.copy(Precision.FLOAT64);
+        assertEquals(Precision.FLOAT32, float32.precision());
+        assertEquals(Precision.FLOAT64, back.precision());
+        for (int i = 0; i < ROWS; i++){
+            assertArrayEquals(float32.row(i), back.row(i), 0);
+            for (int j = 0; j < DIM; j++){
+                assertEquals((double) (float) rows[i][j], back.get(i, j), 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.prime.common.computinghelper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the batch products match a vector at a time with Helper.spaceProjection, for batch sizes below, at and above multiples of four (the
+ * unrolled loop and its tail) and rectangular matrices, with work rows longer than needed and filled with garbage
+ */
+public class GemmTest {
+
+    final static double EPSILON = 1e-12;
+    final static int[] COUNTS = {1, 2, 3, 4, 5, 7, 8, 9, 13};
+    final static int[][] SHAPES = {{1, 1}, {5, 7}, {7, 3}, {16, 9}};
+
+    private static double[][] work(int length){
+        double[][] work = new double[4][length + 3];
+        for (double[] row : work){
+            Arrays.fill(row, Double.NaN);
+        }
+        return work;
+    }
+
+    private static double[] flat(double[][] vectors, int length){
+        double[] batch = new double[vectors.length * length];
+        for (int i = 0; i < vectors.length; i++){
+            System.arraycopy(vectors[i], 0, batch, i * length, length);
+        }
+        return batch;
+    }
+
+    private static double[][] transpose(double[][] matrix){
+        double[][] transposed = new double[matrix[0].length][matrix.length];
+        for (int i = 0; i < matrix.length; i++){
+            for (int j = 0; j < matrix[0].length; j++){
+                transposed[j][i] = matrix[i][j];
+            }
+        }
+        return transposed;
+    }
+
+    @Test
+    public void multiplyMatchesSpaceProjection(){
+        Random random = new Random(41);
+        Helper helper = new Helper();
+        for (int[] shape : SHAPES){
+            int inner = shape[0];
+            int columns = shape[1];
+            double[][] matrix = TestTables.gaussianRows(inner, columns, 1, random);
+            for (int count : COUNTS){
+                double[][] vectors = TestTables.gaussianRows(count, inner, 1, random);
+                double[] result = new double[count * columns];
+                Gemm.multiply(flat(vectors, inner), count, matrix, result, work(columns));
+                for (int i = 0; i < count; i++){
+                    assertArrayEquals("count " + count + " vector " + i, helper.spaceProjection(vectors[i], matrix),
+                            Arrays.copyOfRange(result, i * columns, (i + 1) * columns), EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void multiplyTransposedMatchesSpaceProjection(){
+        Random random = new Random(42);
+        Helper helper = new Helper();
+        for (int[] shape : SHAPES){
+            int rows = shape[0];
+            int inner = shape[1];
+            double[][] matrix = TestTables.gaussianRows(rows, inner, 1, random);
+            double[][] transposed = transpose(matrix);
+            for (int count : COUNTS){
+                double[][] vectors = TestTables.gaussianRows(count, inner, 1, random);
+                double[] result = new double[count * rows];
+                Gemm.multiplyTransposed(flat(vectors, inner), count, matrix, result);
+                for (int i = 0; i < count; i++){
+                    assertArrayEquals("count " + count + " vector " + i, helper.spaceProjection(vectors[i], transposed),
+                            Arrays.copyOfRange(result, i * rows, (i + 1) * rows), EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void addTransposedProductMatchesOuterProducts(){
+        Random random = new Random(43);
+        for (int[] shape : SHAPES){
+            int rows = shape[0];
+            int columns = shape[1];
+            for (int count : COUNTS){
+                double[][] matrix = TestTables.gaussianRows(rows, columns, 1, random);
+                double[][] left = TestTables.gaussianRows(count, rows, 1, random);
+                double[][] right = TestTables.gaussianRows(count, columns, 1, random);
+                double[][] expected = new double[rows][];
+                for (int p = 0; p < rows; p++){
+                    expected[p] = matrix[p].clone();
+                }
+                for (int i = 0; i < count; i++){
+                    for (int p = 0; p < rows; p++){
+                        for (int j = 0; j < columns; j++){
+                            expected[p][j] += -0.1 * left[i][p] * right[i][j];
+                        }
+                    }
+                }
+                Gemm.addTransposedProduct(matrix, -0.1, flat(left, rows), flat(right, columns), count, work(columns));
+                for (int p = 0; p < rows; p++){
+                    assertArrayEquals("count " + count + " row " + p, expected[p], matrix[p], EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyBatchLeavesTheResult(){
+        double[][] matrix = {{1, 2}, {3, 4}};
+        double[] result = {5, 6};
+        Gemm.multiply(new double[0], 0, matrix, result, work(2));
+        Gemm.multiplyTransposed(new double[0], 0, matrix, result);
+        assertEquals(5, result[0], 0);
+        assertEquals(6, result[1], 0);
+    }
+}
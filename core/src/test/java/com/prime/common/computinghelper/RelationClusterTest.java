@@ -0,0 +1,134 @@
+package com.prime.common.computinghelper;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the cluster vectors of CTransR are kept in the precision of the entity vectors they are clustered from. On offsets (head - tail) drawn
+ * around a few well separated patterns per relation, lloyd and mini-batch k-means put the triples of a pattern in one cluster of their
+ * relation, the cluster vector is the normalized pattern and every cluster owns its identity matrix
+ */
+public class RelationClusterTest {
+
+    final static int K = 8;
+    final static int PATTERNS = 3;
+    final static int PER_PATTERN = 60;
+    /** relations 0 .. 2 have PATTERNS patterns, relation 3 has two triples, relation 4 none */
+    final static int RELATIONS = 5;
+
+    @Test
+    public void clusterVectorsKeepThePrecisionOfTheEntities(){
+        Random random = new Random(5);
+        int entities = 200;
+        int relations = 4;
+        TripleStore triples = TestTables.randomTriples(2000, entities, relations, random);
+        for (Precision precision : new Precision[]{Precision.FLOAT64, Precision.FLOAT32}){
+            EmbeddingTable entityVectors = TestTables.gaussianTable(entities, K, 1, precision, random);
+            RelationCluster cluster = new RelationCluster(entityVectors, relations, triples, 3, 10, K, K);
+            assertEquals(precision, cluster.getClusterVectors().precision());
+            assertEquals(3 * relations, cluster.getClusterVectors().rows());
+        }
+    }
+
+    @Test
+    public void lloydRecoversThePatterns(){
+        checkPatterns(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void miniBatchRecoversThePatterns(){
+        checkPatterns(10);
+    }
+
+    /**
+     * triple i gets the entities 2 * i (tail) and 2 * i + 1 (head = tail + pattern + noise)
+     * @param miniBatchThreshold
+     */
+    private void checkPatterns(int miniBatchThreshold){
+        Random random = new Random(7);
+        double[][][] patterns = new double[RELATIONS][][];
+        for (int r = 0; r < 3; r++){
+            patterns[r] = TestTables.gaussianRows(PATTERNS, K, 5, random);
+        }
+        patterns[3] = TestTables.gaussianRows(2, K, 5, random);
+        TripleStore triples = new TripleStore();
+        int[] tripleP = new int[3 * PATTERNS * PER_PATTERN + 2];
+        double[][] rows = new double[2 * tripleP.length][];
+        for (int r = 0; r < 4; r++){
+            int count = r < 3 ? PATTERNS * PER_PATTERN : 2;
+            for (int i = 0; i < count; i++){
+                int p = i % patterns[r].length;
+                int triple = triples.size();
+                double[] tail = TestTables.gaussianRows(1, K, 1, random)[0];
+                double[] head = new double[K];
+                for (int j = 0; j < K; j++){
+                    head[j] = tail[j] + patterns[r][p][j] + random.nextGaussian() * 0.01;
+                }
+                rows[2 * triple] = tail;
+                rows[2 * triple + 1] = head;
+                tripleP[triple] = p;
+                triples.add(2 * triple + 1, r, 2 * triple);
+            }
+        }
+        EmbeddingTable entityVectors = TestTables.table(rows, Precision.FLOAT64);
+        int columns = K - 2;
+        RelationCluster cluster = new RelationCluster(entityVectors, RELATIONS, triples, PATTERNS, 50, K, columns, 2,
+                miniBatchThreshold, 64);
+
+        int[] starts = cluster.getClusterStarts();
+        assertArrayEquals(new int[]{0, 3, 6, 9, 11, 11}, starts);
+        int[] tripleClusters = cluster.getTripleClusters();
+        assertEquals(triples.size(), tripleClusters.length);
+        // the cluster of every pattern, found from its first triple
+        int[][] patternCluster = new int[RELATIONS][PATTERNS];
+        Helper helper = new Helper();
+        for (int i = 0; i < triples.size(); i++){
+            int r = triples.relation(i);
+            int c = tripleClusters[i];
+            assertTrue(c >= starts[r] && c < starts[r + 1]);
+            if (i < patterns[r].length + relationStart(r)){
+                patternCluster[r][tripleP[i]] = c;
+            }
+            assertEquals(patternCluster[r][tripleP[i]], c);
+        }
+        for (int r = 0; r < 4; r++){
+            for (int p = 0; p < patterns[r].length; p++){
+                for (int q = p + 1; q < patterns[r].length; q++){
+                    assertNotEquals(patternCluster[r][p], patternCluster[r][q]);
+                }
+                assertArrayEquals(helper.norm(patterns[r][p]), cluster.getClusterVectors().row(patternCluster[r][p]), 1e-2);
+            }
+        }
+
+        double[][][] matrices = cluster.getMatrices();
+        assertEquals(starts[RELATIONS], matrices.length);
+        for (int c = 0; c < matrices.length; c++){
+            assertEquals(K, matrices[c].length);
+            for (int i = 0; i < K; i++){
+                assertEquals(columns, matrices[c][i].length);
+                for (int j = 0; j < columns; j++){
+                    assertEquals(i == j ? 1 : 0, matrices[c][i][j], 0);
+                }
+            }
+            for (int other = c + 1; other < matrices.length; other++){
+                assertNotSame(matrices[c], matrices[other]);
+            }
+        }
+        assertSame(matrices, cluster.getMatrices());
+    }
+
+    /**
+     * @return index of the first triple of relation r in checkPatterns
+     */
+    private static int relationStart(int r){
+        return Math.min(r, 3) * PATTERNS * PER_PATTERN;
+    }
+}
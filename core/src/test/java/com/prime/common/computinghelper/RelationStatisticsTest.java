@@ -0,0 +1,54 @@
+package com.prime.common.computinghelper;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * exact counts on several threads match a set based count, hyperLogLog estimates stay within 5% of them
+ */
+public class RelationStatisticsTest {
+
+    final static int ENTITIES = 50000;
+    final static int RELATIONS = 20;
+
+    private static TripleStore triples(){
+        Random random = new Random(9);
+        TripleStore triples = new TripleStore();
+        for (int i = 0; i < 300000; i++){
+            int relation = random.nextInt(RELATIONS);
+            // relation r draws heads from (r + 1) * ENTITIES / RELATIONS ids, small and large distinct counts
+            triples.add(random.nextInt((relation + 1) * ENTITIES / RELATIONS), relation, random.nextInt(ENTITIES));
+        }
+        return triples;
+    }
+
+    @Test
+    public void exactAndHyperLogLog(){
+        TripleStore triples = triples();
+        RelationStatistics exact = new RelationStatistics(triples, RELATIONS, 4, false);
+        RelationStatistics estimated = new RelationStatistics(triples, RELATIONS, 4, true);
+        for (int r = 0; r < RELATIONS; r++){
+            Set<Integer> heads = new HashSet<Integer>();
+            Set<Integer> tails = new HashSet<Integer>();
+            int count = 0;
+            for (int i = 0; i < triples.size(); i++){
+                if (triples.relation(i) == r){
+                    heads.add(triples.head(i));
+                    tails.add(triples.tail(i));
+                    count ++;
+                }
+            }
+            assertEquals(count, exact.tripleCount(r));
+            assertEquals(count, estimated.tripleCount(r));
+            assertEquals(heads.size(), exact.distinctHeads(r));
+            assertEquals(tails.size(), exact.distinctTails(r));
+            assertEquals(heads.size(), estimated.distinctHeads(r), heads.size() * 0.05);
+            assertEquals(tails.size(), estimated.distinctTails(r), tails.size() * 0.05);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.prime.common.computinghelper;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * products, rank one updates and the spectral norm of random sparse matrices (square TransSparse matrices and rectangular ones with empty
+ * rows) match the dense versions of Helper on toDense, the block variants match the vector ones for batch sizes that are not a multiple of
+ * the vector length
+ */
+public class SparseMatrixTest {
+
+    final static double EPSILON = 1e-12;
+    final static int[] COUNTS = {1, 3, 4, 5, 17};
+
+    /**
+     * @return rows x columns matrix, every entry non zero with the given probability
+     */
+    private static SparseMatrix randomMatrix(int rows, int columns, double density, Random random){
+        int[] rowPointers = new int[rows + 1];
+        int[] columnIndices = new int[rows * columns];
+        double[] values = new double[rows * columns];
+        int index = 0;
+        for (int row = 0; row < rows; row++){
+            for (int column = 0; column < columns; column++){
+                if (random.nextDouble() < density){
+                    columnIndices[index] = column;
+                    values[index] = random.nextGaussian();
+                    index ++;
+                }
+            }
+            rowPointers[row + 1] = index;
+        }
+        return new SparseMatrix(rows, columns, rowPointers, Arrays.copyOf(columnIndices, index), Arrays.copyOf(values, index));
+    }
+
+    private static SparseMatrix[] matrices(Random random){
+        return new SparseMatrix[]{
+                SparseMatrix.unstructured(20, 60, random),
+                SparseMatrix.unstructured(37, 400, random),
+                randomMatrix(13, 7, 0.3, random),
+                randomMatrix(6, 19, 0.2, random)
+        };
+    }
+
+    private static double[][] transpose(double[][] matrix){
+        double[][] transposed = new double[matrix[0].length][matrix.length];
+        for (int i = 0; i < matrix.length; i++){
+            for (int j = 0; j < matrix[0].length; j++){
+                transposed[j][i] = matrix[i][j];
+            }
+        }
+        return transposed;
+    }
+
+    private static double[] vector(int length, Random random){
+        return TestTables.gaussianRows(1, length, 1, random)[0];
+    }
+
+    @Test
+    public void multiplyMatchesDense(){
+        Random random = new Random(31);
+        Helper helper = new Helper();
+        for (SparseMatrix matrix : matrices(random)){
+            double[][] dense = matrix.toDense();
+            double[] vector = vector(matrix.columns(), random);
+            double[] result = new double[matrix.rows()];
+            matrix.multiply(vector, result);
+            // spaceProjection is vector * matrix, so matrix * vector is the projection with the transpose
+            assertArrayEquals(helper.spaceProjection(vector, transpose(dense)), result, EPSILON);
+
+            double[] rowVector = vector(matrix.rows(), random);
+            double[] transposed = new double[matrix.columns()];
+            matrix.multiplyTransposed(rowVector, transposed);
+            assertArrayEquals(helper.spaceProjection(rowVector, dense), transposed, EPSILON);
+        }
+    }
+
+    @Test
+    public void addOuterStaysOnThePattern(){
+        Random random = new Random(32);
+        for (SparseMatrix matrix : matrices(random)){
+            double[][] before = matrix.toDense();
+            double[] left = vector(matrix.rows(), random);
+            double[] right = vector(matrix.columns(), random);
+            matrix.addOuter(0.1, left, right);
+            double[][] after = matrix.toDense();
+            for (int i = 0; i < matrix.rows(); i++){
+                for (int j = 0; j < matrix.columns(); j++){
+                    double expected = before[i][j] == 0 ? 0 : before[i][j] + 0.1 * left[i] * right[j];
+                    assertEquals(expected, after[i][j], EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blocksMatchTheVectorVersions(){
+        Random random = new Random(33);
+        for (SparseMatrix matrix : matrices(random)){
+            int rows = matrix.rows();
+            int columns = matrix.columns();
+            for (int count : COUNTS){
+                double[][] vectors = TestTables.gaussianRows(count, columns, 1, random);
+                double[][] rowVectors = TestTables.gaussianRows(count, rows, 1, random);
+                double[] batch = new double[columns * count];
+                double[] rowBatch = new double[rows * count];
+                for (int i = 0; i < count; i++){
+                    for (int j = 0; j < columns; j++){
+                        batch[j * count + i] = vectors[i][j];
+                    }
+                    for (int j = 0; j < rows; j++){
+                        rowBatch[j * count + i] = rowVectors[i][j];
+                    }
+                }
+                double[] result = new double[rows * count];
+                double[] transposedResult = new double[columns * count];
+                matrix.multiplyBlock(batch, count, result);
+                matrix.multiplyTransposedBlock(rowBatch, count, transposedResult);
+                double[] expected = new double[rows];
+                double[] expectedTransposed = new double[columns];
+                for (int i = 0; i < count; i++){
+                    matrix.multiply(vectors[i], expected);
+                    matrix.multiplyTransposed(rowVectors[i], expectedTransposed);
+                    for (int j = 0; j < rows; j++){
+                        assertEquals(expected[j], result[j * count + i], EPSILON);
+                    }
+                    for (int j = 0; j < columns; j++){
+                        assertEquals(expectedTransposed[j], transposedResult[j * count + i], EPSILON);
+                    }
+                }
+
+                // sum of the rank one updates of the batch
+                SparseMatrix vectorUpdated = matrix.copy();
+                for (int i = 0; i < count; i++){
+                    vectorUpdated.addOuter(-0.05, rowVectors[i], vectors[i]);
+                }
+                SparseMatrix blockUpdated = matrix.copy();
+                blockUpdated.addOuterBlock(-0.05, rowBatch, batch, count);
+                double[][] expectedDense = vectorUpdated.toDense();
+                double[][] actualDense = blockUpdated.toDense();
+                for (int i = 0; i < rows; i++){
+                    assertArrayEquals(expectedDense[i], actualDense[i], EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void spectralNormMatchesSvd(){
+        Random random = new Random(34);
+        Helper helper = new Helper();
+        for (SparseMatrix matrix : matrices(random)){
+            double[][] dense = matrix.toDense();
+            double svdNorm = new SingularValueDecomposition(MatrixUtils.createRealMatrix(dense)).getNorm();
+            double[] singularVector = new double[matrix.columns()];
+            Arrays.fill(singularVector, 1 / Math.sqrt(matrix.columns()));
+            double denseNorm = helper.spectralNorm(dense, singularVector, new double[matrix.columns()], new double[matrix.rows()]);
+            double sparseNorm = matrix.spectralNorm(new double[matrix.columns()], new double[matrix.rows()]);
+            assertEquals(svdNorm, sparseNorm, svdNorm * 1e-3);
+            assertEquals(denseNorm, sparseNorm, svdNorm * 1e-3);
+            // a second call starts from the converged singular vector
+            assertEquals(sparseNorm, matrix.spectralNorm(new double[matrix.columns()], new double[matrix.rows()]), svdNorm * 1e-4);
+        }
+    }
+
+    @Test
+    public void zeroMatrixHasNormZero(){
+        SparseMatrix matrix = new SparseMatrix(3, 4, new int[]{0, 1, 2, 2}, new int[]{0, 3}, new double[]{0, 0});
+        assertEquals(0, matrix.spectralNorm(new double[4], new double[3]), 0);
+    }
+}
@@ -0,0 +1,99 @@
+package com.prime.common.computinghelper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * random fixtures shared by the tests: gaussian rows and tables, uniform triples, row names, and the largest difference of two tables
+ */
+public final class TestTables {
+
+    private TestTables(){
+    }
+
+    /**
+     * @param rows
+     * @param dim
+     * @param scale standard deviation of the values
+     * @param random
+     * @return rows x dim gaussian values
+     */
+    public static double[][] gaussianRows(int rows, int dim, double scale, Random random){
+        double[][] values = new double[rows][dim];
+        for (double[] row : values){
+            for (int j = 0; j < dim; j++){
+                row[j] = random.nextGaussian() * scale;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param rows
+     * @param precision
+     * @return table holding the rows, rounded to the precision
+     */
+    public static EmbeddingTable table(double[][] rows, Precision precision){
+        EmbeddingTable table = EmbeddingTable.create(rows.length, rows[0].length, precision);
+        for (int i = 0; i < rows.length; i++){
+            table.setRow(i, rows[i]);
+        }
+        return table;
+    }
+
+    /**
+     * @param rows
+     * @param dim
+     * @param scale standard deviation of the values
+     * @param precision
+     * @param random
+     * @return table of gaussian values
+     */
+    public static EmbeddingTable gaussianTable(int rows, int dim, double scale, Precision precision, Random random){
+        return table(gaussianRows(rows, dim, scale, random), precision);
+    }
+
+    /**
+     * @param size
+     * @param entities
+     * @param relations
+     * @param random
+     * @return triples with uniform heads, relations and tails
+     */
+    public static TripleStore randomTriples(int size, int entities, int relations, Random random){
+        TripleStore triples = new TripleStore();
+        for (int i = 0; i < size; i++){
+            triples.add(random.nextInt(entities), random.nextInt(relations), random.nextInt(entities));
+        }
+        return triples;
+    }
+
+    /**
+     * @param prefix
+     * @param rows
+     * @return prefix + i for row i
+     */
+    public static Map<String, Integer> names(String prefix, int rows){
+        Map<String, Integer> name2Id = new HashMap<String, Integer>();
+        for (int i = 0; i < rows; i++){
+            name2Id.put(prefix + i, i);
+        }
+        return name2Id;
+    }
+
+    /**
+     * @param first
+     * @param second same shape as first
+     * @return largest absolute difference of two values at the same position
+     */
+    public static double maxDifference(EmbeddingTable first, EmbeddingTable second){
+        double maxDifference = 0;
+        for (int i = 0; i < first.rows(); i++){
+            for (int j = 0; j < first.dim(); j++){
+                maxDifference = Math.max(maxDifference, Math.abs(first.get(i, j) - second.get(i, j)));
+            }
+        }
+        return maxDifference;
+    }
+}
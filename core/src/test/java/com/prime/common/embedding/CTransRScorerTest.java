@@ -0,0 +1,101 @@
+package com.prime.common.embedding;
+
+import com.prime.common.computinghelper.Helper;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.TestTables;
+import com.prime.common.computinghelper.TripleKernel;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.evaluation.LinkPredictionEvaluator;
+import com.prime.common.evaluation.TripleHashSet;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * the CTransR scorer ranks a test triple in the cluster of its relation nearest to (head - tail), the blocked ranks of LinkPredictionEvaluator
+ * match a triple by triple ranking with that cluster's matrix and vector. The last relation has no training triple and no cluster
+ */
+public class CTransRScorerTest {
+
+    final static int ENTITIES = 200;
+    final static int RELATIONS = 5;
+    final static int K = 8;
+
+    /**
+     * filtered ranks of a test triple with the scoring of validationC, 2 * i tail prediction, 2 * i + 1 head prediction
+     */
+    private static int[] bruteForce(XTransR model, TripleStore test, TripleHashSet known){
+        Helper helper = new Helper();
+        int[] ranks = new int[2 * test.size()];
+        for (int t = 0; t < test.size(); t++){
+            int head = test.head(t);
+            int relation = test.relation(t);
+            int tail = test.tail(t);
+            double[] headVector = model.entityVectors.row(head);
+            double[] tailVector = model.entityVectors.row(tail);
+            int cluster = -1;
+            double minDistance = Double.MAX_VALUE;
+            for (int c = model.clusterStarts[relation]; c < model.clusterStarts[relation + 1]; c++){
+                double[] clusterVector = model.clusterVectors.row(c);
+                double distance = 0;
+                for (int j = 0; j < K; j++){
+                    double difference = headVector[j] - tailVector[j] - clusterVector[j];
+                    distance += difference * difference;
+                }
+                if (distance < minDistance){
+                    minDistance = distance;
+                    cluster = c;
+                }
+            }
+            double[] relationVector = cluster >= 0 ? model.clusterVectors.row(cluster) : model.relationVectors.row(relation);
+            double[][] projected = new double[ENTITIES][];
+            for (int e = 0; e < ENTITIES; e++){
+                double[] vector = model.entityVectors.row(e);
+                projected[e] = helper.norm(cluster >= 0 ? helper.spaceProjection(vector, model.matricesC[cluster]) : vector);
+            }
+            double score = helper.distanceL2(projected[head], relationVector, projected[tail], K);
+            int tailBetter = 0, tailTies = 0, headBetter = 0, headTies = 0;
+            for (int e = 0; e < ENTITIES; e++){
+                if (e != tail && !known.contains(head, relation, e)){
+                    double distance = helper.distanceL2(projected[head], relationVector, projected[e], K);
+                    tailBetter += distance < score ? 1 : 0;
+                    tailTies += distance == score ? 1 : 0;
+                }
+                if (e != head && !known.contains(e, relation, tail)){
+                    double distance = helper.distanceL2(projected[e], relationVector, projected[tail], K);
+                    headBetter += distance < score ? 1 : 0;
+                    headTies += distance == score ? 1 : 0;
+                }
+            }
+            ranks[2 * t] = 1 + tailBetter + tailTies / 2;
+            ranks[2 * t + 1] = 1 + headBetter + headTies / 2;
+        }
+        return ranks;
+    }
+
+    @Test
+    public void ranksInTheNearestCluster(){
+        Random random = new Random(3);
+        TripleStore train = TestTables.randomTriples(3000, ENTITIES, RELATIONS - 1, random);
+        TripleStore test = TestTables.randomTriples(100, ENTITIES, RELATIONS, random);
+        XTransR model = new XTransR(true, 2);
+        model.initializeC(TestTables.gaussianTable(ENTITIES, K, 0.3, Precision.FLOAT64, random),
+                TestTables.gaussianTable(RELATIONS, K, 0.3, Precision.FLOAT64, random), RELATIONS, train, 3, 10, K, K);
+        TripleKernel<double[][]> kernel = model.kernel(0.01, K, K, 1, 0.001);
+        double[][] scratch = kernel.newScratch();
+        for (int i = 0; i < train.size(); i++){
+            kernel.update(train.head(i), train.relation(i), train.tail(i), random.nextInt(ENTITIES), train.tail(i), scratch);
+        }
+        TripleHashSet known = TripleHashSet.of(ENTITIES, RELATIONS, test);
+        int[] indices = new int[test.size()];
+        for (int i = 0; i < indices.length; i++){
+            indices[i] = i;
+        }
+        int[] expected = bruteForce(model, test, known);
+        LinkPredictionEvaluator evaluator = new LinkPredictionEvaluator(2, 64);
+        assertArrayEquals(expected, evaluator.rank(model.scorer(), test, indices, known, false));
+        assertArrayEquals(expected, evaluator.rank(model.snapshotScorer(), test, indices, known, false));
+    }
+}
@@ -0,0 +1,101 @@
+package com.prime.common.embedding;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.TestTables;
+import com.prime.common.computinghelper.TripleKernel;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the same sgd steps on a FLOAT64 model and on a FLOAT32 copy of it. The step arithmetic is in double either way, the FLOAT32 model only
+ * rounds every written row to float, so the parameters stay within TOLERANCE of the FLOAT64 model
+ */
+public class Float32TrainingTest {
+
+    final static int ENTITIES = 500;
+    final static int RELATIONS = 10;
+    final static int K = 50;
+    final static int STEPS = 20000;
+    /** largest absolute difference of a parameter after STEPS steps */
+    final static double TOLERANCE = 2e-6;
+
+    /**
+     * run the same triples and corruptions through both kernels
+     */
+    private static void train(TripleKernel<double[][]> kernel64, TripleKernel<double[][]> kernel32){
+        Random random = new Random(7);
+        double[][] scratch64 = kernel64.newScratch();
+        double[][] scratch32 = kernel32.newScratch();
+        for (int step = 0; step < STEPS; step++){
+            int head = random.nextInt(ENTITIES);
+            int relation = random.nextInt(RELATIONS);
+            int tail = (head + 3 * relation + 1) % ENTITIES;
+            boolean corruptHead = random.nextBoolean();
+            int headC = corruptHead ? random.nextInt(ENTITIES) : head;
+            int tailC = corruptHead ? tail : random.nextInt(ENTITIES);
+            kernel64.update(head, relation, tail, headC, tailC, scratch64);
+            kernel32.update(head, relation, tail, headC, tailC, scratch32);
+        }
+    }
+
+    private static void assertClose(String name, EmbeddingTable float64, EmbeddingTable float32){
+        double maxDifference = TestTables.maxDifference(float64, float32);
+        assertTrue(name + " differs by " + maxDifference, maxDifference <= TOLERANCE);
+    }
+
+    @Test
+    public void transE(){
+        TransE float64 = new TransE(1, Precision.FLOAT64);
+        float64.initialize(ENTITIES, RELATIONS, K);
+        TransE float32 = new TransE(1, Precision.FLOAT32);
+        float32.entityVectors = float64.entityVectors.copy(Precision.FLOAT32);
+        float32.relationVectors = float64.relationVectors.copy(Precision.FLOAT32);
+        float64.entityVectors = float32.entityVectors.copy(Precision.FLOAT64); // same starting point
+        float64.relationVectors = float32.relationVectors.copy(Precision.FLOAT64);
+        train(float64.kernel(1, 0.01, false, K), float32.kernel(1, 0.01, false, K));
+        assertClose("entity vectors", float64.entityVectors, float32.entityVectors);
+        assertClose("relation vectors", float64.relationVectors, float32.relationVectors);
+    }
+
+    @Test
+    public void transH(){
+        TransH float64 = new TransH(1, Precision.FLOAT64);
+        float64.initialize(ENTITIES, RELATIONS, K);
+        TransH float32 = new TransH(1, Precision.FLOAT32);
+        float32.entityVectors = float64.entityVectors.copy(Precision.FLOAT32);
+        float32.relationVectors = float64.relationVectors.copy(Precision.FLOAT32);
+        float32.normalVectors = float64.normalVectors.copy(Precision.FLOAT32);
+        float64.entityVectors = float32.entityVectors.copy(Precision.FLOAT64);
+        float64.relationVectors = float32.relationVectors.copy(Precision.FLOAT64);
+        float64.normalVectors = float32.normalVectors.copy(Precision.FLOAT64);
+        train(float64.kernel(1, 0.01, 0.25, K), float32.kernel(1, 0.01, 0.25, K));
+        assertClose("entity vectors", float64.entityVectors, float32.entityVectors);
+        assertClose("relation vectors", float64.relationVectors, float32.relationVectors);
+        assertClose("normal vectors", float64.normalVectors, float32.normalVectors);
+    }
+
+    @Test
+    public void transD(){
+        TransD float64 = new TransD(1, Precision.FLOAT64);
+        float64.initialize(ENTITIES, K, RELATIONS, K);
+        TransD float32 = new TransD(1, Precision.FLOAT32);
+        float32.entityVectors = float64.entityVectors.copy(Precision.FLOAT32);
+        float32.entityProjectionVectors = float64.entityProjectionVectors.copy(Precision.FLOAT32);
+        float32.relationVectors = float64.relationVectors.copy(Precision.FLOAT32);
+        float32.relationProjectVectors = float64.relationProjectVectors.copy(Precision.FLOAT32);
+        float64.entityVectors = float32.entityVectors.copy(Precision.FLOAT64);
+        float64.entityProjectionVectors = float32.entityProjectionVectors.copy(Precision.FLOAT64);
+        float64.relationVectors = float32.relationVectors.copy(Precision.FLOAT64);
+        float64.relationProjectVectors = float32.relationProjectVectors.copy(Precision.FLOAT64);
+        train(float64.kernel(0.01, 1, K, K), float32.kernel(0.01, 1, K, K));
+        assertClose("entity vectors", float64.entityVectors, float32.entityVectors);
+        assertClose("entity projection vectors", float64.entityProjectionVectors, float32.entityProjectionVectors);
+        assertClose("relation vectors", float64.relationVectors, float32.relationVectors);
+        assertClose("relation projection vectors", float64.relationProjectVectors, float32.relationProjectVectors);
+    }
+}
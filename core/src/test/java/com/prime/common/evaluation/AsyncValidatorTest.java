@@ -0,0 +1,79 @@
+package com.prime.common.evaluation;
+
+import com.prime.common.computinghelper.TestTables;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.embedding.TransE;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * a validation that throws is logged and counted and the next epochs are still validated, with setAbortOnFailure it is rethrown on the
+ * calling thread
+ */
+public class AsyncValidatorTest {
+
+    final static int ENTITIES = 50;
+    final static int RELATIONS = 2;
+
+    /**
+     * scorer that fails while projecting the candidates
+     */
+    private static TripleScorer<double[][]> failing(){
+        return new TripleScorer<double[][]>() {
+            @Override
+            public int entitySize() {
+                return ENTITIES;
+            }
+
+            @Override
+            public int dimension() {
+                return 4;
+            }
+
+            @Override
+            public double[][] newScratch() {
+                return new double[0][];
+            }
+
+            @Override
+            public void project(int relation, boolean head, int from, int to, double[] block, double[][] scratch) {
+                throw new IllegalStateException("projection failed");
+            }
+
+            @Override
+            public void relationVector(int relation, double[] destination) {
+            }
+        };
+    }
+
+    @Test
+    public void failureIsLoggedAndTrainingGoesOn(){
+        TripleStore dev = TestTables.randomTriples(20, ENTITIES, RELATIONS, new Random(71));
+        TransE transE = new TransE();
+        transE.initialize(ENTITIES, RELATIONS, 4);
+        AsyncValidator validator = new AsyncValidator(TripleHashSet.of(ENTITIES, RELATIONS, dev), 0);
+        validator.submit(1, AsyncValidatorTest::failing, dev);
+        assertNull(validator.finish());
+        assertFalse(validator.shouldStop());
+        assertEquals(1, validator.getFailures());
+        validator.submit(2, transE::snapshotScorer, dev);
+        assertNotNull(validator.finish());
+        assertEquals(1, validator.getResults().size());
+        assertEquals(2, validator.getBest().getEpoch());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void abortOnFailure(){
+        TripleStore dev = TestTables.randomTriples(20, ENTITIES, RELATIONS, new Random(72));
+        AsyncValidator validator = new AsyncValidator(TripleHashSet.of(ENTITIES, RELATIONS, dev), 0);
+        validator.setAbortOnFailure(true);
+        validator.submit(1, AsyncValidatorTest::failing, dev);
+        validator.finish();
+    }
+}
@@ -0,0 +1,137 @@
+package com.prime.common.evaluation;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.TestTables;
+import com.prime.common.computinghelper.TripleStore;
+import com.prime.common.embedding.TransE;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * raw and filtered ranks of TransE on a hand-built line graph where they are known, and on a random graph against a brute force ranking that
+ * filters with a set of triple objects. One evaluator is used for several calls, before and after close
+ */
+public class LinkPredictionEvaluatorTest {
+
+    /**
+     * filtered ranks scoring one candidate at a time, 2 * i tail prediction, 2 * i + 1 head prediction
+     */
+    private static int[] bruteForce(EmbeddingTable entities, EmbeddingTable relations, TripleStore test, Set<Triple<Integer, Integer, Integer>> known,
+                                     boolean L1){
+        int[] ranks = new int[2 * test.size()];
+        for (int t = 0; t < test.size(); t++){
+            int head = test.head(t);
+            int relation = test.relation(t);
+            int tail = test.tail(t);
+            double score = distance(entities, relations, head, relation, tail, L1);
+            int tailBetter = 0, tailTies = 0, headBetter = 0, headTies = 0;
+            for (int e = 0; e < entities.rows(); e++){
+                if (e != tail && !known.contains(Triple.of(head, relation, e))){
+                    double distance = distance(entities, relations, head, relation, e, L1);
+                    tailBetter += distance < score ? 1 : 0;
+                    tailTies += distance == score ? 1 : 0;
+                }
+                if (e != head && !known.contains(Triple.of(e, relation, tail))){
+                    double distance = distance(entities, relations, e, relation, tail, L1);
+                    headBetter += distance < score ? 1 : 0;
+                    headTies += distance == score ? 1 : 0;
+                }
+            }
+            ranks[2 * t] = 1 + tailBetter + tailTies / 2;
+            ranks[2 * t + 1] = 1 + headBetter + headTies / 2;
+        }
+        return ranks;
+    }
+
+    /**
+     * L1 distance or squared L2 distance of head + relation - tail
+     */
+    private static double distance(EmbeddingTable entities, EmbeddingTable relations, int head, int relation, int tail, boolean L1){
+        double sum = 0;
+        for (int j = 0; j < entities.dim(); j++){
+            double difference = entities.get(head, j) + relations.get(relation, j) - entities.get(tail, j);
+            sum += L1 ? Math.abs(difference) : difference * difference;
+        }
+        return sum;
+    }
+
+    private static int[] all(TripleStore triples){
+        int[] indices = new int[triples.size()];
+        for (int i = 0; i < indices.length; i++){
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * entity i at (i, 0), relation 0 at (1, 0). For (0, 0, 3) the tails 1, 2, 0 are closer than 3 and the heads 2, 1, 3 are closer than 0,
+     * head 4 ties with it. Known (0, 0, 1) and (2, 0, 3) are filtered
+     */
+    @Test
+    public void rawAndFilteredRanksOnALine(){
+        TransE transE = new TransE();
+        transE.initialize(6, 1, 2);
+        for (int i = 0; i < 6; i++){
+            transE.getEntityVectors().setRow(i, new double[]{i, 0});
+        }
+        transE.getRelationVectors().setRow(0, new double[]{1, 0});
+        TripleStore train = new TripleStore();
+        train.add(0, 0, 1);
+        train.add(2, 0, 3);
+        TripleStore test = new TripleStore();
+        test.add(0, 0, 3);
+        LinkPredictionEvaluator evaluator = new LinkPredictionEvaluator(2, 4);
+        try {
+            for (boolean L1 : new boolean[]{false, true}){
+                assertArrayEquals(new int[]{4, 4}, evaluator.rank(transE.scorer(), test, all(test), new TripleHashSet(6, 1, 1), L1));
+                assertArrayEquals(new int[]{3, 3}, evaluator.rank(transE.scorer(), test, all(test), TripleHashSet.of(6, 1, train, test), L1));
+            }
+            RankingMetrics metrics = evaluator.evaluate(transE.scorer(), test, TripleHashSet.of(6, 1, train, test));
+            assertEquals(1d / 3, metrics.getMeanReciprocalRank(), 1e-12);
+            assertEquals(3, metrics.getMeanRank(), 0);
+            assertEquals(1, metrics.getHits3(), 0);
+            assertEquals(0, metrics.getHits1(), 0);
+        } finally {
+            evaluator.close();
+        }
+    }
+
+    @Test
+    public void matchesBruteForce(){
+        Random random = new Random(51);
+        int entities = 150;
+        int relations = 4;
+        TransE transE = new TransE();
+        transE.initialize(entities, relations, 6);
+        TripleStore train = TestTables.randomTriples(1500, entities, relations, random);
+        TripleStore test = TestTables.randomTriples(60, entities, relations, random);
+        Set<Triple<Integer, Integer, Integer>> known = new HashSet<Triple<Integer, Integer, Integer>>();
+        for (TripleStore store : new TripleStore[]{train, test}){
+            for (int i = 0; i < store.size(); i++){
+                known.add(Triple.of(store.head(i), store.relation(i), store.tail(i)));
+            }
+        }
+        TripleHashSet knownSet = TripleHashSet.of(entities, relations, train, test);
+        for (int threads : new int[]{1, 3}){
+            LinkPredictionEvaluator evaluator = new LinkPredictionEvaluator(threads, 7);
+            for (boolean L1 : new boolean[]{false, true}){
+                int[] expected = bruteForce(transE.getEntityVectors(), transE.getRelationVectors(), test, known, L1);
+                assertArrayEquals(expected, evaluator.rank(transE.scorer(), test, all(test), knownSet, L1));
+                int[] raw = bruteForce(transE.getEntityVectors(), transE.getRelationVectors(), test, new HashSet<Triple<Integer, Integer, Integer>>(), L1);
+                assertArrayEquals(raw, evaluator.rank(transE.scorer(), test, all(test), new TripleHashSet(entities, relations, 1), L1));
+            }
+            evaluator.close();
+            // a closed evaluator starts new threads
+            assertArrayEquals(bruteForce(transE.getEntityVectors(), transE.getRelationVectors(), test, known, false),
+                    evaluator.rank(transE.scorer(), test, all(test), knownSet, false));
+            evaluator.close();
+        }
+    }
+}
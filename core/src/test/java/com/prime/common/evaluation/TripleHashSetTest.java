@@ -0,0 +1,84 @@
+package com.prime.common.evaluation;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the primitive set answers contains like a set of triple objects, through growing from a tiny table and for triples that probe the same
+ * slot, and triples with swapped head and tail stay distinct
+ */
+public class TripleHashSetTest {
+
+    @Test
+    public void matchesASetOfTriples(){
+        Random random = new Random(61);
+        int entities = 40;
+        int relations = 3;
+        TripleHashSet set = new TripleHashSet(entities, relations, 1);
+        Set<Triple<Integer, Integer, Integer>> expected = new HashSet<Triple<Integer, Integer, Integer>>();
+        for (int i = 0; i < 2000; i++){
+            int head = random.nextInt(entities);
+            int relation = random.nextInt(relations);
+            int tail = random.nextInt(entities);
+            assertEquals(expected.add(Triple.of(head, relation, tail)), set.add(head, relation, tail));
+        }
+        assertEquals(expected.size(), set.size());
+        for (int head = 0; head < entities; head++){
+            for (int relation = 0; relation < relations; relation++){
+                for (int tail = 0; tail < entities; tail++){
+                    assertEquals(expected.contains(Triple.of(head, relation, tail)), set.contains(head, relation, tail));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void collidingTriples(){
+        int entities = 1000;
+        int relations = 10;
+        TripleHashSet set = new TripleHashSet(entities, relations, 64);
+        // three triples whose keys hash to the same slot
+        int[][] colliding = new int[3][];
+        int found = 0;
+        int slot = set.position(set.key(1, 2, 3));
+        colliding[found++] = new int[]{1, 2, 3};
+        for (int head = 0; head < entities && found < 3; head++){
+            for (int tail = 0; tail < entities && found < 3; tail++){
+                if ((head != 1 || tail != 3) && set.position(set.key(head, 2, tail)) == slot){
+                    colliding[found++] = new int[]{head, 2, tail};
+                }
+            }
+        }
+        assertEquals(3, found);
+        assertTrue(set.add(colliding[0][0], colliding[0][1], colliding[0][2]));
+        assertTrue(set.add(colliding[1][0], colliding[1][1], colliding[1][2]));
+        assertTrue(set.contains(colliding[0][0], colliding[0][1], colliding[0][2]));
+        assertTrue(set.contains(colliding[1][0], colliding[1][1], colliding[1][2]));
+        assertFalse(set.contains(colliding[2][0], colliding[2][1], colliding[2][2]));
+        assertFalse(set.add(colliding[1][0], colliding[1][1], colliding[1][2]));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void swappedHeadAndTail(){
+        TripleHashSet set = new TripleHashSet(10, 2, 4);
+        set.add(1, 0, 2);
+        assertTrue(set.contains(1, 0, 2));
+        assertFalse(set.contains(2, 0, 1));
+        assertFalse(set.contains(1, 1, 2));
+        assertFalse(set.contains(0, 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsKeysLargerThanALong(){
+        new TripleHashSet(Integer.MAX_VALUE, Integer.MAX_VALUE, 1);
+    }
+}
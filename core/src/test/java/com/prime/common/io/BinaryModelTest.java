@@ -0,0 +1,89 @@
+package com.prime.common.io;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.TestTables;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * write a FLOAT64 table in every file precision and load it back with toTable. Float32 rounds to nearest (relative error at most 2^-24),
+ * bfloat16 keeps 8 significant bits (relative error at most 2^-8)
+ */
+public class BinaryModelTest {
+
+    final static int ROWS = 1000;
+    final static int DIM = 64;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static EmbeddingTable randomTable(){
+        return TestTables.gaussianTable(ROWS, DIM, 1, Precision.FLOAT64, new Random(11));
+    }
+
+    /**
+     * @return largest relative error of a value after the round trip
+     */
+    private double roundTrip(Precision precision, Precision tablePrecision) throws IOException {
+        EmbeddingTable table = randomTable();
+        String file = folder.newFile().getPath();
+        BinaryModel.write(file, TestTables.names("entity", ROWS), table, precision);
+        BinaryModel model = BinaryModel.open(file);
+        assertEquals(precision, model.precision());
+        assertEquals(ROWS, model.rows());
+        assertEquals(DIM, model.dim());
+        EmbeddingTable loaded = model.toTable();
+        assertEquals(tablePrecision, loaded.precision());
+        double maxError = 0;
+        for (int i = 0; i < ROWS; i++){
+            assertEquals("entity" + i, model.name(i));
+            assertEquals(i, model.row("entity" + i));
+            for (int j = 0; j < DIM; j++){
+                double value = table.get(i, j);
+                maxError = Math.max(maxError, Math.abs(loaded.get(i, j) - value) / Math.abs(value));
+            }
+        }
+        return maxError;
+    }
+
+    @Test
+    public void float64IsExact() throws IOException {
+        assertEquals(0, roundTrip(Precision.FLOAT64, Precision.FLOAT64), 0);
+    }
+
+    @Test
+    public void float32RelativeError() throws IOException {
+        double error = roundTrip(Precision.FLOAT32, Precision.FLOAT32);
+        assertTrue("relative error " + error, error <= 6e-8);
+    }
+
+    @Test
+    public void bfloat16RelativeError() throws IOException {
+        double error = roundTrip(Precision.BFLOAT16, Precision.FLOAT32);
+        assertTrue("relative error " + error, error <= 4e-3);
+    }
+
+    @Test
+    public void convertFloat32ToBFloat16() throws IOException {
+        EmbeddingTable table = randomTable();
+        String float32 = folder.newFile().getPath();
+        String bfloat16 = folder.newFile().getPath();
+        BinaryModel.write(float32, TestTables.names("entity", ROWS), table, Precision.FLOAT32);
+        BinaryModel.convert(float32, bfloat16, Precision.BFLOAT16);
+        EmbeddingTable loaded = BinaryModel.open(bfloat16).toTable();
+        for (int i = 0; i < ROWS; i++){
+            for (int j = 0; j < DIM; j++){
+                double value = table.get(i, j);
+                assertEquals(value, loaded.get(i, j), Math.abs(value) * 4e-3);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.prime.common.similarity;
+
+import com.prime.common.computinghelper.EmbeddingTable;
+import com.prime.common.computinghelper.Precision;
+import com.prime.common.computinghelper.TestTables;
+import com.prime.common.io.BinaryModel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * recall@10 of the index against the exact search of NearestNeighbors on random vectors, for both metrics. A saved and loaded index
+ * answers exactly like the index it was saved from, an unknown metric in the header is an IOException
+ */
+public class HnswIndexTest {
+
+    final static int ROWS = 2000;
+    final static int DIM = 32;
+    final static int K = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> queries(Random random){
+        List<String> queries = new ArrayList<String>();
+        for (int q = 0; q < 200; q++){
+            queries.add("entity" + random.nextInt(ROWS));
+        }
+        return queries;
+    }
+
+    private void checkRecall(Metric metric){
+        Random random = new Random(21);
+        EmbeddingTable vectors = TestTables.gaussianTable(ROWS, DIM, 1, Precision.FLOAT64, random);
+        Map<String, Integer> names = TestTables.names("entity", ROWS);
+        HnswIndex index = HnswIndex.build(vectors, names, metric, 16, 200);
+        index.setEfSearch(100);
+        NearestNeighbors exact = new NearestNeighbors(vectors, names, 2);
+        try {
+            List<String> queries = queries(random);
+            List<List<Neighbor>> truth = exact.searchBatch(queries, K, metric);
+            int found = 0;
+            for (int q = 0; q < queries.size(); q++){
+                List<Neighbor> approximate = index.search(queries.get(q), K);
+                assertEquals(K, approximate.size());
+                Set<Integer> ids = new HashSet<Integer>();
+                for (Neighbor neighbor : approximate){
+                    ids.add(neighbor.getId());
+                }
+                for (Neighbor neighbor : truth.get(q)){
+                    found += ids.contains(neighbor.getId()) ? 1 : 0;
+                }
+            }
+            double recall = (double) found / (queries.size() * K);
+            assertTrue(metric + " recall@10 " + recall, recall >= 0.9);
+        } finally {
+            exact.shutdown();
+        }
+    }
+
+    @Test
+    public void cosineRecall(){
+        checkRecall(Metric.COSINE);
+    }
+
+    @Test
+    public void l2Recall(){
+        checkRecall(Metric.L2);
+    }
+
+    @Test
+    public void saveAndLoad() throws IOException {
+        Random random = new Random(22);
+        String modelFile = folder.newFile().getPath();
+        BinaryModel.write(modelFile, TestTables.names("entity", ROWS), TestTables.gaussianTable(ROWS, DIM, 1, Precision.FLOAT64, random),
+                Precision.FLOAT32);
+        BinaryModel model = BinaryModel.open(modelFile);
+        HnswIndex built = HnswIndex.build(model, Metric.L2, 8, 64);
+        String indexFile = HnswIndex.indexFile(modelFile);
+        built.save(indexFile);
+        HnswIndex loaded = HnswIndex.load(indexFile, model);
+        assertEquals(Metric.L2, loaded.getMetric());
+        assertEquals(8, loaded.getM());
+        assertEquals(64, loaded.getEfConstruction());
+        assertEquals(built.getEfSearch(), loaded.getEfSearch());
+        assertEquals(ROWS, loaded.rows());
+        for (String query : queries(random)){
+            List<Neighbor> expected = built.search(query, K);
+            List<Neighbor> actual = loaded.search(query, K);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++){
+                assertEquals(expected.get(i).getId(), actual.get(i).getId());
+                assertEquals(expected.get(i).getName(), actual.get(i).getName());
+                assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 0);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownMetric() throws IOException {
+        String modelFile = folder.newFile().getPath();
+        BinaryModel.write(modelFile, TestTables.names("entity", 100), TestTables.gaussianTable(100, DIM, 1, Precision.FLOAT64, new Random(23)),
+                Precision.FLOAT64);
+        BinaryModel model = BinaryModel.open(modelFile);
+        String indexFile = HnswIndex.indexFile(modelFile);
+        HnswIndex.build(model, Metric.COSINE, 8, 32).save(indexFile);
+        RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+        try {
+            file.seek(8);
+            file.write(new byte[]{7, 0, 0, 0}); // metric ordinal 7, little endian
+        } finally {
+            file.close();
+        }
+        HnswIndex.load(indexFile, model);
+    }
+}
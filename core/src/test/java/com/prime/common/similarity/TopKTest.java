@@ -0,0 +1,88 @@
+package com.prime.common.similarity;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the heap keeps the k highest scores and drains them in descending order, a score tied with the weakest kept one does not replace it
+ */
+public class TopKTest {
+
+    @Test
+    public void keepsTheHighestScoresInOrder(){
+        Random random = new Random(1);
+        double[] all = new double[1000];
+        TopK heap = new TopK(50);
+        for (int i = 0; i < all.length; i++){
+            all[i] = random.nextGaussian();
+            heap.offer(i, all[i]);
+        }
+        int[] ids = new int[50];
+        double[] scores = new double[50];
+        assertEquals(50, heap.drain(ids, scores));
+        double[] sorted = all.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < 50; i++){
+            assertEquals(sorted[sorted.length - 1 - i], scores[i], 0);
+            assertEquals(all[ids[i]], scores[i], 0);
+        }
+        assertEquals(0, heap.size);
+    }
+
+    @Test
+    public void kLargerThanTheCandidates(){
+        TopK heap = new TopK(10);
+        double[] offered = {0.3, -1, 2.5, 0.7};
+        for (int i = 0; i < offered.length; i++){
+            heap.offer(i, offered[i]);
+        }
+        assertEquals(Double.NEGATIVE_INFINITY, heap.threshold(), 0);
+        int[] ids = new int[10];
+        double[] scores = new double[10];
+        assertEquals(4, heap.drain(ids, scores));
+        assertArrayEquals(new int[]{2, 3, 0, 1}, Arrays.copyOf(ids, 4));
+        assertArrayEquals(new double[]{2.5, 0.7, 0.3, -1}, Arrays.copyOf(scores, 4), 0);
+    }
+
+    @Test
+    public void tiesKeepTheFirstResults(){
+        TopK heap = new TopK(3);
+        for (int i = 0; i < 6; i++){
+            heap.offer(i, 1.0);
+        }
+        assertEquals(1.0, heap.threshold(), 0);
+        int[] ids = new int[3];
+        double[] scores = new double[3];
+        assertEquals(3, heap.drain(ids, scores));
+        Arrays.sort(ids);
+        assertArrayEquals(new int[]{0, 1, 2}, ids);
+        assertArrayEquals(new double[]{1, 1, 1}, scores, 0);
+    }
+
+    @Test
+    public void mergeKeepsTheBestOfBoth(){
+        TopK first = new TopK(3);
+        TopK second = new TopK(3);
+        for (int i = 0; i < 5; i++){
+            first.offer(i, i);
+            second.offer(10 + i, i + 0.5);
+        }
+        first.merge(second);
+        int[] ids = new int[3];
+        double[] scores = new double[3];
+        assertEquals(3, first.drain(ids, scores));
+        assertArrayEquals(new int[]{14, 4, 13}, ids);
+        assertTrue(scores[0] >= scores[1] && scores[1] >= scores[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZero(){
+        new TopK(0);
+    }
+}